@@ -130,6 +130,7 @@ import java.util.concurrent.atomic.AtomicInteger;
 		$template::state.write(addr,value);
 	}
 	public int address() { return $template::state.ip; }
+	public void foldConstantOptions(int optionsAddress) { $template::state.foldConstantOptions(optionsAddress); }
 	public void func(CommonTree id) { $template::state.func(templateToken, id); }
 	public void refAttr(CommonTree id) { $template::state.refAttr(templateToken, id); }
 	public int defineString(String s) { return $template::state.defineString(s); }
@@ -168,7 +169,10 @@ scope {
 		{
         // finish off the CompiledST result
         if ( $template::state.stringtable!=null ) $impl.strings = $template::state.stringtable.toArray();
+        if ( !$template::state.optionSets.isEmpty() ) $impl.optionSets = $template::state.optionSets.toArray(new String[0][]);
+        $template::state.fuseInstructions();
         $impl.codeSize = $template::state.ip;
+        $impl.maxStackDepth = BytecodeVerifier.getMaxStackDepth($impl);
 		}
 	;
 
@@ -343,7 +347,10 @@ conditional
 	|	expr // not all expr are valid, but reuse code gen (parser restricts syntax)
 	;
 
-exprOptions : {emit($start, Instruction.OPTIONS);} ^(OPTIONS option*) ;
+exprOptions
+@init {int optionsAddress = address();}
+	:	{emit($start, Instruction.OPTIONS);} ^(OPTIONS option*) {foldConstantOptions(optionsAddress);}
+	;
 
 option : ^('=' ID expr) {setOption($ID);} ;
 
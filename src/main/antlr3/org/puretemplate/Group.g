@@ -114,10 +114,19 @@ import java.io.File;
 @members {
 public STGroup group;
 
+/** Template definitions compiled concurrently when parsing a whole group; null when parsing a single templateDef. */
+TemplateDefinitionBatch definitions;
+
+/** Defines the pending templates, so that everything happens in the same order as if they had been defined inline. */
+void flushDefinitions() {
+    if ( definitions!=null ) definitions.flush();
+}
+
 @Override
 public void displayRecognitionError(String[] tokenNames,
                                     RecognitionException e)
 {
+    flushDefinitions();
     String msg = getErrorMessage(e, tokenNames);
     group.errMgr.groupSyntaxError(ErrorType.SYNTAX_ERROR, getSourceName(), e, msg);
 }
@@ -128,6 +137,7 @@ public String getSourceName() {
     return f.getName();
 }
 public void error(String msg) {
+    flushDefinitions();
     NoViableAltException e = new NoViableAltException("", 0, 0, input);
     group.errMgr.groupSyntaxError(ErrorType.SYNTAX_ERROR, getSourceName(), e, msg);
     recover(input, null);
@@ -137,6 +147,7 @@ public void addArgument(List<FormalArgument> args, Token t, Token defaultValueTo
 	String name = t.getText();
 	for (FormalArgument arg : args) {
 		if (arg.name.equals(name)) {
+			flushDefinitions();
 			group.errMgr.compileTimeError(ErrorType.PARAMETER_REDEFINITION, null, t, name);
 			return;
 		}
@@ -149,8 +160,12 @@ public void addArgument(List<FormalArgument> args, Token t, Token defaultValueTo
 @lexer::members {
 public STGroup group;
 
+/** See GroupParser.definitions */
+TemplateDefinitionBatch definitions;
+
 @Override
 public void reportError(RecognitionException e) {
+    if ( definitions!=null ) definitions.flush();
     String msg = null;
     if ( e instanceof NoViableAltException ) {
         msg = "invalid character '"+(char)input.LA(1)+"'";
@@ -175,6 +190,7 @@ group[STGroup group, String prefix]
 @init {
 GroupLexer lexer = (GroupLexer)input.getTokenSource();
 this.group = lexer.group = $group;
+this.definitions = lexer.definitions = new TemplateDefinitionBatch($group);
 }
 	:	oldStyleHeader?
 		delimiters?
@@ -189,6 +205,10 @@ this.group = lexer.group = $group;
 		def[prefix]*
 		EOF
 	;
+	finally {
+		flushDefinitions();
+		definitions = lexer.definitions = null;
+	}
 
 oldStyleHeader // ignore but lets us use this parser in AW for both v3 and v4
     :   'group' ID ( ':' ID )?
@@ -250,6 +270,7 @@ templateDef[String prefix]
 	    |	BIGSTRING_NO_NL  {template=$BIGSTRING_NO_NL.text; n=2;}
 	    |	{
 	    	template = "";
+	    	flushDefinitions();
 	    	String msg = "missing template at '"+input.LT(1).getText()+"'";
             NoViableAltException e = new NoViableAltException("", 0, 0, input);
     	    group.errMgr.groupSyntaxError(ErrorType.SYNTAX_ERROR, getSourceName(), e, msg);
@@ -265,11 +286,17 @@ templateDef[String prefix]
 			if (enclosingTemplateName != null && enclosingTemplateName.length()>0 && prefix.length()>0) {
 				enclosingTemplateName = prefix + enclosingTemplateName;
 			}
-			group.defineTemplateOrRegion(templateName, enclosingTemplateName, templateToken,
-										 template, $name, $formalArgs.args);
+			if ( definitions!=null ) {
+				definitions.add(templateName, enclosingTemplateName, templateToken,
+								template, $name, $formalArgs.args);
+			}
+			else {
+				group.defineTemplateOrRegion(templateName, enclosingTemplateName, templateToken,
+											 template, $name, $formalArgs.args);
+			}
 		}
 	    }
-	|   alias=ID '::=' target=ID  {group.defineTemplateAlias($alias, $target);}
+	|   alias=ID '::=' target=ID  {flushDefinitions(); group.defineTemplateAlias($alias, $target);}
 	;
 
 formalArgs returns[List<FormalArgument> args = new ArrayList<FormalArgument>()]
@@ -287,6 +314,7 @@ formalArg[List<FormalArgument> args]
 		|	'=' a='[' ']' {$formalArgs::hasOptionalParameter = true;}
 		|	{
 			if ($formalArgs::hasOptionalParameter) {
+				flushDefinitions();
 				group.errMgr.compileTimeError(ErrorType.REQUIRED_PARAMETER_AFTER_OPTIONAL,
 				 							  null, $ID);
 			}
@@ -307,6 +335,7 @@ suffix returns [int cardinality=FormalArgument.REQUIRED]
 dictDef
 	:	ID '::=' dict
         {
+        flushDefinitions();
         if ( group.rawGetDictionary($ID.text)!=null ) {
 			group.errMgr.compileTimeError(ErrorType.MAP_REDEFINITION, null, $ID);
         }
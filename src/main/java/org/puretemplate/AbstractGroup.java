@@ -33,6 +33,11 @@ abstract class AbstractGroup<T extends STGroup> implements Group
             this.stGroup.setListener(errorListener);
         }
 
+        for (Handle handle : handles)
+        {
+            handle.prepare(this.stGroup);
+        }
+
         this.stGroup.load();
 
         imports.stream()
@@ -1,7 +1,6 @@
 package org.puretemplate;
 
 import java.io.IOException;
-import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.lang.reflect.Array;
 import java.text.MessageFormat;
@@ -9,7 +8,6 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
@@ -31,7 +29,9 @@ import org.puretemplate.exception.NoSuchAttributeException;
 import org.puretemplate.exception.NoSuchPropertyException;
 import org.puretemplate.model.AttributeRenderer;
 import org.puretemplate.model.ModelAdaptor;
+import org.puretemplate.model.StreamingAttributeRenderer;
 
+import com.github.mizool.core.exception.CodeInconsistencyException;
 import com.google.common.collect.Streams;
 
 /**
@@ -40,7 +40,8 @@ import com.google.common.collect.Streams;
  * field points at a {@link CompiledST}, which contains all of the byte codes and other information relevant to
  * execution.
  * <p>
- * This interpreter is a stack-based bytecode interpreter. All operands go onto an operand stack.</p>
+ * This interpreter is a stack-based bytecode interpreter. All operands go onto an operand stack. Groups can choose to
+ * execute the {@link RegisterCode} translated from the stack code instead, which keeps the operands in registers.</p>
  * <p>
  * We create a new interpreter at the beginning of each rendering operation.</p>
  */
@@ -52,22 +53,18 @@ abstract class AbstractInterpreter implements Interpreter
     {
     }
 
-    private static class ArgumentsMap extends HashMap<String, Object>
-    {
-    }
-
-    private static final int DEFAULT_OPERAND_STACK_SIZE = 100;
+    private static final int DEFAULT_OPERAND_STACK_SIZE = 16;
 
     /**
-     * Operand stack, grows upwards.
+     * Operand stack, grows upwards. Before executing a template, it is enlarged to hold the
+     * {@link CompiledST#maxStackDepth} operands of that template on top of the ones of its callers.
      */
-    private final Object[] operands = new Object[DEFAULT_OPERAND_STACK_SIZE];
+    private Object[] operands = new Object[DEFAULT_OPERAND_STACK_SIZE];
 
     /**
      * List-based access to {@link #operands}.
      */
-    @SuppressWarnings("Java9CollectionFactory")
-    private final List<Object> operandsList = Collections.unmodifiableList(Arrays.asList(operands));
+    private List<Object> operandsList = createOperandsList(operands);
 
     /**
      * Stack pointer register.
@@ -79,6 +76,21 @@ abstract class AbstractInterpreter implements Interpreter
      */
     int currentLineCharacters;
 
+    /**
+     * The number of template lines started so far, i.e. how often {@link #currentLineCharacters} was reset.
+     */
+    private int templateLines;
+
+    /**
+     * Receives the output of {@link StreamingAttributeRenderer}s.
+     */
+    private final RenderBuffer renderBuffer = new RenderBuffer();
+
+    /**
+     * The renderers looked up so far, including negative results.
+     */
+    private final RendererCache rendererCache = new RendererCache();
+
     /**
      * Render template with respect to this group.
      *
@@ -104,6 +116,20 @@ abstract class AbstractInterpreter implements Interpreter
     }
 
     protected int exec(@NonNull Job job, @NonNull InstanceScope scope)
+    {
+        MetricsSink metrics = group.metrics;
+        if (metrics == null)
+        {
+            return execInternal(job, scope);
+        }
+
+        long start = System.nanoTime();
+        int n = execInternal(job, scope);
+        metrics.recordTemplate(scope.st.getImpl(), System.nanoTime() - start, n);
+        return n;
+    }
+
+    private int execInternal(Job job, InstanceScope scope)
     {
         final ST self = scope.st;
         log.debug("exec({})", self.getName());
@@ -112,13 +138,14 @@ abstract class AbstractInterpreter implements Interpreter
             setDefaultArguments(job, scope);
             return _exec(job, scope);
         }
+        catch (RenderingAbortedException e)
+        {
+            throw e;
+        }
         catch (Exception e)
         {
-            StringWriter sw = new StringWriter();
-            PrintWriter pw = new PrintWriter(sw);
-            e.printStackTrace(pw);
-            pw.flush();
-            errMgr.runTimeError(scope.toLocation(), ErrorType.INTERNAL_ERROR, "internal error: " + sw);
+            // the stack trace is only printed if the message is converted to a string
+            errMgr.runTimeError(scope, ErrorType.INTERNAL_ERROR, e, "internal error");
             return 0;
         }
     }
@@ -126,6 +153,13 @@ abstract class AbstractInterpreter implements Interpreter
     protected int _exec(Job job, InstanceScope scope)
     {
         final ST self = scope.st;
+        if (group.registerInterpreter && !job.getEventDistributor()
+            .hasListeners())
+        {
+            // the register code has no operand stack to show in trace events
+            return execRegisterCode(job, scope);
+        }
+
         TemplateWriter out = job.getTemplateWriter();
         int start = out.index(); // track char we're about to write
         Instruction prevOpcode = null;
@@ -138,6 +172,7 @@ abstract class AbstractInterpreter implements Interpreter
         ST st;
         Object[] options;
         byte[] code = self.getImpl().instrs;        // which code block are we executing
+        ensureOperandStackCapacity(stackPointer + 1 + self.getImpl().maxStackDepth);
         int ip = 0;
         while (ip < self.getImpl().codeSize)
         {
@@ -155,31 +190,12 @@ abstract class AbstractInterpreter implements Interpreter
                 case LOAD_ATTR:
                     nameIndex = getShort(code, ip);
                     ip += Bytecode.OPND_SIZE_IN_BYTES;
-                    name = self.getImpl().strings[nameIndex];
-                    try
-                    {
-                        o = getAttribute(scope, name);
-                        if (o == ST.EMPTY_ATTR)
-                        {
-                            o = null;
-                        }
-                    }
-                    catch (NoSuchAttributeException nsae)
-                    {
-                        errMgr.runTimeError(scope.toLocation(), ErrorType.NO_SUCH_ATTRIBUTE, name);
-                        o = null;
-                    }
-                    operands[++stackPointer] = o;
+                    operands[++stackPointer] = loadAttribute(scope, self.getImpl().strings[nameIndex]);
                     break;
                 case LOAD_LOCAL:
                     int valueIndex = getShort(code, ip);
                     ip += Bytecode.OPND_SIZE_IN_BYTES;
-                    o = self.locals[valueIndex];
-                    if (o == ST.EMPTY_ATTR)
-                    {
-                        o = null;
-                    }
-                    operands[++stackPointer] = o;
+                    operands[++stackPointer] = loadLocal(self, valueIndex);
                     break;
                 case LOAD_PROP:
                     nameIndex = getShort(code, ip);
@@ -221,7 +237,7 @@ abstract class AbstractInterpreter implements Interpreter
                     nameIndex = getShort(code, ip);
                     ip += Bytecode.OPND_SIZE_IN_BYTES;
                     name = self.getImpl().strings[nameIndex];
-                    Map<String, Object> attrs = (ArgumentsMap) operands[stackPointer--];
+                    NamedArguments attrs = (NamedArguments) operands[stackPointer--];
                     // look up in original hierarchy not enclosing template (variable group)
                     // see TestSubtemplates.testEvalSTFromAnotherGroup()
                     st = self.groupThatCreatedThisInstance.getEmbeddedInstanceOf(scope, name);
@@ -241,7 +257,7 @@ abstract class AbstractInterpreter implements Interpreter
                     nameIndex = getShort(code, ip);
                     ip += Bytecode.OPND_SIZE_IN_BYTES;
                     name = self.getImpl().strings[nameIndex];
-                    attrs = (ArgumentsMap) operands[stackPointer--];
+                    attrs = (NamedArguments) operands[stackPointer--];
                     super_new(scope, name, attrs);
                     break;
                 case STORE_OPTION:
@@ -256,7 +272,7 @@ abstract class AbstractInterpreter implements Interpreter
                     name = self.getImpl().strings[nameIndex];
                     ip += Bytecode.OPND_SIZE_IN_BYTES;
                     o = operands[stackPointer--];
-                    attrs = (ArgumentsMap) operands[stackPointer];
+                    attrs = (NamedArguments) operands[stackPointer];
                     attrs.put(name, o); // leave attrs on stack
                     break;
                 case WRITE:
@@ -287,10 +303,7 @@ abstract class AbstractInterpreter implements Interpreter
                     }
                     stackPointer -= nmaps;
                     o = operands[stackPointer--];
-                    if (o != null)
-                    {
-                        rot_map(scope, o, templates);
-                    }
+                    rot_map(scope, o, templates);
                     break;
                 case ZIP_MAP:
                     st = (ST) operands[stackPointer--];
@@ -319,14 +332,19 @@ abstract class AbstractInterpreter implements Interpreter
                 case OPTIONS:
                     operands[++stackPointer] = new Object[Compiler.NUM_OPTIONS];
                     break;
+                case CONST_OPTIONS:
+                    int optionSetIndex = getShort(code, ip);
+                    ip += Bytecode.OPND_SIZE_IN_BYTES;
+                    operands[++stackPointer] = self.getImpl().optionSets[optionSetIndex];
+                    break;
                 case ARGS:
-                    operands[++stackPointer] = new ArgumentsMap();
+                    operands[++stackPointer] = new NamedArguments();
                     break;
                 case PASSTHRU:
                     nameIndex = getShort(code, ip);
                     ip += Bytecode.OPND_SIZE_IN_BYTES;
                     name = self.getImpl().strings[nameIndex];
-                    attrs = (ArgumentsMap) operands[stackPointer];
+                    attrs = (NamedArguments) operands[stackPointer];
                     passthru(scope, name, attrs);
                     break;
                 case LIST:
@@ -338,8 +356,9 @@ abstract class AbstractInterpreter implements Interpreter
                     addToList(list, o);
                     break;
                 case TOSTR:
-                    // replace with string value; early eval
-                    operands[stackPointer] = toString(job, scope, operands[stackPointer]);
+                    // replace with string value; early eval. Evaluating may enlarge the operand stack, so assign after.
+                    o = toString(job, scope, operands[stackPointer]);
+                    operands[stackPointer] = o;
                     break;
                 case FIRST:
                     operands[stackPointer] = first(operands[stackPointer]);
@@ -364,7 +383,7 @@ abstract class AbstractInterpreter implements Interpreter
                     }
                     else
                     {
-                        errMgr.runTimeError(scope.toLocation(),
+                        errMgr.runTimeError(scope,
                             ErrorType.EXPECTING_STRING,
                             "trim",
                             o.getClass()
@@ -383,7 +402,7 @@ abstract class AbstractInterpreter implements Interpreter
                     }
                     else
                     {
-                        errMgr.runTimeError(scope.toLocation(),
+                        errMgr.runTimeError(scope,
                             ErrorType.EXPECTING_STRING,
                             "strlen",
                             o.getClass()
@@ -416,21 +435,7 @@ abstract class AbstractInterpreter implements Interpreter
                     out.popIndentation();
                     break;
                 case NEWLINE:
-                    try
-                    {
-                        if ((prevOpcode == null && !self.isAnonSubtemplate() && !self.getImpl().isRegion) ||
-                            prevOpcode == Instruction.NEWLINE ||
-                            prevOpcode == Instruction.INDENT ||
-                            currentLineCharacters > 0)
-                        {
-                            out.write(Misc.NEWLINE);
-                        }
-                        currentLineCharacters = 0;
-                    }
-                    catch (IOException ioe)
-                    {
-                        errMgr.ioError(scope.toLocation(), ErrorType.WRITE_IO_ERROR, ioe);
-                    }
+                    newline(out, scope, prevOpcode);
                     break;
                 case NOOP:
                     break;
@@ -454,6 +459,77 @@ abstract class AbstractInterpreter implements Interpreter
                     n += n1;
                     currentLineCharacters += n1;
                     break;
+                // superinstructions execute the instruction whose opcode they replaced, then the following one
+                case WRITE_LOCAL:
+                    valueIndex = getShort(code, ip);
+                    ip += Bytecode.OPND_SIZE_IN_BYTES;
+                    operands[++stackPointer] = loadLocal(self, valueIndex);
+                    startFusedInstruction(job, scope, ip++);
+                    opcode = Instruction.WRITE;
+                    o = operands[stackPointer--];
+                    n1 = writeObjectNoOptions(job, scope, o);
+                    n += n1;
+                    currentLineCharacters += n1;
+                    break;
+                case WRITE_ATTR:
+                    nameIndex = getShort(code, ip);
+                    ip += Bytecode.OPND_SIZE_IN_BYTES;
+                    operands[++stackPointer] = loadAttribute(scope, self.getImpl().strings[nameIndex]);
+                    startFusedInstruction(job, scope, ip++);
+                    opcode = Instruction.WRITE;
+                    o = operands[stackPointer--];
+                    n1 = writeObjectNoOptions(job, scope, o);
+                    n += n1;
+                    currentLineCharacters += n1;
+                    break;
+                case LOAD_LOCAL_PROP:
+                    valueIndex = getShort(code, ip);
+                    ip += Bytecode.OPND_SIZE_IN_BYTES;
+                    operands[++stackPointer] = loadLocal(self, valueIndex);
+                    startFusedInstruction(job, scope, ip++);
+                    opcode = Instruction.LOAD_PROP;
+                    nameIndex = getShort(code, ip);
+                    ip += Bytecode.OPND_SIZE_IN_BYTES;
+                    o = operands[stackPointer--];
+                    name = self.getImpl().strings[nameIndex];
+                    operands[++stackPointer] = getObjectProperty(job, scope, o, name);
+                    break;
+                case LOAD_ATTR_PROP:
+                    nameIndex = getShort(code, ip);
+                    ip += Bytecode.OPND_SIZE_IN_BYTES;
+                    operands[++stackPointer] = loadAttribute(scope, self.getImpl().strings[nameIndex]);
+                    startFusedInstruction(job, scope, ip++);
+                    opcode = Instruction.LOAD_PROP;
+                    nameIndex = getShort(code, ip);
+                    ip += Bytecode.OPND_SIZE_IN_BYTES;
+                    o = operands[stackPointer--];
+                    name = self.getImpl().strings[nameIndex];
+                    operands[++stackPointer] = getObjectProperty(job, scope, o, name);
+                    break;
+                case WRITE_PROP:
+                    nameIndex = getShort(code, ip);
+                    ip += Bytecode.OPND_SIZE_IN_BYTES;
+                    o = operands[stackPointer--];
+                    name = self.getImpl().strings[nameIndex];
+                    operands[++stackPointer] = getObjectProperty(job, scope, o, name);
+                    startFusedInstruction(job, scope, ip++);
+                    opcode = Instruction.WRITE;
+                    o = operands[stackPointer--];
+                    n1 = writeObjectNoOptions(job, scope, o);
+                    n += n1;
+                    currentLineCharacters += n1;
+                    break;
+                case WRITE_STR_NEWLINE:
+                    strIndex = getShort(code, ip);
+                    ip += Bytecode.OPND_SIZE_IN_BYTES;
+                    o = self.getImpl().strings[strIndex];
+                    n1 = writeText(job, scope, (String) o);
+                    n += n1;
+                    currentLineCharacters += n1;
+                    startFusedInstruction(job, scope, ip++);
+                    opcode = Instruction.NEWLINE;
+                    newline(out, scope, Instruction.WRITE_STR);
+                    break;
                 default:
                     String dump = self.getImpl()
                         .getDump();
@@ -469,6 +545,421 @@ abstract class AbstractInterpreter implements Interpreter
         return n;
     }
 
+    /**
+     * Executes the {@link RegisterCode} of the template. Its registers are the operand stack slots above those of the
+     * callers, and the stack pointer stays above them so that invoked templates do not overwrite them. It only moves
+     * down for helpers that push their result, e.g. {@link #map(InstanceScope, Object, ST)}.
+     * <p>
+     * Invoked templates may enlarge the operand stack, so every access goes through {@link #operands} and results are
+     * assigned after they are computed.</p>
+     */
+    private int execRegisterCode(Job job, InstanceScope scope)
+    {
+        final ST self = scope.st;
+        final CompiledST impl = self.getImpl();
+        RegisterCode registerCode = impl.getRegisterCode();
+        int[] code = registerCode.code;
+        Object[] constants = registerCode.constants;
+        String[] strings = impl.strings;
+        TemplateWriter out = job.getTemplateWriter();
+
+        int callerStackPointer = stackPointer;
+        int base = stackPointer + 1;
+        int frameTop = stackPointer + impl.maxStackDepth;
+        ensureOperandStackCapacity(frameTop + 1);
+        stackPointer = frameTop;
+
+        int n = 0; // how many char we write out
+        int n1;
+        int prevIp = -1; // the stack instruction executed last, see newline()
+        int dest;
+        int nargs;
+        Object o;
+        Object left;
+        Object right;
+        ST st;
+        NamedArguments attrs;
+        Object[] options;
+        int pc = 0;
+        try
+        {
+            while (pc < code.length)
+            {
+                int ip = code[pc + 1];
+                scope.ip = ip;
+                switch (code[pc])
+                {
+                    case RegisterCode.MOVE:
+                        o = getOperand(code[pc + 3], base, self, constants);
+                        operands[base + code[pc + 2]] = o;
+                        pc += 4;
+                        break;
+                    case RegisterCode.MARK:
+                        pc += 2;
+                        break;
+                    case RegisterCode.LOAD_ATTR:
+                        o = loadAttribute(scope, strings[code[pc + 3]]);
+                        operands[base + code[pc + 2]] = o;
+                        pc += 4;
+                        break;
+                    case RegisterCode.LOAD_PROP:
+                        o = getOperand(code[pc + 3], base, self, constants);
+                        o = getObjectProperty(job, scope, o, strings[code[pc + 4]]);
+                        operands[base + code[pc + 2]] = o;
+                        pc += 5;
+                        break;
+                    case RegisterCode.LOAD_PROP_IND:
+                        o = getOperand(code[pc + 3], base, self, constants);
+                        Object propName = getOperand(code[pc + 4], base, self, constants);
+                        o = getObjectProperty(job, scope, o, propName);
+                        operands[base + code[pc + 2]] = o;
+                        pc += 5;
+                        break;
+                    case RegisterCode.NEW:
+                        dest = base + code[pc + 2];
+                        nargs = code[pc + 4];
+                        // look up in original hierarchy not enclosing template (variable group)
+                        st = self.groupThatCreatedThisInstance.getEmbeddedInstanceOf(scope, strings[code[pc + 3]]);
+                        // the arguments are in the registers from dest on
+                        stackPointer = dest + nargs - 1;
+                        storeArgs(scope, nargs, st);
+                        stackPointer = frameTop;
+                        operands[dest] = st;
+                        pc += 5;
+                        break;
+                    case RegisterCode.NEW_IND:
+                        dest = base + code[pc + 2];
+                        nargs = code[pc + 3];
+                        st = self.groupThatCreatedThisInstance.getEmbeddedInstanceOf(scope, (String) operands[dest]);
+                        // the arguments follow the template name
+                        stackPointer = dest + nargs;
+                        storeArgs(scope, nargs, st);
+                        stackPointer = frameTop;
+                        operands[dest] = st;
+                        pc += 4;
+                        break;
+                    case RegisterCode.NEW_BOX_ARGS:
+                        attrs = (NamedArguments) getOperand(code[pc + 4], base, self, constants);
+                        st = self.groupThatCreatedThisInstance.getEmbeddedInstanceOf(scope, strings[code[pc + 3]]);
+                        storeArgs(scope, attrs, st);
+                        operands[base + code[pc + 2]] = st;
+                        pc += 5;
+                        break;
+                    case RegisterCode.SUPER_NEW:
+                        dest = base + code[pc + 2];
+                        nargs = code[pc + 4];
+                        // pops the arguments and pushes the new instance into dest
+                        stackPointer = dest + nargs - 1;
+                        super_new(scope, strings[code[pc + 3]], nargs);
+                        stackPointer = frameTop;
+                        pc += 5;
+                        break;
+                    case RegisterCode.SUPER_NEW_BOX_ARGS:
+                        attrs = (NamedArguments) getOperand(code[pc + 4], base, self, constants);
+                        stackPointer = base + code[pc + 2] - 1;
+                        super_new(scope, strings[code[pc + 3]], attrs);
+                        stackPointer = frameTop;
+                        pc += 5;
+                        break;
+                    case RegisterCode.STORE_OPTION:
+                        options = (Object[]) operands[base + code[pc + 2]];
+                        options[code[pc + 4]] = getOperand(code[pc + 3], base, self, constants);
+                        pc += 5;
+                        break;
+                    case RegisterCode.STORE_ARG:
+                        attrs = (NamedArguments) operands[base + code[pc + 2]];
+                        attrs.put(strings[code[pc + 4]], getOperand(code[pc + 3], base, self, constants));
+                        pc += 5;
+                        break;
+                    case RegisterCode.WRITE:
+                        o = getOperand(code[pc + 2], base, self, constants);
+                        n1 = writeObjectNoOptions(job, scope, o);
+                        n += n1;
+                        currentLineCharacters += n1;
+                        pc += 3;
+                        break;
+                    case RegisterCode.WRITE_OPT:
+                        o = getOperand(code[pc + 2], base, self, constants);
+                        options = (Object[]) getOperand(code[pc + 3], base, self, constants);
+                        n1 = writeObjectWithOptions(job, scope, o, options);
+                        n += n1;
+                        currentLineCharacters += n1;
+                        pc += 4;
+                        break;
+                    case RegisterCode.MAP:
+                        o = getOperand(code[pc + 3], base, self, constants);
+                        st = (ST) getOperand(code[pc + 4], base, self, constants);
+                        stackPointer = base + code[pc + 2] - 1;
+                        map(scope, o, st);
+                        stackPointer = frameTop;
+                        pc += 5;
+                        break;
+                    case RegisterCode.ROT_MAP:
+                        o = getOperand(code[pc + 3], base, self, constants);
+                        int nmaps = code[pc + 4];
+                        List<ST> templates = new ArrayList<>(nmaps);
+                        for (int i = 0; i < nmaps; i++)
+                        {
+                            templates.add((ST) getOperand(code[pc + 5 + i], base, self, constants));
+                        }
+                        stackPointer = base + code[pc + 2] - 1;
+                        rot_map(scope, o, templates);
+                        stackPointer = frameTop;
+                        pc += 5 + nmaps;
+                        break;
+                    case RegisterCode.ZIP_MAP:
+                        st = (ST) getOperand(code[pc + 3], base, self, constants);
+                        nmaps = code[pc + 4];
+                        List<Object> exprs = new ObjectList();
+                        for (int i = 0; i < nmaps; i++)
+                        {
+                            exprs.add(getOperand(code[pc + 5 + i], base, self, constants));
+                        }
+                        o = zip_map(scope, exprs, st);
+                        operands[base + code[pc + 2]] = o;
+                        pc += 5 + nmaps;
+                        break;
+                    case RegisterCode.BR:
+                        pc = code[pc + 2];
+                        break;
+                    case RegisterCode.BRF:
+                        o = getOperand(code[pc + 2], base, self, constants);
+                        pc = testAttributeTrue(o)
+                            ? pc + 4
+                            : code[pc + 3];
+                        break;
+                    case RegisterCode.OPTIONS:
+                        operands[base + code[pc + 2]] = new Object[Compiler.NUM_OPTIONS];
+                        pc += 3;
+                        break;
+                    case RegisterCode.ARGS:
+                        operands[base + code[pc + 2]] = new NamedArguments();
+                        pc += 3;
+                        break;
+                    case RegisterCode.PASSTHRU:
+                        attrs = (NamedArguments) operands[base + code[pc + 2]];
+                        passthru(scope, strings[code[pc + 3]], attrs);
+                        pc += 4;
+                        break;
+                    case RegisterCode.LIST:
+                        operands[base + code[pc + 2]] = new ObjectList();
+                        pc += 3;
+                        break;
+                    case RegisterCode.ADD:
+                        List<Object> list = (ObjectList) operands[base + code[pc + 2]];
+                        addToList(list, getOperand(code[pc + 3], base, self, constants));
+                        pc += 4;
+                        break;
+                    case RegisterCode.TOSTR:
+                        o = toString(job, scope, getOperand(code[pc + 3], base, self, constants));
+                        operands[base + code[pc + 2]] = o;
+                        pc += 4;
+                        break;
+                    case RegisterCode.FIRST:
+                        operands[base + code[pc + 2]] = first(getOperand(code[pc + 3], base, self, constants));
+                        pc += 4;
+                        break;
+                    case RegisterCode.LAST:
+                        operands[base + code[pc + 2]] = last(getOperand(code[pc + 3], base, self, constants));
+                        pc += 4;
+                        break;
+                    case RegisterCode.REST:
+                        operands[base + code[pc + 2]] = rest(getOperand(code[pc + 3], base, self, constants));
+                        pc += 4;
+                        break;
+                    case RegisterCode.TRUNC:
+                        operands[base + code[pc + 2]] = trunc(getOperand(code[pc + 3], base, self, constants));
+                        pc += 4;
+                        break;
+                    case RegisterCode.STRIP:
+                        operands[base + code[pc + 2]] = strip(getOperand(code[pc + 3], base, self, constants));
+                        pc += 4;
+                        break;
+                    case RegisterCode.TRIM:
+                        o = getOperand(code[pc + 3], base, self, constants);
+                        if (o.getClass() == String.class)
+                        {
+                            o = ((String) o).trim();
+                        }
+                        else
+                        {
+                            errMgr.runTimeError(scope,
+                                ErrorType.EXPECTING_STRING,
+                                "trim",
+                                o.getClass()
+                                    .getName());
+                        }
+                        operands[base + code[pc + 2]] = o;
+                        pc += 4;
+                        break;
+                    case RegisterCode.LENGTH:
+                        operands[base + code[pc + 2]] = length(getOperand(code[pc + 3], base, self, constants));
+                        pc += 4;
+                        break;
+                    case RegisterCode.STRLEN:
+                        o = getOperand(code[pc + 3], base, self, constants);
+                        if (o.getClass() == String.class)
+                        {
+                            o = ((String) o).length();
+                        }
+                        else
+                        {
+                            errMgr.runTimeError(scope,
+                                ErrorType.EXPECTING_STRING,
+                                "strlen",
+                                o.getClass()
+                                    .getName());
+                            o = 0;
+                        }
+                        operands[base + code[pc + 2]] = o;
+                        pc += 4;
+                        break;
+                    case RegisterCode.REVERSE:
+                        operands[base + code[pc + 2]] = reverse(getOperand(code[pc + 3], base, self, constants));
+                        pc += 4;
+                        break;
+                    case RegisterCode.NOT:
+                        o = getOperand(code[pc + 3], base, self, constants);
+                        operands[base + code[pc + 2]] = !testAttributeTrue(o);
+                        pc += 4;
+                        break;
+                    case RegisterCode.OR:
+                        left = getOperand(code[pc + 3], base, self, constants);
+                        right = getOperand(code[pc + 4], base, self, constants);
+                        operands[base + code[pc + 2]] = testAttributeTrue(left) || testAttributeTrue(right);
+                        pc += 5;
+                        break;
+                    case RegisterCode.AND:
+                        left = getOperand(code[pc + 3], base, self, constants);
+                        right = getOperand(code[pc + 4], base, self, constants);
+                        operands[base + code[pc + 2]] = testAttributeTrue(left) && testAttributeTrue(right);
+                        pc += 5;
+                        break;
+                    case RegisterCode.INDENT:
+                        indent(job, scope, code[pc + 2]);
+                        pc += 3;
+                        break;
+                    case RegisterCode.DEDENT:
+                        out.popIndentation();
+                        pc += 2;
+                        break;
+                    case RegisterCode.NEWLINE:
+                        newline(out,
+                            scope,
+                            prevIp < 0
+                                ? null
+                                : Bytecode.INSTRUCTIONS[impl.instrs[prevIp]]);
+                        pc += 2;
+                        break;
+                    case RegisterCode.WRITE_STR:
+                        n1 = writeText(job, scope, strings[code[pc + 2]]);
+                        n += n1;
+                        currentLineCharacters += n1;
+                        pc += 3;
+                        break;
+                    default:
+                        throw new CodeInconsistencyException("invalid register code of " + impl.name + " @ " + pc);
+                }
+                prevIp = ip;
+            }
+        }
+        finally
+        {
+            // also after an error, which the caller reports and then continues
+            stackPointer = callerStackPointer;
+        }
+        // only executed without listeners, so there is no EvalTemplateEvent to fire
+        return n;
+    }
+
+    private Object getOperand(int operand, int base, ST self, Object[] constants)
+    {
+        int index = operand >> RegisterCode.KIND_BITS;
+        switch (operand & RegisterCode.KIND_MASK)
+        {
+            case RegisterCode.REGISTER:
+                return operands[base + index];
+            case RegisterCode.LOCAL:
+                return loadLocal(self, index);
+            default:
+                return constants[index];
+        }
+    }
+
+    private void ensureOperandStackCapacity(int capacity)
+    {
+        if (capacity > operands.length)
+        {
+            operands = Arrays.copyOf(operands, Math.max(capacity, operands.length * 2));
+            operandsList = createOperandsList(operands);
+        }
+    }
+
+    @SuppressWarnings("Java9CollectionFactory")
+    private static List<Object> createOperandsList(Object[] operands)
+    {
+        return Collections.unmodifiableList(Arrays.asList(operands));
+    }
+
+    private Object loadAttribute(InstanceScope scope, String name)
+    {
+        try
+        {
+            Object o = getAttribute(scope, name);
+            if (o == ST.EMPTY_ATTR)
+            {
+                o = null;
+            }
+            return o;
+        }
+        catch (NoSuchAttributeException nsae)
+        {
+            errMgr.runTimeError(scope, ErrorType.NO_SUCH_ATTRIBUTE, name);
+            return null;
+        }
+    }
+
+    private static Object loadLocal(ST self, int valueIndex)
+    {
+        Object o = self.locals[valueIndex];
+        if (o == ST.EMPTY_ATTR)
+        {
+            o = null;
+        }
+        return o;
+    }
+
+    private void newline(TemplateWriter out, InstanceScope scope, Instruction prevOpcode)
+    {
+        ST self = scope.st;
+        try
+        {
+            if ((prevOpcode == null && !self.isAnonSubtemplate() && !self.getImpl().isRegion) ||
+                prevOpcode == Instruction.NEWLINE ||
+                prevOpcode == Instruction.INDENT ||
+                currentLineCharacters > 0)
+            {
+                out.write(Misc.NEWLINE);
+            }
+            currentLineCharacters = 0;
+            templateLines++;
+        }
+        catch (IOException ioe)
+        {
+            errMgr.ioError(scope.toLocation(), ErrorType.WRITE_IO_ERROR, ioe);
+        }
+    }
+
+    /**
+     * Continues a superinstruction with the instruction following the one it replaced, as if that instruction was
+     * dispatched on its own.
+     */
+    private void startFusedInstruction(Job job, InstanceScope scope, int ip)
+    {
+        trace(job, scope, ip);
+        scope.ip = ip;
+    }
+
     void load_str(ST self, int ip)
     {
         int strIndex = getShort(self.getImpl().instrs, ip);
@@ -483,7 +974,7 @@ abstract class AbstractInterpreter implements Interpreter
         CompiledST imported = self.getImpl().nativeGroup.lookupImportedTemplate(name);
         if (imported == null)
         {
-            errMgr.runTimeError(scope.toLocation(), ErrorType.NO_IMPORTED_TEMPLATE, name);
+            errMgr.runTimeError(scope, ErrorType.NO_IMPORTED_TEMPLATE, name);
             st = self.groupThatCreatedThisInstance.createStringTemplateInternally(new CompiledST());
         }
         else
@@ -497,14 +988,14 @@ abstract class AbstractInterpreter implements Interpreter
         operands[++stackPointer] = st;
     }
 
-    void super_new(InstanceScope scope, String name, Map<String, Object> attrs)
+    void super_new(InstanceScope scope, String name, NamedArguments attrs)
     {
         final ST self = scope.st;
         ST st = null;
         CompiledST imported = self.getImpl().nativeGroup.lookupImportedTemplate(name);
         if (imported == null)
         {
-            errMgr.runTimeError(scope.toLocation(), ErrorType.NO_IMPORTED_TEMPLATE, name);
+            errMgr.runTimeError(scope, ErrorType.NO_IMPORTED_TEMPLATE, name);
             st = self.groupThatCreatedThisInstance.createStringTemplateInternally(new CompiledST());
         }
         else
@@ -518,7 +1009,7 @@ abstract class AbstractInterpreter implements Interpreter
         operands[++stackPointer] = st;
     }
 
-    void passthru(InstanceScope scope, String templateName, Map<String, Object> attrs)
+    void passthru(InstanceScope scope, String templateName, NamedArguments attrs)
     {
         CompiledST c = group.lookupTemplate(templateName);
         if (c == null)
@@ -555,7 +1046,7 @@ abstract class AbstractInterpreter implements Interpreter
                     // if no default value
                     if (arg.defaultValueToken == null)
                     {
-                        errMgr.runTimeError(scope.toLocation(), ErrorType.NO_SUCH_ATTRIBUTE_PASS_THROUGH, arg.name);
+                        errMgr.runTimeError(scope, ErrorType.NO_SUCH_ATTRIBUTE_PASS_THROUGH, arg.name);
                         attrs.put(arg.name, null);
                     }
                 }
@@ -563,17 +1054,34 @@ abstract class AbstractInterpreter implements Interpreter
         }
     }
 
-    void storeArgs(InstanceScope scope, Map<String, Object> attrs, ST st)
+    void storeArgs(InstanceScope scope, NamedArguments attrs, ST st)
     {
+        if (attrs != null)
+        {
+            int[] slots = scope.st.getImpl()
+                .getArgumentResolution()
+                .getSlots(scope.ip, st.getImpl(), attrs);
+            if (slots != null)
+            {
+                for (int i = 0; i < slots.length; i++)
+                {
+                    st.locals[slots[i]] = attrs.getValue(i);
+                }
+                return;
+            }
+        }
+
         boolean noSuchAttributeReported = false;
         if (attrs != null)
         {
-            for (Map.Entry<String, Object> argument : attrs.entrySet())
+            for (int i = 0; i < attrs.size(); i++)
             {
+                String argumentName = attrs.getName(i);
+                Object argumentValue = attrs.getValue(i);
                 if (!st.getImpl().hasFormalArgs)
                 {
                     if (st.getImpl().formalArguments == null ||
-                        !st.getImpl().formalArguments.containsKey(argument.getKey()))
+                        !st.getImpl().formalArguments.containsKey(argumentName))
                     {
                         try
                         {
@@ -581,31 +1089,31 @@ abstract class AbstractInterpreter implements Interpreter
                             // formalArguments map during interpretation.
                             st.setImpl(st.getImpl()
                                 .clone());
-                            st.add(argument.getKey(), argument.getValue());
+                            st.add(argumentName, argumentValue);
                         }
                         catch (CloneNotSupportedException ex)
                         {
                             noSuchAttributeReported = true;
-                            errMgr.runTimeError(scope.toLocation(), ErrorType.NO_SUCH_ATTRIBUTE, argument.getKey());
+                            errMgr.runTimeError(scope, ErrorType.NO_SUCH_ATTRIBUTE, argumentName);
                         }
                     }
                     else
                     {
-                        st.rawSetAttribute(argument.getKey(), argument.getValue());
+                        st.rawSetAttribute(argumentName, argumentValue);
                     }
                 }
                 else
                 {
                     // don't let it throw an exception in rawSetAttribute
                     if (st.getImpl().formalArguments == null ||
-                        !st.getImpl().formalArguments.containsKey(argument.getKey()))
+                        !st.getImpl().formalArguments.containsKey(argumentName))
                     {
                         noSuchAttributeReported = true;
-                        errMgr.runTimeError(scope.toLocation(), ErrorType.NO_SUCH_ATTRIBUTE, argument.getKey());
+                        errMgr.runTimeError(scope, ErrorType.NO_SUCH_ATTRIBUTE, argumentName);
                         continue;
                     }
 
-                    st.rawSetAttribute(argument.getKey(), argument.getValue());
+                    st.rawSetAttribute(argumentName, argumentValue);
                 }
             }
         }
@@ -654,7 +1162,7 @@ abstract class AbstractInterpreter implements Interpreter
                     ? attrs.size()
                     : 0;
                 int nformalArgs = formalArguments.size();
-                errMgr.runTimeError(scope.toLocation(),
+                errMgr.runTimeError(scope,
                     ErrorType.ARGUMENT_COUNT_MISMATCH,
                     nargs,
                     st.getImpl().name,
@@ -684,7 +1192,7 @@ abstract class AbstractInterpreter implements Interpreter
 
         if (nargs < (nformalArgs - st.getImpl().numberOfArgsWithDefaultValues) || nargs > nformalArgs)
         {
-            errMgr.runTimeError(scope.toLocation(),
+            errMgr.runTimeError(scope,
                 ErrorType.ARGUMENT_COUNT_MISMATCH,
                 nargs,
                 st.getImpl().name,
@@ -696,14 +1204,8 @@ abstract class AbstractInterpreter implements Interpreter
             return;
         }
 
-        Iterator<String> argNames = st.getImpl().formalArguments.keySet()
-            .iterator();
-        for (int i = 0; i < numToStore; i++)
-        {
-            Object o = operands[firstArg + i];    // value to store
-            String argName = argNames.next();
-            st.rawSetAttribute(argName, o);
-        }
+        // formal arguments are numbered in the order of their definition, so the values go straight into the locals
+        System.arraycopy(operands, firstArg, st.locals, 0, numToStore);
     }
 
     protected void indent(Job job, InstanceScope scope, int strIndex)
@@ -754,7 +1256,12 @@ abstract class AbstractInterpreter implements Interpreter
         int start = out.index(); // track char we're about to write
         // precompute all option values (render all the way to strings)
         String[] optionStrings = null;
-        if (options != null)
+        if (options instanceof String[])
+        {
+            // constant options, see CompilationState.foldConstantOptions()
+            optionStrings = (String[]) options;
+        }
+        else if (options != null)
         {
             optionStrings = new String[options.length];
             for (int i = 0; i < Compiler.NUM_OPTIONS; i++)
@@ -824,7 +1331,7 @@ abstract class AbstractInterpreter implements Interpreter
                     errMgr.ioError(scope.toLocation(), ErrorType.WRITE_IO_ERROR, ioe);
                 }
             }
-            n = exec(job, scope);
+            n = execCacheable(job, scope);
         }
         else
         {
@@ -848,6 +1355,71 @@ abstract class AbstractInterpreter implements Interpreter
         return n;
     }
 
+    /**
+     * Execute the template of the given scope, or replay its output from the {@link FragmentCache} of the group if the
+     * user marked it as cacheable.
+     */
+    private int execCacheable(Job job, InstanceScope scope)
+    {
+        FragmentCache fragmentCache = group.fragmentCache;
+        if (fragmentCache == null || job.getEventDistributor()
+            .hasListeners())
+        {
+            return exec(job, scope);
+        }
+
+        Object key = fragmentCache.createKey(scope, locale, currentLineCharacters > 0, errMgr);
+        if (key == null)
+        {
+            return exec(job, scope);
+        }
+
+        Fragment fragment = fragmentCache.get(key);
+        if (group.metrics != null)
+        {
+            if (fragment != null)
+            {
+                group.metrics.recordFragmentCacheHit();
+            }
+            else
+            {
+                group.metrics.recordFragmentCacheMiss();
+            }
+        }
+        if (fragment != null)
+        {
+            try
+            {
+                fragment.replay(job.getTemplateWriter());
+            }
+            catch (IOException ioe)
+            {
+                errMgr.ioError(scope.toLocation(), ErrorType.WRITE_IO_ERROR, ioe);
+            }
+            if (fragment.isLineReset())
+            {
+                currentLineCharacters = fragment.getLineCharacters();
+                templateLines++;
+            }
+            else
+            {
+                currentLineCharacters += fragment.getLineCharacters();
+            }
+            return fragment.getCharacterCount();
+        }
+
+        Fragment.Recorder recorder = new Fragment.Recorder(job.getTemplateWriter());
+        int linesBefore = templateLines;
+        int lineCharactersBefore = currentLineCharacters;
+        int n = exec(job.withTemplateWriter(recorder), scope);
+        boolean lineReset = templateLines != linesBefore;
+        int lineCharacters = lineReset
+            ? currentLineCharacters
+            : currentLineCharacters - lineCharactersBefore;
+        fragmentCache.put(key, recorder.toFragment(n, lineReset, lineCharacters));
+        return n;
+    }
+
     protected int writeIterator(Job job, InstanceScope scope, Object o, String[] options) throws IOException
     {
         if (o == null)
@@ -888,37 +1460,53 @@ abstract class AbstractInterpreter implements Interpreter
     protected int writePOJO(Job job, InstanceScope scope, Object o, String[] options) throws IOException
     {
         String formatString = null;
+        String wrap = null;
         if (options != null)
         {
             formatString = options[Option.FORMAT.ordinal()];
+            wrap = options[Option.WRAP.ordinal()];
         }
-        String v = renderObject(scope, formatString, o, o.getClass());
-        int n;
-        if (options != null && options[Option.WRAP.ordinal()] != null)
-        {
-            n = job.getTemplateWriter()
-                .write(v, options[Option.WRAP.ordinal()]);
-        }
-        else
-        {
-            n = job.getTemplateWriter()
-                .write(v);
-        }
-        return n;
+        return writeRendered(job, scope, formatString, wrap, o, o.getClass());
     }
 
-    private <T> String renderObject(InstanceScope scope, String formatString, Object o, Class<T> attributeType)
+    private <T> int writeRendered(
+        Job job, InstanceScope scope, String formatString, String wrap, Object o, Class<T> attributeType)
+        throws IOException
     {
         // ask the native group defining the surrounding template for the renderer
-        AttributeRenderer<? super T> r = scope.st.getImpl().nativeGroup.getAttributeRenderer(attributeType);
-        if (r != null)
+        AttributeRenderer<? super T> r = rendererCache.get(scope.st.getImpl().nativeGroup, attributeType);
+        TemplateWriter out = job.getTemplateWriter();
+
+        // wrapping needs the whole string, everything else can be written without creating one
+        if (wrap == null)
         {
-            return r.render(attributeType.cast(o), formatString, locale);
+            if (r instanceof StreamingAttributeRenderer)
+            {
+                @SuppressWarnings("unchecked")
+                StreamingAttributeRenderer<? super T> streamingRenderer = (StreamingAttributeRenderer<? super T>) r;
+                renderBuffer.clear();
+                streamingRenderer.render(attributeType.cast(o), formatString, locale, renderBuffer);
+                return renderBuffer.writeTo(out);
+            }
+
+            if (r == null)
+            {
+                renderBuffer.clear();
+                if (renderBuffer.appendValue(o))
+                {
+                    return renderBuffer.writeTo(out);
+                }
+            }
         }
-        else
+
+        String v = r != null
+            ? r.render(attributeType.cast(o), formatString, locale)
+            : o.toString();
+        if (wrap != null)
         {
-            return o.toString();
+            return out.write(v, wrap);
         }
+        return out.write(v);
     }
 
     protected int getExprStartChar(InstanceScope scope)
@@ -1041,7 +1629,7 @@ abstract class AbstractInterpreter implements Interpreter
         Map<String, FormalArgument> formalArguments = code.formalArguments;
         if (!code.hasFormalArgs || formalArguments == null)
         {
-            errMgr.runTimeError(scope.toLocation(), ErrorType.MISSING_FORMAL_ARGUMENTS);
+            errMgr.runTimeError(scope, ErrorType.MISSING_FORMAL_ARGUMENTS);
             return null;
         }
 
@@ -1055,7 +1643,7 @@ abstract class AbstractInterpreter implements Interpreter
         }
         if (nformalArgs != numExprs)
         {
-            errMgr.runTimeError(scope.toLocation(), ErrorType.MAP_ARGUMENT_COUNT_MISMATCH, numExprs, nformalArgs);
+            errMgr.runTimeError(scope, ErrorType.MAP_ARGUMENT_COUNT_MISMATCH, numExprs, nformalArgs);
             // TODO just fill first n
             // truncate arg list to match smaller size
             int shorterSize = Math.min(formalArgumentNames.length, numExprs);
@@ -1112,7 +1700,7 @@ abstract class AbstractInterpreter implements Interpreter
 
         if (code.formalArguments == null)
         {
-            errMgr.runTimeError(scope.toLocation(), ErrorType.ARGUMENT_COUNT_MISMATCH, 1, code.name, 0);
+            errMgr.runTimeError(scope, ErrorType.ARGUMENT_COUNT_MISMATCH, 1, code.name, 0);
             return;
         }
 
@@ -1459,11 +2047,11 @@ abstract class AbstractInterpreter implements Interpreter
         }
         if (a instanceof Collection)
         {
-            return ((Collection<?>) a).size() > 0;
+            return !((Collection<?>) a).isEmpty();
         }
         if (a instanceof Map)
         {
-            return ((Map<?, ?>) a).size() > 0;
+            return !((Map<?, ?>) a).isEmpty();
         }
         if (a instanceof Iterable)
         {
@@ -1481,18 +2069,22 @@ abstract class AbstractInterpreter implements Interpreter
     {
         if (o == null)
         {
-            errMgr.runTimeError(scope.toLocation(), ErrorType.NO_SUCH_PROPERTY, "null." + property);
+            errMgr.runTimeError(scope, ErrorType.NO_SUCH_PROPERTY, "null." + property);
             return null;
         }
 
         try
         {
+            if (group.metrics != null)
+            {
+                group.metrics.recordModelAdaptorLookup();
+            }
             ModelAdaptor adap = scope.st.groupThatCreatedThisInstance.getModelAdaptor(o.getClass());
             return adap.getProperty(o, property, toString(job, scope, property));
         }
         catch (NoSuchPropertyException e)
         {
-            errMgr.runTimeError(scope.toLocation(),
+            errMgr.runTimeError(scope,
                 ErrorType.NO_SUCH_PROPERTY,
                 e,
                 o.getClass()
@@ -0,0 +1,98 @@
+package org.puretemplate;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.puretemplate.diagnostics.Instruction;
+
+/**
+ * Remembers, for each call with named arguments in the code of a template, which locals of the invoked template the
+ * arguments go to. Resolving a call checks each name against the formal arguments of the invoked template and makes
+ * sure that all arguments without default values are passed. Later calls with the same argument names to the same
+ * template store the values right into the locals.
+ * <p>
+ * An entry is only used for the {@link CompiledST} it was resolved against. When the invoked template is redefined,
+ * e.g. by {@link STGroup#rawDefineTemplate}, or a call resolves to another template, the entry no longer matches and
+ * the call is resolved again. Calls whose arguments do not match the invoked template are not cached, so that the
+ * interpreter reports their errors every time.</p>
+ * <p>
+ * This is kept apart from the code, which may be shared with other templates. Entries are immutable, so concurrent
+ * renderings at worst resolve a call more than once.</p>
+ */
+@ThreadSafe
+final class ArgumentResolution
+{
+    private static final class Entry
+    {
+        private final CompiledST callee;
+        private final String[] names;
+        private final int[] slots;
+
+        Entry(CompiledST callee, String[] names, int[] slots)
+        {
+            this.callee = callee;
+            this.names = names;
+            this.slots = slots;
+        }
+    }
+
+    /**
+     * Indexed by the address of the {@link Instruction#NEW_BOX_ARGS} or {@link Instruction#SUPER_NEW_BOX_ARGS}
+     * instruction.
+     */
+    private final Entry[] entries;
+
+    ArgumentResolution(int codeSize)
+    {
+        entries = new Entry[codeSize];
+    }
+
+    /**
+     * @return the indexes of the locals of {@code callee} for the given arguments, in the order of the arguments, or
+     * {@code null} if the arguments do not match the formal arguments of {@code callee}
+     */
+    int[] getSlots(int address, CompiledST callee, NamedArguments arguments)
+    {
+        Entry entry = entries[address];
+        if (entry != null && entry.callee == callee && arguments.hasNames(entry.names))
+        {
+            return entry.slots;
+        }
+
+        int[] slots = resolve(callee, arguments);
+        if (slots != null)
+        {
+            entries[address] = new Entry(callee, arguments.getNames(), slots);
+        }
+        return slots;
+    }
+
+    private static int[] resolve(CompiledST callee, NamedArguments arguments)
+    {
+        if (!callee.hasFormalArgs || callee.formalArguments == null)
+        {
+            return null;
+        }
+
+        int[] slots = new int[arguments.size()];
+        for (int i = 0; i < slots.length; i++)
+        {
+            FormalArgument formalArgument = callee.formalArguments.get(arguments.getName(i));
+            if (formalArgument == null)
+            {
+                return null;
+            }
+            slots[i] = formalArgument.index;
+        }
+
+        for (FormalArgument formalArgument : callee.formalArguments.values())
+        {
+            if (formalArgument.defaultValueToken == null &&
+                formalArgument.defaultValue == null &&
+                !arguments.containsKey(formalArgument.name))
+            {
+                return null;
+            }
+        }
+        return slots;
+    }
+}
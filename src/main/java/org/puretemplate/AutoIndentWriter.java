@@ -2,8 +2,7 @@ package org.puretemplate;
 
 import java.io.IOException;
 import java.io.Writer;
-import java.util.ArrayDeque;
-import java.util.Deque;
+import java.nio.CharBuffer;
 
 /**
  * Essentially a char filter that knows how to auto-indent output by maintaining a stack of indent levels.
@@ -23,15 +22,9 @@ import java.util.Deque;
 class AutoIndentWriter implements TemplateWriter
 {
     /**
-     * Stack of indents. Use {@link Deque} to rule out accidental misuse (e.g. indexed access).
+     * Stacks of indents and anchors.
      */
-    private final Deque<String> indents = new ArrayDeque<>();
-
-    /**
-     * Stack of integer anchors (char positions in line); avoid {@link Integer} creation overhead.
-     */
-    private int[] anchors = new int[10];
-    private int anchorIndex = -1;
+    private final Indentation indentation = new Indentation();
 
     /**
      * {@code \n} or {@code \r\n}?
@@ -81,32 +74,25 @@ class AutoIndentWriter implements TemplateWriter
     @Override
     public void pushIndentation(String indent)
     {
-        indents.addLast(indent);
+        indentation.push(indent);
     }
 
     @Override
     public String popIndentation()
     {
-        return indents.removeLast();
+        return indentation.pop();
     }
 
     @Override
     public void pushAnchorPoint()
     {
-        if ((anchorIndex + 1) >= anchors.length)
-        {
-            int[] a = new int[anchors.length * 2];
-            System.arraycopy(anchors, 0, a, 0, anchors.length - 1);
-            anchors = a;
-        }
-        anchorIndex++;
-        anchors[anchorIndex] = charPosition;
+        indentation.pushAnchorPoint(charPosition);
     }
 
     @Override
     public void popAnchorPoint()
     {
-        anchorIndex--;
+        indentation.popAnchorPoint();
     }
 
     @Override
@@ -126,11 +112,21 @@ class AutoIndentWriter implements TemplateWriter
      */
     @Override
     public int write(String str) throws IOException
+    {
+        return write(str, 0, str.length());
+    }
+
+    @Override
+    public int write(char[] chars, int offset, int length) throws IOException
+    {
+        return write(CharBuffer.wrap(chars, offset, length), 0, length);
+    }
+
+    private int write(CharSequence str, int start, int end) throws IOException
     {
         int n = 0;
         int nll = newline.length();
-        int sl = str.length();
-        for (int i = 0; i < sl; i++)
+        for (int i = start; i < end; i++)
         {
             char c = str.charAt(i);
             // found \n or \r\n newline?
@@ -222,28 +218,12 @@ class AutoIndentWriter implements TemplateWriter
         return n;
     }
 
+    /**
+     * Writes the indentation with a single call, followed by anchor padding if needed.
+     */
     public int indent() throws IOException
     {
-        int n = 0;
-        for (String ind : indents)
-        {
-            n += ind.length();
-            out.write(ind);
-        }
-
-        // If current anchor is beyond current indent width, indent to anchor
-        // *after* doing indents (might tabs in there or whatever)
-        int indentWidth = n;
-        if (anchorIndex >= 0 && anchors[anchorIndex] > indentWidth)
-        {
-            int remainder = anchors[anchorIndex] - indentWidth;
-            for (int i = 1; i <= remainder; i++)
-            {
-                out.write(' ');
-            }
-            n += remainder;
-        }
-
+        int n = indentation.writeTo(out);
         charPosition += n;
         charIndex += n;
         return n;
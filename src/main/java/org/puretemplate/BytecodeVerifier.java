@@ -0,0 +1,212 @@
+package org.puretemplate;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+
+import lombok.experimental.UtilityClass;
+
+import org.puretemplate.diagnostics.Instruction;
+
+import com.github.mizool.core.exception.CodeInconsistencyException;
+
+/**
+ * Checks the code of a compiled template and computes the maximum depth of its operand stack. The stack depth is
+ * followed along all paths through the code, including both branches of {@link Instruction#BRF}. The code is rejected
+ * if an instruction pops more values than there are on the stack, if two paths reach an instruction with different
+ * stack depths, if a branch leaves the code or if the stack is not empty at the end.
+ * <p>
+ * Malformed code can only result from a bug in the compiler, so this fails with an exception instead of reporting a
+ * template error.</p>
+ */
+@UtilityClass
+class BytecodeVerifier
+{
+    static final int NOT_VISITED = -1;
+
+    /**
+     * @return the maximum number of operands the code of the template pushes onto the stack
+     *
+     * @throws CodeInconsistencyException if the code is malformed
+     */
+    int getMaxStackDepth(CompiledST impl)
+    {
+        int maxDepth = 0;
+        for (int depth : getStackDepths(impl))
+        {
+            maxDepth = Math.max(maxDepth, depth);
+        }
+        return maxDepth;
+    }
+
+    /**
+     * @return the stack depth before each instruction and at the end of the code, {@link #NOT_VISITED} for operand
+     * bytes and for instructions that cannot be reached
+     *
+     * @throws CodeInconsistencyException if the code is malformed
+     */
+    int[] getStackDepths(CompiledST impl)
+    {
+        int[] depthAt = new int[impl.codeSize + 1];
+        Arrays.fill(depthAt, NOT_VISITED);
+
+        Deque<Integer> pending = new ArrayDeque<>();
+        depthAt[0] = 0;
+        pending.push(0);
+        while (!pending.isEmpty())
+        {
+            int ip = pending.pop();
+            int depth = depthAt[ip];
+            while (ip < impl.codeSize)
+            {
+                Instruction instruction = getInstruction(impl, ip);
+                int pops = getPops(impl, instruction, ip);
+                if (pops > depth)
+                {
+                    throw error(impl, ip, "stack underflow executing " + instruction.formalName);
+                }
+                depth += getPushes(instruction) - pops;
+
+                int next = ip + 1 + instruction.operandTypes.size() * Bytecode.OPND_SIZE_IN_BYTES;
+                if (instruction == Instruction.BR || instruction == Instruction.BRF)
+                {
+                    int target = Misc.getShort(impl.instrs, ip + 1);
+                    if (target < 0 || target > impl.codeSize)
+                    {
+                        throw error(impl, ip, "branch target out of range: " + target);
+                    }
+                    if (merge(impl, depthAt, target, depth))
+                    {
+                        pending.push(target);
+                    }
+                    if (instruction == Instruction.BR)
+                    {
+                        break;
+                    }
+                }
+                if (next > impl.codeSize)
+                {
+                    throw error(impl, ip, "truncated " + instruction.formalName);
+                }
+                if (!merge(impl, depthAt, next, depth))
+                {
+                    break;
+                }
+                ip = next;
+            }
+        }
+
+        if (depthAt[impl.codeSize] > 0)
+        {
+            throw error(impl, impl.codeSize, depthAt[impl.codeSize] + " operand(s) left on the stack");
+        }
+        return depthAt;
+    }
+
+    /**
+     * Records the stack depth on reaching the given address.
+     *
+     * @return {@code true} if the address was not reached before
+     */
+    private boolean merge(CompiledST impl, int[] depthAt, int ip, int depth)
+    {
+        if (depthAt[ip] == NOT_VISITED)
+        {
+            depthAt[ip] = depth;
+            return true;
+        }
+        if (depthAt[ip] != depth)
+        {
+            throw error(impl, ip, "stack depth " + depth + " does not match " + depthAt[ip] + " of another path");
+        }
+        return false;
+    }
+
+    /**
+     * Superinstructions are verified as the instruction they replaced, followed by the instruction they also execute.
+     */
+    private Instruction getInstruction(CompiledST impl, int ip)
+    {
+        Instruction instruction = Bytecode.INSTRUCTIONS[impl.instrs[ip]];
+        if (instruction == null)
+        {
+            throw error(impl, ip, "no such instruction " + impl.instrs[ip]);
+        }
+        return instruction.expansion != null
+            ? instruction.expansion
+            : instruction;
+    }
+
+    private int getPops(CompiledST impl, Instruction instruction, int ip)
+    {
+        switch (instruction)
+        {
+            case NEW:
+            case SUPER_NEW:
+                return Misc.getShort(impl.instrs, ip + 1 + Bytecode.OPND_SIZE_IN_BYTES);
+            case NEW_IND:
+                // the arguments and the template name
+                return Misc.getShort(impl.instrs, ip + 1) + 1;
+            case ROT_MAP:
+            case ZIP_MAP:
+                // the templates and the attribute, or the attributes and the template
+                return Misc.getShort(impl.instrs, ip + 1) + 1;
+            case LOAD_PROP:
+            case NEW_BOX_ARGS:
+            case SUPER_NEW_BOX_ARGS:
+            case PASSTHRU:
+            case TOSTR:
+            case FIRST:
+            case LAST:
+            case REST:
+            case TRUNC:
+            case STRIP:
+            case TRIM:
+            case LENGTH:
+            case STRLEN:
+            case REVERSE:
+            case NOT:
+            case WRITE:
+            case BRF:
+            case POP:
+                return 1;
+            case LOAD_PROP_IND:
+            case STORE_OPTION:
+            case STORE_ARG:
+            case WRITE_OPT:
+            case MAP:
+            case ADD:
+            case OR:
+            case AND:
+                return 2;
+            default:
+                return 0;
+        }
+    }
+
+    private int getPushes(Instruction instruction)
+    {
+        switch (instruction)
+        {
+            case WRITE:
+            case WRITE_OPT:
+            case WRITE_STR:
+            case BR:
+            case BRF:
+            case POP:
+            case INDENT:
+            case DEDENT:
+            case NEWLINE:
+            case NOOP:
+                return 0;
+            default:
+                // every other instruction leaves exactly one value, e.g. the options array or list it added to
+                return 1;
+        }
+    }
+
+    private CodeInconsistencyException error(CompiledST impl, int ip, String message)
+    {
+        return new CodeInconsistencyException("invalid bytecode of " + impl.name + " @ " + ip + ": " + message);
+    }
+}
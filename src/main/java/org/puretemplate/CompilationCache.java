@@ -0,0 +1,212 @@
+package org.puretemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import lombok.Value;
+
+import org.antlr.runtime.Token;
+import org.apiguardian.api.API;
+import org.puretemplate.diagnostics.CompilationCacheStatistics;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+
+/**
+ * Process-wide cache of compiled template code. Identical template text is often compiled many times, e.g. library
+ * groups imported by several groups or standalone templates loaded repeatedly. When a template is compiled with the
+ * same text, delimiters and formal arguments as a template that is still in use, the compiler reuses its code instead
+ * of compiling it again. The name of the template does not matter, so identical templates of different names share
+ * their code, too.
+ * <p>
+ * Entries are referenced weakly, i.e. they are removed once no template uses their code anymore, and the cache holds
+ * at most {@value #MAXIMUM_SIZE} entries. Templates whose compilation reported errors are not cached. Neither are
+ * templates that define anonymous subtemplates like {@code <names:{n | <n>}>} or regions, or that refer to regions via
+ * {@code <@super.r()>}, as their code depends on their name and on the other templates compiled along with them. Note
+ * that this excludes many templates of typical library groups, which often map anonymous subtemplates over lists.</p>
+ * <p>
+ * Only the code is shared. The tokens and parse tree of a template taken from the cache are not available.</p>
+ * <p>
+ * The cache is enabled by default. Disabling it does not affect templates that were already compiled.</p>
+ */
+@API(status = API.Status.EXPERIMENTAL)
+@ThreadSafe
+public final class CompilationCache
+{
+    static final int MAXIMUM_SIZE = 10_000;
+
+    /**
+     * Everything that influences the code of a template without subtemplates and region references. As the cache only
+     * lives within one process, the compiler version is the same for all entries.
+     */
+    @Value
+    static class Key
+    {
+        String template;
+        List<String> argumentNames;
+        char delimiterStartChar;
+        char delimiterStopChar;
+        boolean ignoringNewlines;
+    }
+
+    /**
+     * The parts of a compiled template that only depend on its {@link Key}. They are shared by all templates created
+     * from the entry and must not be modified. The tokens and parse tree are not kept, as the token stream references
+     * the lexer and the error manager of the group that compiled the template first.
+     */
+    static final class Code
+    {
+        private final byte[] instrs;
+        private final int codeSize;
+        private final int maxStackDepth;
+        private final String[] strings;
+        private final String[][] optionSets;
+        private final Interval[] sourceMap;
+        private final boolean hasLayoutOptions;
+
+        Code(CompiledST impl)
+        {
+            instrs = impl.instrs;
+            codeSize = impl.codeSize;
+            maxStackDepth = impl.maxStackDepth;
+            strings = impl.strings;
+            optionSets = impl.optionSets;
+            sourceMap = impl.sourceMap;
+            hasLayoutOptions = impl.hasLayoutOptions;
+        }
+
+        CompiledST newTemplate(String name, List<FormalArgument> args, String template)
+        {
+            CompiledST impl = new CompiledST();
+            impl.name = name;
+            impl.prefix = Misc.getPrefix(name);
+            impl.defineFormalArgs(args);
+            impl.template = template;
+            impl.instrs = instrs;
+            impl.codeSize = codeSize;
+            impl.maxStackDepth = maxStackDepth;
+            impl.strings = strings;
+            impl.optionSets = optionSets;
+            impl.sourceMap = sourceMap;
+            impl.hasLayoutOptions = hasLayoutOptions;
+            impl.cachedCode = this;
+            return impl;
+        }
+    }
+
+    private static final Cache<Key, Code> CACHE = CacheBuilder.newBuilder()
+        .maximumSize(MAXIMUM_SIZE)
+        .weakValues()
+        .recordStats()
+        .build();
+
+    private static volatile boolean enabled = true;
+
+    private CompilationCache()
+    {
+    }
+
+    /**
+     * Enables or disables the cache for all groups and templates compiled afterwards. Disabling the cache also removes
+     * all entries.
+     */
+    public static void setEnabled(boolean enabled)
+    {
+        CompilationCache.enabled = enabled;
+        if (!enabled)
+        {
+            CACHE.invalidateAll();
+        }
+    }
+
+    public static boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    public static CompilationCacheStatistics getStatistics()
+    {
+        CacheStats stats = CACHE.stats();
+        return CompilationCacheStatisticsImpl.builder()
+            .hitCount(stats.hitCount())
+            .missCount(stats.missCount())
+            .evictionCount(stats.evictionCount())
+            .size(CACHE.size())
+            .build();
+    }
+
+    /**
+     * @return the key for the given compilation, or {@code null} if the cache is disabled
+     */
+    static Key keyFor(STGroup group, List<FormalArgument> args, String template, Token templateToken)
+    {
+        if (!enabled)
+        {
+            return null;
+        }
+
+        List<String> argumentNames = null;
+        if (args != null)
+        {
+            argumentNames = new ArrayList<>(args.size());
+            for (FormalArgument arg : args)
+            {
+                argumentNames.add(arg.name);
+            }
+        }
+        boolean ignoringNewlines = templateToken != null && templateToken.getType() == GroupParser.BIGSTRING_NO_NL;
+        return new Key(template,
+            argumentNames,
+            group.delimiterStartChar,
+            group.delimiterStopChar,
+            ignoringNewlines);
+    }
+
+    /**
+     * @return a new template using the cached code, or {@code null} if there is no entry for the key
+     */
+    static CompiledST get(Key key, String name, List<FormalArgument> args)
+    {
+        Code code = CACHE.getIfPresent(key);
+        if (code == null)
+        {
+            return null;
+        }
+        return code.newTemplate(name, args, key.getTemplate());
+    }
+
+    /**
+     * Caches the code of a template compiled without errors, unless it defines subtemplates or regions or refers to its
+     * regions.
+     */
+    static void put(Key key, CompiledST impl)
+    {
+        if (impl.hasImplicitlyDefinedTemplates() || refersToOwnRegions(impl))
+        {
+            return;
+        }
+
+        Code code = new Code(impl);
+        impl.cachedCode = code;
+        CACHE.put(key, code);
+    }
+
+    /**
+     * Checks for names of regions of the template itself, e.g. of {@code <@super.r()>}. They contain the name of the
+     * template, see {@link STGroup#getMangledRegionName(String, String)}.
+     */
+    private static boolean refersToOwnRegions(CompiledST impl)
+    {
+        if (impl.name == null || impl.name.isEmpty() || impl.strings == null)
+        {
+            return false;
+        }
+        String regionPrefix = STGroup.getMangledRegionName(impl.name, "");
+        return Arrays.stream(impl.strings)
+            .anyMatch(s -> s != null && s.startsWith(regionPrefix));
+    }
+}
@@ -0,0 +1,16 @@
+package org.puretemplate;
+
+import lombok.Builder;
+import lombok.Value;
+
+import org.puretemplate.diagnostics.CompilationCacheStatistics;
+
+@Value
+@Builder
+class CompilationCacheStatisticsImpl implements CompilationCacheStatistics
+{
+    long hitCount;
+    long missCount;
+    long evictionCount;
+    long size;
+}
@@ -1,5 +1,8 @@
 package org.puretemplate;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.antlr.runtime.CommonToken;
 import org.antlr.runtime.Token;
 import org.antlr.runtime.TokenStream;
@@ -23,6 +26,11 @@ class CompilationState
      */
     StringTable stringtable = new StringTable();
 
+    /**
+     * Constant option sets; copy into {@link CompiledST#optionSets} after compilation.
+     */
+    List<String[]> optionSets = new ArrayList<>();
+
     /**
      * Track instruction location within {@code impl.}{@link CompiledST#instrs instrs} array; this is next address to
      * write to. Byte-addressable memory.
@@ -72,9 +80,48 @@ class CompilationState
     public void setOption(CommonTree id)
     {
         Interpreter.Option O = Compiler.supportedOptions.get(id.getText());
+        if (O == Interpreter.Option.WRAP || O == Interpreter.Option.ANCHOR)
+        {
+            impl.hasLayoutOptions = true;
+        }
         emit1(id, Instruction.STORE_OPTION, O.ordinal());
     }
 
+    /**
+     * Replaces the code of an options block with a {@link Instruction#CONST_OPTIONS} instruction if all option values
+     * are string constants, i.e. the code following the {@link Instruction#OPTIONS} instruction at the given address
+     * consists only of {@link Instruction#LOAD_STR} / {@link Instruction#STORE_OPTION} pairs.
+     */
+    public void foldConstantOptions(int optionsAddress)
+    {
+        String[] optionSet = new String[Compiler.NUM_OPTIONS];
+        int pairSize = 2 * (1 + Bytecode.OPND_SIZE_IN_BYTES);
+        int a = optionsAddress + 1;
+        while (a < ip)
+        {
+            if (a + pairSize > ip ||
+                impl.instrs[a] != Instruction.LOAD_STR.opcode ||
+                impl.instrs[a + 1 + Bytecode.OPND_SIZE_IN_BYTES] != Instruction.STORE_OPTION.opcode)
+            {
+                return;
+            }
+            String value = stringtable.get(Misc.getShort(impl.instrs, a + 1));
+            int optionIndex = Misc.getShort(impl.instrs, a + 2 + Bytecode.OPND_SIZE_IN_BYTES);
+            optionSet[optionIndex] = value;
+            a += pairSize;
+        }
+
+        Interval optionsInterval = impl.sourceMap[optionsAddress];
+        for (int i = optionsAddress; i < ip; i++)
+        {
+            impl.sourceMap[i] = null;
+        }
+        ip = optionsAddress;
+        optionSets.add(optionSet);
+        emit1(null, Instruction.CONST_OPTIONS, optionSets.size() - 1);
+        impl.sourceMap[optionsAddress] = optionsInterval;
+    }
+
     public void func(Token templateToken, CommonTree id)
     {
         Instruction functionInstruction = Compiler.FUNCTIONS.get(id.getText());
@@ -165,6 +212,72 @@ class CompilationState
         }
     }
 
+    /**
+     * Replaces the opcodes of instructions that are usually followed by a certain other instruction with the opcode of
+     * a superinstruction executing both, see {@link Instruction#expansion}. This saves dispatching the second
+     * instruction. As the second instruction stays in place, branches into it, source locations and the addresses of
+     * all instructions remain valid. Call this once after all code has been emitted.
+     */
+    public void fuseInstructions()
+    {
+        Instruction previous = null;
+        int previousAddress = -1;
+        int a = 0;
+        while (a < ip)
+        {
+            Instruction instruction = Bytecode.INSTRUCTIONS[impl.instrs[a]];
+            Instruction superinstruction = previous != null
+                ? getSuperinstruction(previous, instruction)
+                : null;
+            if (superinstruction != null)
+            {
+                impl.instrs[previousAddress] = (byte) superinstruction.opcode;
+
+                // the superinstruction executes the following instruction, so that one cannot start another one
+                previous = null;
+            }
+            else
+            {
+                previous = instruction;
+                previousAddress = a;
+            }
+            a += instruction.operandTypes.size() * Bytecode.OPND_SIZE_IN_BYTES + 1;
+        }
+    }
+
+    private static Instruction getSuperinstruction(Instruction first, Instruction second)
+    {
+        switch (first)
+        {
+            case LOAD_LOCAL:
+                if (second == Instruction.WRITE)
+                {
+                    return Instruction.WRITE_LOCAL;
+                }
+                return second == Instruction.LOAD_PROP
+                    ? Instruction.LOAD_LOCAL_PROP
+                    : null;
+            case LOAD_ATTR:
+                if (second == Instruction.WRITE)
+                {
+                    return Instruction.WRITE_ATTR;
+                }
+                return second == Instruction.LOAD_PROP
+                    ? Instruction.LOAD_ATTR_PROP
+                    : null;
+            case LOAD_PROP:
+                return second == Instruction.WRITE
+                    ? Instruction.WRITE_PROP
+                    : null;
+            case WRITE_STR:
+                return second == Instruction.NEWLINE
+                    ? Instruction.WRITE_STR_NEWLINE
+                    : null;
+            default:
+                return null;
+        }
+    }
+
     public void write(int addr, short value)
     {
         writeShort(impl.instrs, addr, value);
@@ -2,10 +2,14 @@ package org.puretemplate;
 
 import java.io.PrintWriter;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
@@ -17,6 +21,7 @@ import org.puretemplate.diagnostics.Instruction;
 import org.puretemplate.diagnostics.Operand;
 import org.puretemplate.diagnostics.OperandType;
 import org.puretemplate.diagnostics.Statement;
+import org.puretemplate.misc.Coordinates;
 
 import com.github.mizool.core.exception.CodeInconsistencyException;
 import com.google.common.collect.ImmutableList;
@@ -57,12 +62,14 @@ class CompiledST implements Cloneable
     Token templateDefStartToken;
 
     /**
-     * Overall token stream for template (debug only).
+     * Overall token stream for template (debug only). {@code null} for templates taken from the {@link
+     * CompilationCache}.
      */
     TokenStream tokens;
 
     /**
-     * How do we interpret syntax of template? (debug only)
+     * How do we interpret syntax of template? (debug only) {@code null} for templates compiled by {@link
+     * DirectCompiler} or taken from the {@link CompilationCache}.
      */
     CommonTree ast;
 
@@ -102,11 +109,28 @@ class CompiledST implements Cloneable
 
     boolean isAnonSubtemplate;
 
+    /**
+     * Does the code of this template use the {@code wrap} or {@code anchor} option? See {@link #usesLayoutOptions()}
+     * for the answer including invoked templates.
+     */
+    boolean hasLayoutOptions;
+
+    /**
+     * Memoized result of {@link #usesLayoutOptions()}, {@code null} if not computed yet.
+     */
+    private volatile Boolean usesLayoutOptions;
+
     /**
      * string operands of instructions
      */
     String[] strings;
 
+    /**
+     * Option values of {@code <expr; ...>} expressions whose options are all string constants, indexed by the operand
+     * of {@link Instruction#CONST_OPTIONS}. The arrays are shared by all renderings and must not be modified.
+     */
+    String[][] optionSets;
+
     /**
      * byte-addressable code memory. For efficiency, this stores opcodes instead of references to the {@link
      * Instruction} enum.
@@ -115,11 +139,38 @@ class CompiledST implements Cloneable
 
     int codeSize;
 
+    /**
+     * The maximum number of operands the code pushes onto the interpreter's stack, see {@link BytecodeVerifier}.
+     */
+    int maxStackDepth;
+
     /**
      * maps IP to range in template pattern
      */
     Interval[] sourceMap;
 
+    /**
+     * The code shared with other templates of the same text, or {@code null} if this template was not cached. Keeps the
+     * entry of {@link CompilationCache} alive while this template is in use.
+     */
+    CompilationCache.Code cachedCode;
+
+    /**
+     * Memoized start offsets of the lines in {@link #template}, {@code null} if not computed yet. See {@link
+     * #getCoordinates(int)}.
+     */
+    private volatile int[] lineStarts;
+
+    /**
+     * The resolved named arguments of the calls in this template, {@code null} until the first such call is executed.
+     */
+    private volatile ArgumentResolution argumentResolution;
+
+    /**
+     * The code translated for the register-based interpreter, {@code null} until the template is first executed by it.
+     */
+    private volatile RegisterCode registerCode;
+
     public CompiledST()
     {
         instrs = new byte[Compiler.TEMPLATE_INITIAL_CODE_SIZE];
@@ -243,6 +294,11 @@ class CompiledST implements Cloneable
         formalArguments.put(a.name, a);
     }
 
+    boolean hasImplicitlyDefinedTemplates()
+    {
+        return implicitlyDefinedTemplates != null;
+    }
+
     public void defineImplicitlyDefinedTemplates(STGroup group)
     {
         if (implicitlyDefinedTemplates != null)
@@ -255,12 +311,192 @@ class CompiledST implements Cloneable
         }
     }
 
+    /**
+     * Checks whether rendering this template may involve the {@code wrap} or {@code anchor} option, i.e. whether this
+     * template, the default values of its arguments or any template it invokes use them. Templates invoked by indirect
+     * name are assumed to use them.
+     */
+    boolean usesLayoutOptions()
+    {
+        Boolean result = usesLayoutOptions;
+        if (result == null)
+        {
+            result = usesLayoutOptions(new HashSet<>());
+            usesLayoutOptions = result;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the line and char position of the given char index in {@link #template}, using an index of line start
+     * offsets that is built on first use.
+     */
+    Coordinates getCoordinates(int charIndex)
+    {
+        int[] starts = lineStarts;
+        if (starts == null)
+        {
+            starts = computeLineStarts(template);
+            lineStarts = starts;
+        }
+
+        int line = Arrays.binarySearch(starts, charIndex);
+        if (line < 0)
+        {
+            // index of the last line starting before charIndex
+            line = -line - 2;
+        }
+        return new Coordinates(line + 1, charIndex - starts[line]);
+    }
+
+    ArgumentResolution getArgumentResolution()
+    {
+        ArgumentResolution resolution = argumentResolution;
+        if (resolution == null)
+        {
+            resolution = new ArgumentResolution(codeSize);
+            argumentResolution = resolution;
+        }
+        return resolution;
+    }
+
+    RegisterCode getRegisterCode()
+    {
+        RegisterCode result = registerCode;
+        if (result == null)
+        {
+            result = RegisterCompiler.compile(this);
+            registerCode = result;
+        }
+        return result;
+    }
+
+    private static int[] computeLineStarts(String text)
+    {
+        int count = 1;
+        for (int i = 0; i < text.length(); i++)
+        {
+            if (text.charAt(i) == '\n')
+            {
+                count++;
+            }
+        }
+
+        int[] result = new int[count];
+        int line = 1;
+        for (int i = 0; i < text.length(); i++)
+        {
+            if (text.charAt(i) == '\n')
+            {
+                result[line++] = i + 1;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param visited templates already checked (or being checked) on the current path
+     */
+    private boolean usesLayoutOptions(Set<CompiledST> visited)
+    {
+        if (hasLayoutOptions)
+        {
+            return true;
+        }
+        if (!visited.add(this))
+        {
+            return false;
+        }
+
+        if (formalArguments != null)
+        {
+            for (FormalArgument argument : formalArguments.values())
+            {
+                if (argument.compiledDefaultValue != null && argument.compiledDefaultValue.usesLayoutOptions(visited))
+                {
+                    return true;
+                }
+            }
+        }
+
+        for (Statement statement : getStatements())
+        {
+            if (statement.getInstruction() == Instruction.NEW_IND)
+            {
+                return true;
+            }
+            CompiledST callee = lookupCallee(statement);
+            if (callee != null && callee.usesLayoutOptions(visited))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Resolves the template invoked by the given statement of this template. As the template that will actually be
+     * invoked depends on the group that created the calling instance, this is an approximation based on {@link
+     * #nativeGroup}.
+     *
+     * @return the invoked template, or {@code null} if the statement does not invoke a template by name or no such
+     * template exists
+     */
+    CompiledST lookupCallee(Statement statement)
+    {
+        return lookupCallee(statement, nativeGroup);
+    }
+
+    /**
+     * Resolves the template invoked by the given statement of an instance of this template created by the given group,
+     * the same way the interpreter does.
+     *
+     * @param group the group that created the calling instance, see {@link ST#groupThatCreatedThisInstance}
+     *
+     * @return the invoked template, or {@code null} if the statement does not invoke a template by name or no such
+     * template exists
+     */
+    CompiledST lookupCallee(Statement statement, STGroup group)
+    {
+        switch (statement.getInstruction())
+        {
+            case NEW:
+            case NEW_BOX_ARGS:
+                String name = getStringOperand(statement);
+                if (name.charAt(0) != '/')
+                {
+                    name = prefix + name;
+                }
+                return group.lookupTemplate(name);
+
+            case SUPER_NEW:
+            case SUPER_NEW_BOX_ARGS:
+                return nativeGroup.lookupImportedTemplate(getStringOperand(statement));
+
+            default:
+                return null;
+        }
+    }
+
+    static String getStringOperand(Statement statement)
+    {
+        return statement.getOperands()
+            .get(0)
+            .getStringConstant()
+            .getValue();
+    }
+
     public void dump(Consumer<String> printer)
     {
         printer.accept(name + ":");
         printer.accept(formatStatements());
         printer.accept("Strings:");
         printer.accept(formatStrings());
+        if (optionSets != null)
+        {
+            printer.accept("Option sets:");
+            printer.accept(formatOptionSets());
+        }
         printer.accept("Bytecode to template map:");
         printer.accept(formatSourceMap());
     }
@@ -277,12 +513,21 @@ class CompiledST implements Cloneable
     }
 
     public List<Statement> getStatements()
+    {
+        return getStatements(true);
+    }
+
+    /**
+     * @param expandSuperinstructions whether superinstructions are shown as the instruction whose opcode they replaced,
+     * see {@link Instruction#expansion}. The statements following them are the same either way.
+     */
+    public List<Statement> getStatements(boolean expandSuperinstructions)
     {
         ImmutableList.Builder<Statement> result = ImmutableList.builder();
         int instructionPointer = 0;
         while (instructionPointer < codeSize)
         {
-            Statement statement = createStatement(instructionPointer);
+            Statement statement = createStatement(instructionPointer, expandSuperinstructions);
             result.add(statement);
             instructionPointer += statement.getSize();
         }
@@ -290,6 +535,11 @@ class CompiledST implements Cloneable
     }
 
     public Statement createStatement(int instructionPointer)
+    {
+        return createStatement(instructionPointer, true);
+    }
+
+    public Statement createStatement(int instructionPointer, boolean expandSuperinstructions)
     {
         if (instructionPointer >= codeSize)
         {
@@ -303,6 +553,10 @@ class CompiledST implements Cloneable
         {
             throw new IllegalArgumentException("no such instruction " + opcode + " at address " + instructionPointer);
         }
+        if (expandSuperinstructions && instruction.expansion != null)
+        {
+            instruction = instruction.expansion;
+        }
         instructionPointer++;
 
         ImmutableList.Builder<Operand> operands = ImmutableList.builder();
@@ -377,6 +631,29 @@ class CompiledST implements Cloneable
         return buf.toString();
     }
 
+    private String formatOptionSets()
+    {
+        StringBuilder buf = new StringBuilder();
+        for (int i = 0; i < optionSets.length; i++)
+        {
+            buf.append(String.format("%04d:", i));
+            String[] optionSet = optionSets[i];
+            for (Interpreter.Option option : Interpreter.Option.values())
+            {
+                String value = optionSet[option.ordinal()];
+                if (value != null)
+                {
+                    buf.append(String.format(" %s=\"%s\"",
+                        option.name()
+                            .toLowerCase(Locale.ROOT),
+                        Misc.replaceEscapes(value)));
+                }
+            }
+            buf.append('\n');
+        }
+        return buf.toString();
+    }
+
     private String formatSourceMap()
     {
         StringBuilder buf = new StringBuilder();
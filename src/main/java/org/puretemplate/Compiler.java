@@ -7,6 +7,8 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import lombok.RequiredArgsConstructor;
+
 import org.antlr.runtime.ANTLRStringStream;
 import org.antlr.runtime.CommonTokenStream;
 import org.antlr.runtime.NoViableAltException;
@@ -16,7 +18,9 @@ import org.antlr.runtime.Token;
 import org.antlr.runtime.TokenStream;
 import org.antlr.runtime.tree.CommonTreeNodeStream;
 import org.puretemplate.diagnostics.Instruction;
+import org.puretemplate.error.ErrorListener;
 import org.puretemplate.error.ErrorType;
+import org.puretemplate.error.Message;
 import org.puretemplate.exception.CompilationException;
 
 /**
@@ -60,7 +64,46 @@ class Compiler
         return Collections.unmodifiableMap(result);
     }
 
+    /**
+     * Passes errors on and notes whether there were any, so that only templates compiled without errors are cached.
+     */
+    @RequiredArgsConstructor
+    private static final class ErrorDetector implements ErrorListener
+    {
+        private final ErrorListener delegate;
+        private boolean hasErrors;
+
+        @Override
+        public void compileTimeError(Message msg)
+        {
+            hasErrors = true;
+            delegate.compileTimeError(msg);
+        }
+
+        @Override
+        public void runTimeError(Message msg)
+        {
+            hasErrors = true;
+            delegate.runTimeError(msg);
+        }
+
+        @Override
+        public void ioError(Message msg)
+        {
+            hasErrors = true;
+            delegate.ioError(msg);
+        }
+
+        @Override
+        public void internalError(Message msg)
+        {
+            hasErrors = true;
+            delegate.internalError(msg);
+        }
+    }
+
     private final STGroup group;
+    private final ErrorManager errMgr;
 
     public Compiler()
     {
@@ -68,8 +111,17 @@ class Compiler
     }
 
     public Compiler(STGroup group)
+    {
+        this(group, group.errMgr);
+    }
+
+    /**
+     * @param errMgr receives the errors instead of the error manager of {@code group}
+     */
+    public Compiler(STGroup group, ErrorManager errMgr)
     {
         this.group = group;
+        this.errMgr = errMgr;
     }
 
     public CompiledST compile(String template)
@@ -95,14 +147,43 @@ class Compiler
     public CompiledST compile(
         String sourceName, String name, List<FormalArgument> args, String template, Token templateToken)
     {
-        ANTLRStringStream is = new ANTLRStringStream(template);
+        CompilationCache.Key key = CompilationCache.keyFor(group, args, template, templateToken);
+        if (key == null)
+        {
+            return compileUncached(sourceName, name, args, template, templateToken);
+        }
+
+        CompiledST cached = CompilationCache.get(key, name, args);
+        if (cached != null)
+        {
+            cached.nativeGroup = group;
+            return cached;
+        }
+
+        ErrorDetector errorDetector = new ErrorDetector(errMgr.listener);
+        CompiledST impl = new Compiler(group, errMgr.withListener(errorDetector)).compileUncached(sourceName,
+            name,
+            args,
+            template,
+            templateToken);
+        if (impl != null && !errorDetector.hasErrors)
+        {
+            CompilationCache.put(key, impl);
+        }
+        return impl;
+    }
+
+    private CompiledST compileUncached(
+        String sourceName, String name, List<FormalArgument> args, String template, Token templateToken)
+    {
+        ANTLRStringStream is = new TemplateCharStream(template);
         is.name = sourceName != null
             ? sourceName
             : name;
         STLexer lexer;
         if (templateToken != null && templateToken.getType() == GroupParser.BIGSTRING_NO_NL)
         {
-            lexer = new STLexer(group.errMgr, is, templateToken, group.delimiterStartChar, group.delimiterStopChar)
+            lexer = new STLexer(errMgr, is, templateToken, group.delimiterStartChar, group.delimiterStopChar)
             {
                 /** Throw out \n and indentation tokens inside BIGSTRING_NO_NL */
                 @Override
@@ -119,10 +200,18 @@ class Compiler
         }
         else
         {
-            lexer = new STLexer(group.errMgr, is, templateToken, group.delimiterStartChar, group.delimiterStopChar);
+            lexer = new STLexer(errMgr, is, templateToken, group.delimiterStartChar, group.delimiterStopChar);
         }
         CommonTokenStream tokens = new CommonTokenStream(lexer);
-        STParser p = new STParser(tokens, group.errMgr, templateToken);
+        CompiledST direct = DirectCompiler.compile(tokens, errMgr, name, args, template, templateToken);
+        if (direct != null)
+        {
+            direct.nativeGroup = group;
+            direct.tokens = tokens;
+            return direct;
+        }
+
+        STParser p = new STParser(tokens, errMgr, templateToken);
         STParser.templateAndEOF_return r;
         try
         {
@@ -142,7 +231,7 @@ class Compiler
 
         CommonTreeNodeStream nodes = new CommonTreeNodeStream(r.getTree());
         nodes.setTokenStream(tokens);
-        CodeGenerator gen = new CodeGenerator(nodes, group.errMgr, name, template, templateToken);
+        CodeGenerator gen = new CodeGenerator(nodes, errMgr, name, template, templateToken);
 
         CompiledST impl = null;
         try
@@ -156,7 +245,7 @@ class Compiler
         }
         catch (RecognitionException re)
         {
-            group.errMgr.internalError(null, "bad tree structure", re);
+            errMgr.internalError(null, "bad tree structure", re);
         }
 
         return impl;
@@ -181,29 +270,29 @@ class Compiler
         if (re.token.getType() == STLexer.EOF_TYPE)
         {
             String msg = "premature EOF";
-            group.errMgr.compileTimeError(ErrorType.SYNTAX_ERROR, templateToken, re.token, msg);
+            errMgr.compileTimeError(ErrorType.SYNTAX_ERROR, templateToken, re.token, msg);
         }
         else if (re instanceof NoViableAltException)
         {
             String msg = "'" + re.token.getText() + "' came as a complete surprise to me";
-            group.errMgr.compileTimeError(ErrorType.SYNTAX_ERROR, templateToken, re.token, msg);
+            errMgr.compileTimeError(ErrorType.SYNTAX_ERROR, templateToken, re.token, msg);
         }
         else if (tokens.index() == 0)
         {
             // couldn't parse anything
             String msg = "this doesn't look like a template: \"" + tokens + "\"";
-            group.errMgr.compileTimeError(ErrorType.SYNTAX_ERROR, templateToken, re.token, msg);
+            errMgr.compileTimeError(ErrorType.SYNTAX_ERROR, templateToken, re.token, msg);
         }
         else if (tokens.LA(1) == STLexer.LDELIM)
         {
             // couldn't parse expr
             String msg = "doesn't look like an expression";
-            group.errMgr.compileTimeError(ErrorType.SYNTAX_ERROR, templateToken, re.token, msg);
+            errMgr.compileTimeError(ErrorType.SYNTAX_ERROR, templateToken, re.token, msg);
         }
         else
         {
             String msg = parser.getErrorMessage(re, parser.getTokenNames());
-            group.errMgr.compileTimeError(ErrorType.SYNTAX_ERROR, templateToken, re.token, msg);
+            errMgr.compileTimeError(ErrorType.SYNTAX_ERROR, templateToken, re.token, msg);
         }
         throw new CompilationException(); // we have reported the error, so just blast out
     }
@@ -0,0 +1,50 @@
+package org.puretemplate;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Shares the constants and code of the templates of a group. Each template is compiled with its own string table, so
+ * literals, attribute and property names as well as indentation strings are repeated across templates, and identical
+ * anonymous subtemplates like {@code {x | <x>}} each have their own code.
+ * <p>
+ * When a template is defined, its strings are replaced by the equal strings already in the pool, and its string table
+ * and code are replaced by equal arrays of other templates. The code is trimmed to its size first. As compiled
+ * templates are never modified, they can share all of these.</p>
+ */
+@ThreadSafe
+final class ConstantPool
+{
+    private final ConcurrentMap<String, String> strings = new ConcurrentHashMap<>();
+    private final ConcurrentMap<List<String>, String[]> stringTables = new ConcurrentHashMap<>();
+    private final ConcurrentMap<ByteBuffer, byte[]> code = new ConcurrentHashMap<>();
+
+    /**
+     * Replaces the constants and code of the given template with shared instances.
+     */
+    void intern(CompiledST impl)
+    {
+        if (impl.strings != null)
+        {
+            String[] table = new String[impl.strings.length];
+            for (int i = 0; i < table.length; i++)
+            {
+                String s = impl.strings[i];
+                table[i] = s != null
+                    ? strings.computeIfAbsent(s, key -> s)
+                    : null;
+            }
+            impl.strings = stringTables.computeIfAbsent(Arrays.asList(table), key -> table);
+        }
+
+        byte[] instrs = impl.instrs.length != impl.codeSize
+            ? Arrays.copyOf(impl.instrs, impl.codeSize)
+            : impl.instrs;
+        impl.instrs = code.computeIfAbsent(ByteBuffer.wrap(instrs), key -> instrs);
+    }
+}
@@ -0,0 +1,157 @@
+package org.puretemplate;
+
+import java.util.List;
+
+import lombok.experimental.UtilityClass;
+
+import org.antlr.runtime.CommonTokenStream;
+import org.antlr.runtime.Token;
+import org.antlr.runtime.tree.CommonTree;
+import org.puretemplate.diagnostics.Instruction;
+
+/**
+ * Compiles templates that consist only of text, newlines, indentation and plain attribute references like {@code
+ * <name>} in a single pass over the tokens, without building and walking a parse tree. Most templates in group files
+ * look like this. The code, strings and source map are the same as {@code STParser} and {@code CodeGenerator} would
+ * produce; templates using any other construct are left to them.
+ * <p>
+ * The tokens are checked before any code is emitted, so that errors are never reported twice.</p>
+ */
+@UtilityClass
+class DirectCompiler
+{
+    /**
+     * @return the compiled template, or {@code null} if the template must be compiled with the parser. In that case,
+     * the token stream is still positioned at its start.
+     */
+    CompiledST compile(
+        CommonTokenStream tokens,
+        ErrorManager errMgr,
+        String name,
+        List<FormalArgument> args,
+        String template,
+        Token templateToken)
+    {
+        if (name != null && name.startsWith(Compiler.SUBTEMPLATE_PREFIX) || !isSupported(tokens))
+        {
+            return null;
+        }
+
+        CompilationState state = new CompilationState(errMgr, name, tokens);
+        CompiledST impl = state.impl;
+        impl.defineFormalArgs(args);
+        impl.template = template;
+
+        int i = 0;
+        Token token;
+        while ((token = tokens.get(i)).getType() != STLexer.EOF_TYPE)
+        {
+            if (token.getType() == STLexer.INDENT)
+            {
+                state.indent(new CommonTree(token));
+                i = compileSingleElement(state, tokens, i + 1, templateToken);
+                state.emit(Instruction.DEDENT);
+            }
+            else
+            {
+                i = compileSingleElement(state, tokens, i, templateToken);
+            }
+        }
+
+        impl.strings = state.stringtable.toArray();
+        state.fuseInstructions();
+        impl.codeSize = state.ip;
+        impl.maxStackDepth = BytecodeVerifier.getMaxStackDepth(impl);
+        return impl;
+    }
+
+    /**
+     * Checks that the template has at least one element and that all elements are supported. Reads the tokens by index
+     * without consuming them, so that the parser can start from the beginning. Lookahead via {@code LA(k)} would skip
+     * k tokens from the current position each time.
+     */
+    private boolean isSupported(CommonTokenStream tokens)
+    {
+        tokens.fill();
+        int i = 0;
+        if (getType(tokens, i) == STLexer.EOF_TYPE)
+        {
+            // the parser returns no tree for an empty template, see Compiler
+            return false;
+        }
+
+        int type;
+        while ((type = getType(tokens, i)) != STLexer.EOF_TYPE)
+        {
+            if (type == STLexer.INDENT)
+            {
+                i++;
+            }
+            int size = getSingleElementSize(tokens, i);
+            if (size == 0)
+            {
+                return false;
+            }
+            i += size;
+        }
+        return true;
+    }
+
+    /**
+     * @return the number of tokens of the element starting at the given index, or 0 if the element is not supported
+     */
+    private int getSingleElementSize(CommonTokenStream tokens, int i)
+    {
+        switch (getType(tokens, i))
+        {
+            case STLexer.TEXT:
+            case STLexer.NEWLINE:
+                return 1;
+            case STLexer.LDELIM:
+                if (getType(tokens, i + 1) == STLexer.ID && getType(tokens, i + 2) == STLexer.RDELIM)
+                {
+                    return 3;
+                }
+                return 0;
+            default:
+                return 0;
+        }
+    }
+
+    private int getType(CommonTokenStream tokens, int i)
+    {
+        return tokens.get(i)
+            .getType();
+    }
+
+    /**
+     * Emits the same code as the {@code singleElement} rule of {@code CodeGenerator}.
+     *
+     * @return the index of the token following the element
+     */
+    private int compileSingleElement(CompilationState state, CommonTokenStream tokens, int i, Token templateToken)
+    {
+        Token token = tokens.get(i);
+        switch (token.getType())
+        {
+            case STLexer.TEXT:
+                if (token.getText()
+                    .length() > 0)
+                {
+                    state.emit1(new CommonTree(token), Instruction.WRITE_STR, token.getText());
+                }
+                return i + 1;
+            case STLexer.NEWLINE:
+                state.emit(new CommonTree(token), Instruction.NEWLINE);
+                return i + 1;
+            default:
+                // <ID>: the EXPR node of the parser spans from the left to the right delimiter
+                state.refAttr(templateToken, new CommonTree(tokens.get(i + 1)));
+                CommonTree expr = new CommonTree(token);
+                expr.setTokenStartIndex(i);
+                expr.setTokenStopIndex(i + 2);
+                state.emit(expr, Instruction.WRITE);
+                return i + 3;
+        }
+    }
+}
@@ -16,6 +16,7 @@ import org.puretemplate.error.ErrorType;
 import org.puretemplate.error.GroupCompilationMessage;
 import org.puretemplate.error.LexerMessage;
 import org.puretemplate.error.Message;
+import org.puretemplate.error.RuntimeErrorPolicy;
 import org.puretemplate.error.RuntimeMessage;
 import org.puretemplate.error.TemplateCompilationMessage;
 import org.puretemplate.misc.Location;
@@ -264,6 +265,27 @@ class ErrorManager
     @NonNull
     public final ErrorListener listener;
 
+    @NonNull
+    public final RuntimeErrorPolicy runtimeErrorPolicy;
+
+    public ErrorManager(@NonNull ErrorListener listener)
+    {
+        this(listener, RuntimeErrorPolicy.report());
+    }
+
+    /**
+     * @return an error manager with the same runtime error policy, reporting to the given listener
+     */
+    public ErrorManager withListener(@NonNull ErrorListener listener)
+    {
+        return new ErrorManager(listener, runtimeErrorPolicy);
+    }
+
+    public ErrorManager withRuntimeErrorPolicy(@NonNull RuntimeErrorPolicy runtimeErrorPolicy)
+    {
+        return new ErrorManager(listener, runtimeErrorPolicy);
+    }
+
     public void lexerError(String sourceName, String msg, Token templateToken, RecognitionException e)
     {
         if (sourceName != null)
@@ -310,29 +332,53 @@ class ErrorManager
         listener.compileTimeError(new GroupCompilationMessageImpl(error, sourceName, token, e, msg));
     }
 
-    public void runTimeError(Location location, ErrorType error)
+    /**
+     * Reports a runtime error unless the {@link #runtimeErrorPolicy} suppresses it. The runtime error methods take the
+     * scope instead of its location so that no location is created for suppressed errors.
+     */
+    public void runTimeError(InstanceScope scope, ErrorType error)
+    {
+        if (runtimeErrorPolicy.accept(error))
+        {
+            report(new RuntimeMessageImpl(error, scope.toLocation()));
+        }
+    }
+
+    public void runTimeError(InstanceScope scope, ErrorType error, Throwable e, Object arg)
     {
-        listener.runTimeError(new RuntimeMessageImpl(error, location));
+        if (runtimeErrorPolicy.accept(error))
+        {
+            report(new RuntimeMessageImpl(error, scope.toLocation(), e, arg));
+        }
     }
 
-    public void runTimeError(Location location, ErrorType error, Throwable e, Object arg)
+    public void runTimeError(InstanceScope scope, ErrorType error, Object arg)
     {
-        listener.runTimeError(new RuntimeMessageImpl(error, location, e, arg));
+        if (runtimeErrorPolicy.accept(error))
+        {
+            report(new RuntimeMessageImpl(error, scope.toLocation(), arg));
+        }
     }
 
-    public void runTimeError(Location location, ErrorType error, Object arg)
+    public void runTimeError(InstanceScope scope, ErrorType error, Object arg, Object arg2)
     {
-        listener.runTimeError(new RuntimeMessageImpl(error, location, arg));
+        if (runtimeErrorPolicy.accept(error))
+        {
+            report(new RuntimeMessageImpl(error, scope.toLocation(), null, arg, arg2));
+        }
     }
 
-    public void runTimeError(Location location, ErrorType error, Object arg, Object arg2)
+    public void runTimeError(InstanceScope scope, ErrorType error, Object arg, Object arg2, Object arg3)
     {
-        listener.runTimeError(new RuntimeMessageImpl(error, location, null, arg, arg2));
+        if (runtimeErrorPolicy.accept(error))
+        {
+            report(new RuntimeMessageImpl(error, scope.toLocation(), null, arg, arg2, arg3));
+        }
     }
 
-    public void runTimeError(Location location, ErrorType error, Object arg, Object arg2, Object arg3)
+    private void report(Message msg)
     {
-        listener.runTimeError(new RuntimeMessageImpl(error, location, null, arg, arg2, arg3));
+        runtimeErrorPolicy.deliver(msg, listener);
     }
 
     public void ioError(Location location, ErrorType error, Throwable e)
@@ -38,6 +38,11 @@ class EventDistributor
         targetListeners.forEach(eventListener -> invoker.invoke(event, eventListener));
     }
 
+    public boolean hasListeners()
+    {
+        return !listeners.isEmpty();
+    }
+
     /**
      * Guard against user code calling {@code addEventListener(..., MyOwnSubclass.class)} or {@code
      * addEventListener(..., MyOwnSubinterface.class)}.
@@ -0,0 +1,236 @@
+package org.puretemplate;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.concurrent.Immutable;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import com.github.mizool.core.exception.CodeInconsistencyException;
+
+/**
+ * The recorded output of a template, stored in a {@link FragmentCache}. Instead of the final text, a fragment stores
+ * the sequence of calls the interpreter made on its {@link TemplateWriter}. Replaying them on the current writer means
+ * that indentation, anchors and line wrapping are applied exactly as if the template had been executed again.
+ */
+@Immutable
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+final class Fragment
+{
+    private static final byte WRITE = 0;
+    private static final byte WRITE_WRAPPED = 1;
+    private static final byte WRITE_WRAP = 2;
+    private static final byte WRITE_SEPARATOR = 3;
+    private static final byte PUSH_INDENTATION = 4;
+    private static final byte POP_INDENTATION = 5;
+    private static final byte PUSH_ANCHOR_POINT = 6;
+    private static final byte POP_ANCHOR_POINT = 7;
+
+    /**
+     * A {@link TemplateWriter} that forwards all calls to the writer of the current rendering operation and records
+     * them for later replay.
+     */
+    static final class Recorder implements TemplateWriter
+    {
+        private final TemplateWriter target;
+        private final List<Byte> operations = new ArrayList<>();
+        private final List<String> operands = new ArrayList<>();
+        private final StringBuilder pendingText = new StringBuilder();
+        private int weight;
+
+        Recorder(TemplateWriter target)
+        {
+            this.target = target;
+        }
+
+        private void record(byte operation, String... operationOperands)
+        {
+            flushPendingText();
+            operations.add(operation);
+            for (String operand : operationOperands)
+            {
+                operands.add(operand);
+                weight += operand == null
+                    ? 1
+                    : operand.length() + 1;
+            }
+        }
+
+        /**
+         * Consecutive writes are merged into one, as writing {@code a} and then {@code b} is equivalent to writing
+         * {@code a + b}.
+         */
+        private void flushPendingText()
+        {
+            if (pendingText.length() > 0)
+            {
+                operations.add(WRITE);
+                operands.add(pendingText.toString());
+                weight += pendingText.length() + 1;
+                pendingText.setLength(0);
+            }
+        }
+
+        @Override
+        public void pushIndentation(String indent)
+        {
+            record(PUSH_INDENTATION, indent);
+            target.pushIndentation(indent);
+        }
+
+        @Override
+        public String popIndentation()
+        {
+            record(POP_INDENTATION);
+            return target.popIndentation();
+        }
+
+        @Override
+        public void pushAnchorPoint()
+        {
+            record(PUSH_ANCHOR_POINT);
+            target.pushAnchorPoint();
+        }
+
+        @Override
+        public void popAnchorPoint()
+        {
+            record(POP_ANCHOR_POINT);
+            target.popAnchorPoint();
+        }
+
+        @Override
+        public void setLineWidth(int lineWidth)
+        {
+            target.setLineWidth(lineWidth);
+        }
+
+        @Override
+        public int write(String str) throws IOException
+        {
+            pendingText.append(str);
+            return target.write(str);
+        }
+
+        @Override
+        public int write(String str, String wrap) throws IOException
+        {
+            record(WRITE_WRAPPED, str, wrap);
+            return target.write(str, wrap);
+        }
+
+        @Override
+        public int writeWrap(String wrap) throws IOException
+        {
+            record(WRITE_WRAP, wrap);
+            return target.writeWrap(wrap);
+        }
+
+        @Override
+        public int writeSeparator(String str) throws IOException
+        {
+            record(WRITE_SEPARATOR, str);
+            return target.writeSeparator(str);
+        }
+
+        @Override
+        public int index()
+        {
+            return target.index();
+        }
+
+        @Override
+        public TemplateWriter createWriterTargeting(Writer target)
+        {
+            return this.target.createWriterTargeting(target);
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            target.close();
+        }
+
+        /**
+         * @param characterCount the number of characters reported by the interpreter for the recorded execution
+         * @param lineReset whether the recorded execution started a new template line
+         * @param lineCharacters the number of characters on the current template line after the recorded execution,
+         * if {@code lineReset} is {@code true}, or the number of characters it added to that line otherwise
+         */
+        Fragment toFragment(int characterCount, boolean lineReset, int lineCharacters)
+        {
+            flushPendingText();
+            byte[] operationArray = new byte[operations.size()];
+            for (int i = 0; i < operationArray.length; i++)
+            {
+                operationArray[i] = operations.get(i);
+            }
+            return new Fragment(operationArray,
+                operands.toArray(new String[0]),
+                weight + operationArray.length,
+                characterCount,
+                lineReset,
+                lineCharacters);
+        }
+    }
+
+    private final byte[] operations;
+    private final String[] operands;
+
+    /**
+     * The approximate memory footprint of this fragment, measured in characters.
+     */
+    @Getter
+    private final int weight;
+
+    @Getter
+    private final int characterCount;
+
+    @Getter
+    private final boolean lineReset;
+
+    @Getter
+    private final int lineCharacters;
+
+    void replay(TemplateWriter out) throws IOException
+    {
+        int operandIndex = 0;
+        for (byte operation : operations)
+        {
+            switch (operation)
+            {
+                case WRITE:
+                    out.write(operands[operandIndex++]);
+                    break;
+                case WRITE_WRAPPED:
+                    out.write(operands[operandIndex++], operands[operandIndex++]);
+                    break;
+                case WRITE_WRAP:
+                    out.writeWrap(operands[operandIndex++]);
+                    break;
+                case WRITE_SEPARATOR:
+                    out.writeSeparator(operands[operandIndex++]);
+                    break;
+                case PUSH_INDENTATION:
+                    out.pushIndentation(operands[operandIndex++]);
+                    break;
+                case POP_INDENTATION:
+                    out.popIndentation();
+                    break;
+                case PUSH_ANCHOR_POINT:
+                    out.pushAnchorPoint();
+                    break;
+                case POP_ANCHOR_POINT:
+                    out.popAnchorPoint();
+                    break;
+                default:
+                    throw new CodeInconsistencyException("unknown fragment operation " + operation);
+            }
+        }
+    }
+}
@@ -0,0 +1,417 @@
+package org.puretemplate;
+
+import java.lang.reflect.Array;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import lombok.NonNull;
+import lombok.Value;
+
+import org.puretemplate.diagnostics.Instruction;
+import org.puretemplate.diagnostics.Statement;
+import org.puretemplate.error.ErrorType;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Memoizes the output of templates that the user marked as cacheable, i.e. templates whose output depends on their
+ * arguments only. Entries are keyed by the template implementation and the argument values; they are evicted in LRU
+ * order once the total number of cached characters exceeds the configured maximum.
+ * <p>
+ * Before a template is cached for the first time, it is checked for purity: templates that read attributes via
+ * dynamic scoping (including those of the templates they invoke), pass through attributes with {@code ...} or invoke
+ * templates by indirect name are rejected.</p>
+ */
+@ThreadSafe
+final class FragmentCache
+{
+    static final long DEFAULT_MAXIMUM_WEIGHT = 1_000_000;
+
+    /**
+     * Marks argument values without value semantics, see {@link #toKeyValue(Object)}.
+     */
+    private static final Object NOT_A_VALUE = new Object();
+
+    /**
+     * Cache key. The argument values are copied so that later changes to the template instance or to the collections
+     * passed as arguments don't affect the key.
+     */
+    private static final class Key
+    {
+        private final CompiledST impl;
+        private final STGroup group;
+        private final Locale locale;
+        private final boolean lineStarted;
+        private final Object[] arguments;
+        private final int hashCode;
+
+        Key(CompiledST impl, STGroup group, Locale locale, boolean lineStarted, Object[] arguments)
+        {
+            this.impl = impl;
+            this.group = group;
+            this.locale = locale;
+            this.lineStarted = lineStarted;
+            this.arguments = arguments;
+            this.hashCode = Objects.hash(System.identityHashCode(impl),
+                System.identityHashCode(group),
+                locale,
+                lineStarted,
+                Arrays.deepHashCode(arguments));
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (this == o)
+            {
+                return true;
+            }
+            if (!(o instanceof Key))
+            {
+                return false;
+            }
+            Key other = (Key) o;
+            return impl == other.impl &&
+                group == other.group &&
+                lineStarted == other.lineStarted &&
+                hashCode == other.hashCode &&
+                locale.equals(other.locale) &&
+                Arrays.deepEquals(arguments, other.arguments);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return hashCode;
+        }
+    }
+
+    /**
+     * Immutable copy of a collection, map or array passed as argument. The elements of a map are its keys and values,
+     * alternately. The type is kept as rendering may depend on it, e.g. via model adaptors.
+     */
+    @Value
+    private static class Sequence
+    {
+        Class<?> type;
+        List<Object> elements;
+    }
+
+    /**
+     * Whether a template is pure depends on the templates it invokes, which are resolved in the group that created the
+     * instance. A group importing the template's group may override them.
+     */
+    @Value
+    private static class VerdictKey
+    {
+        CompiledST impl;
+        STGroup group;
+    }
+
+    private final Set<String> templateNames;
+
+    /**
+     * Purity verdicts, computed on first use of each cacheable template by each group.
+     */
+    private final Map<VerdictKey, Boolean> verdicts = new ConcurrentHashMap<>();
+
+    private final Cache<Key, Fragment> fragments;
+
+    FragmentCache(@NonNull Set<String> templateNames, long maximumWeight)
+    {
+        this.templateNames = ImmutableSet.copyOf(templateNames);
+        this.fragments = CacheBuilder.newBuilder()
+            .maximumWeight(maximumWeight)
+            .weigher((Key key, Fragment fragment) -> fragment.getWeight())
+            .recordStats()
+            .build();
+    }
+
+    /**
+     * Creates the cache key for rendering the given scope, or returns {@code null} if its template is not cacheable.
+     *
+     * @param lineStarted whether characters have been written on the current line, as that decides whether a leading
+     * {@link Instruction#NEWLINE} produces output
+     */
+    Object createKey(InstanceScope scope, Locale locale, boolean lineStarted, ErrorManager errMgr)
+    {
+        ST st = scope.st;
+        CompiledST impl = st.getImpl();
+        if (!templateNames.contains(impl.name) || !isPure(scope, errMgr))
+        {
+            return null;
+        }
+
+        Object[] arguments = st.locals == null
+            ? new Object[0]
+            : new Object[st.locals.length];
+        for (int i = 0; i < arguments.length; i++)
+        {
+            arguments[i] = toKeyValue(st.locals[i]);
+            if (arguments[i] == NOT_A_VALUE)
+            {
+                return null;
+            }
+        }
+
+        return new Key(impl, st.groupThatCreatedThisInstance, locale, lineStarted, arguments);
+    }
+
+    /**
+     * Converts an argument value to its representation in a cache key. Only values whose output can't change as long
+     * as they are equal are accepted: strings, boxed primitives, enums, {@code java.time} values as well as
+     * collections, maps and arrays of them, which are copied. Other objects, e.g. beans whose {@code equals} method
+     * ignores some of their properties, template instances and iterators, have no value semantics.
+     *
+     * @return the value to store in the key, or {@link #NOT_A_VALUE} if fragments receiving {@code o} can't be cached
+     */
+    private static Object toKeyValue(Object o)
+    {
+        if (o == null || isScalarValue(o))
+        {
+            return o;
+        }
+
+        List<Object> elements = new ArrayList<>();
+        if (o instanceof Collection)
+        {
+            for (Object element : (Collection<?>) o)
+            {
+                elements.add(toKeyValue(element));
+            }
+        }
+        else if (o instanceof Map)
+        {
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) o).entrySet())
+            {
+                elements.add(toKeyValue(entry.getKey()));
+                elements.add(toKeyValue(entry.getValue()));
+            }
+        }
+        else if (o.getClass()
+            .isArray())
+        {
+            int length = Array.getLength(o);
+            for (int i = 0; i < length; i++)
+            {
+                elements.add(toKeyValue(Array.get(o, i)));
+            }
+        }
+        else
+        {
+            return NOT_A_VALUE;
+        }
+
+        if (elements.contains(NOT_A_VALUE))
+        {
+            return NOT_A_VALUE;
+        }
+        return new Sequence(o.getClass(), Collections.unmodifiableList(elements));
+    }
+
+    private static boolean isScalarValue(Object o)
+    {
+        Class<?> type = o.getClass();
+        return o instanceof String ||
+            o instanceof Boolean ||
+            o instanceof Character ||
+            o instanceof Integer ||
+            o instanceof Long ||
+            o instanceof Short ||
+            o instanceof Byte ||
+            o instanceof Double ||
+            o instanceof Float ||
+            o instanceof Enum ||
+            type == BigInteger.class ||
+            type == BigDecimal.class ||
+            type.getPackageName()
+                .equals("java.time");
+    }
+
+    Fragment get(Object key)
+    {
+        return fragments.getIfPresent(key);
+    }
+
+    void put(Object key, Fragment fragment)
+    {
+        fragments.put((Key) key, fragment);
+    }
+
+    CacheStats getStats()
+    {
+        return fragments.stats();
+    }
+
+    long getSize()
+    {
+        return fragments.size();
+    }
+
+    /**
+     * Checks whether the template of the given scope may be cached. The verdict is remembered, so the check runs (and
+     * reports its result) once per template and group that created the instance.
+     */
+    private boolean isPure(InstanceScope scope, ErrorManager errMgr)
+    {
+        CompiledST impl = scope.st.getImpl();
+        VerdictKey key = new VerdictKey(impl, scope.st.groupThatCreatedThisInstance);
+        Boolean verdict = verdicts.get(key);
+        if (verdict == null)
+        {
+            String impurity = getImpurity(impl, key.getGroup());
+            if (impurity != null)
+            {
+                errMgr.runTimeError(scope, ErrorType.UNCACHEABLE_TEMPLATE, impl.name, impurity);
+            }
+            verdict = impurity == null;
+            verdicts.put(key, verdict);
+        }
+        return verdict;
+    }
+
+    /**
+     * Returns a description of the first construct that prevents caching of the given template, or {@code null} if
+     * the template's output depends on its arguments only.
+     *
+     * @param group the group that created the instance, in which the invoked templates are resolved
+     */
+    static String getImpurity(CompiledST impl, STGroup group)
+    {
+        if (!impl.hasFormalArgs)
+        {
+            return "template has no formal arguments";
+        }
+        return getImpurity(impl, group, new HashSet<>(), ImmutableSet.of());
+    }
+
+    /**
+     * @param visited templates already checked (or being checked) on the current path; they are assumed to be pure
+     * @param enclosingArguments formal arguments of the templates lexically enclosing an anonymous subtemplate, which
+     * are visible to it via dynamic scoping
+     */
+    private static String getImpurity(
+        CompiledST impl, STGroup group, Set<CompiledST> visited, Set<String> enclosingArguments)
+    {
+        if (!visited.add(impl))
+        {
+            return null;
+        }
+
+        Set<String> visibleArguments = new HashSet<>(enclosingArguments);
+        if (impl.formalArguments != null)
+        {
+            visibleArguments.addAll(impl.formalArguments.keySet());
+        }
+
+        if (impl.formalArguments != null)
+        {
+            for (FormalArgument argument : impl.formalArguments.values())
+            {
+                if (argument.compiledDefaultValue != null)
+                {
+                    String impurity = getImpurity(argument.compiledDefaultValue, group, visited, visibleArguments);
+                    if (impurity != null)
+                    {
+                        return impurity;
+                    }
+                }
+            }
+        }
+
+        for (Statement statement : impl.getStatements())
+        {
+            String impurity = getImpurity(impl, group, statement, visited, visibleArguments);
+            if (impurity != null)
+            {
+                return impurity;
+            }
+        }
+        return null;
+    }
+
+    private static String getImpurity(
+        CompiledST impl, STGroup group, Statement statement, Set<CompiledST> visited, Set<String> visibleArguments)
+    {
+        Instruction instruction = statement.getInstruction();
+        switch (instruction)
+        {
+            case LOAD_ATTR:
+                String attributeName = CompiledST.getStringOperand(statement);
+                if (!visibleArguments.contains(attributeName) && !isDictionary(impl.nativeGroup, attributeName))
+                {
+                    return "attribute " + attributeName + " is resolved via dynamic scoping";
+                }
+                return null;
+
+            case PASSTHRU:
+                return "arguments are passed through from the enclosing scope";
+
+            case NEW_IND:
+                return "templates are invoked indirectly";
+
+            case NEW:
+            case NEW_BOX_ARGS:
+            case SUPER_NEW:
+            case SUPER_NEW_BOX_ARGS:
+                return getCalleeImpurity(impl, group, impl.lookupCallee(statement, group), visited, visibleArguments);
+
+            default:
+                return null;
+        }
+    }
+
+    private static String getCalleeImpurity(
+        CompiledST impl, STGroup group, CompiledST callee, Set<CompiledST> visited, Set<String> visibleArguments)
+    {
+        if (callee == null)
+        {
+            return "template " + impl.name + " invokes an undefined template";
+        }
+
+        if (callee.isAnonSubtemplate)
+        {
+            // anonymous subtemplates see the arguments of the template that defines them
+            return getImpurity(callee, group, visited, visibleArguments);
+        }
+
+        String impurity = getImpurity(callee, group, visited, ImmutableSet.of());
+        if (impurity != null)
+        {
+            return "invoked template " + callee.name + " is not cacheable: " + impurity;
+        }
+        return null;
+    }
+
+    private static boolean isDictionary(STGroup group, String name)
+    {
+        if (group.isDictionary(name))
+        {
+            return true;
+        }
+        for (STGroup imported : group.imports)
+        {
+            if (isDictionary(imported, name))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,18 @@
+package org.puretemplate;
+
+import java.util.Set;
+
+import lombok.Value;
+
+@Value
+class FragmentCacheHandle implements Handle
+{
+    Set<String> templateNames;
+    long maximumWeight;
+
+    @Override
+    public void registerWith(STGroup stGroup)
+    {
+        stGroup.fragmentCache = new FragmentCache(templateNames, maximumWeight);
+    }
+}
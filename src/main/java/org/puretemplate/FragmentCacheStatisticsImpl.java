@@ -0,0 +1,16 @@
+package org.puretemplate;
+
+import lombok.Builder;
+import lombok.Value;
+
+import org.puretemplate.diagnostics.FragmentCacheStatistics;
+
+@Value
+@Builder
+class FragmentCacheStatisticsImpl implements FragmentCacheStatistics
+{
+    long hitCount;
+    long missCount;
+    long evictionCount;
+    long size;
+}
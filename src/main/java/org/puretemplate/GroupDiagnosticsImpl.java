@@ -1,8 +1,14 @@
 package org.puretemplate;
 
+import java.util.Optional;
+
 import lombok.RequiredArgsConstructor;
 
+import org.puretemplate.diagnostics.FragmentCacheStatistics;
 import org.puretemplate.diagnostics.GroupDiagnostics;
+import org.puretemplate.diagnostics.RenderingMetrics;
+
+import com.google.common.cache.CacheStats;
 
 @RequiredArgsConstructor
 final class GroupDiagnosticsImpl implements GroupDiagnostics
@@ -14,4 +20,31 @@ final class GroupDiagnosticsImpl implements GroupDiagnostics
     {
         return stGroup.getDump();
     }
+
+    @Override
+    public Optional<FragmentCacheStatistics> getFragmentCacheStatistics()
+    {
+        FragmentCache fragmentCache = stGroup.fragmentCache;
+        if (fragmentCache == null)
+        {
+            return Optional.empty();
+        }
+
+        CacheStats stats = fragmentCache.getStats();
+        return Optional.of(FragmentCacheStatisticsImpl.builder()
+            .hitCount(stats.hitCount())
+            .missCount(stats.missCount())
+            .evictionCount(stats.evictionCount())
+            .size(fragmentCache.getSize())
+            .build());
+    }
+
+    @Override
+    public Optional<RenderingMetrics> getRenderingMetrics()
+    {
+        return Optional.ofNullable(stGroup.metrics)
+            .filter(MetricsCollector.class::isInstance)
+            .map(MetricsCollector.class::cast)
+            .map(MetricsCollector::snapshot);
+    }
 }
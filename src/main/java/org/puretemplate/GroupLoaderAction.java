@@ -7,13 +7,17 @@ import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import lombok.NonNull;
 
 import org.apiguardian.api.API;
+import org.puretemplate.diagnostics.MetricsRecorder;
 import org.puretemplate.error.ErrorListener;
+import org.puretemplate.error.RuntimeErrorPolicy;
 import org.puretemplate.misc.InputSupplier;
 import org.puretemplate.model.Aggregate;
 import org.puretemplate.model.AttributeRenderer;
@@ -30,6 +34,12 @@ class GroupLoaderAction extends AbstractLoaderAction implements org.puretemplate
     private Charset charset = StandardCharsets.UTF_8;
     private boolean legacyRendering;
     private ErrorListener errorListener;
+    private RuntimeErrorPolicy runtimeErrorPolicy;
+    private final Set<String> cacheableTemplates = new LinkedHashSet<>();
+    private long fragmentCacheLimit = FragmentCache.DEFAULT_MAXIMUM_WEIGHT;
+    private boolean metrics;
+    private MetricsRecorder metricsRecorder;
+    private boolean registerInterpreter;
 
     /**
      * @return the next state of the fluent API. See <a href="../package-summary.html#fluent-api-usage-notes">Usage
@@ -322,6 +332,114 @@ class GroupLoaderAction extends AbstractLoaderAction implements org.puretemplate
         handles.add(new AdaptorHandle<>(attributeType, adaptor));
     }
 
+    /**
+     * Marks a template as cacheable. The output of cacheable templates is kept in a per-group cache, keyed by the
+     * argument values, and replayed on subsequent invocations with equal arguments. Indentation and line wrapping are
+     * applied to replayed output as usual.
+     * <br>
+     * Only templates whose output depends on their arguments alone can be cached. Templates that refer to attributes of
+     * their callers (dynamic scoping) or pass them through with {@code ...}, as well as templates invoking such
+     * templates, are rejected with an {@link org.puretemplate.error.ErrorType#UNCACHEABLE_TEMPLATE} error on their
+     * first invocation and then rendered normally. Only invocations whose arguments are strings, boxed primitives,
+     * enums, {@code java.time} values or collections, maps and arrays of them are cached; they are copied into the
+     * cache key. Invocations receiving other objects, e.g. beans, are rendered normally. Errors occurring while a
+     * template is rendered for the cache are not reported again when its output is replayed. While event listeners are
+     * registered, the cache is bypassed.
+     *
+     * @param templateName the name of the template, e.g. {@code "footer"} or {@code "/footer"}
+     *
+     * @return the next state of the fluent API. See <a href="../package-summary.html#fluent-api-usage-notes">Usage
+     * notes for fluent APIs in PureTemplate</a> for details.
+     *
+     * @see org.puretemplate.diagnostics.GroupDiagnostics#getFragmentCacheStatistics()
+     */
+    @API(status = API.Status.EXPERIMENTAL)
+    @Override
+    public void registerCacheableTemplate(@NonNull String templateName)
+    {
+        if (templateName.charAt(0) != '/')
+        {
+            templateName = "/" + templateName;
+        }
+        cacheableTemplates.add(templateName);
+    }
+
+    /**
+     * Limits the size of the cache used for templates registered via {@link #registerCacheableTemplate(String)}. When
+     * the limit is exceeded, the least recently used entries are evicted. If this method is not called, the limit is
+     * one million characters. If called more than once, the last call wins.
+     *
+     * @param maximumCharacters the maximum number of characters to keep in the cache
+     *
+     * @return the next state of the fluent API. See <a href="../package-summary.html#fluent-api-usage-notes">Usage
+     * notes for fluent APIs in PureTemplate</a> for details.
+     */
+    @API(status = API.Status.EXPERIMENTAL)
+    @Override
+    public void limitFragmentCache(long maximumCharacters)
+    {
+        if (maximumCharacters < 0)
+        {
+            throw new IllegalArgumentException("maximumCharacters must be >= 0");
+        }
+        fragmentCacheLimit = maximumCharacters;
+    }
+
+    /**
+     * Enables the collection of metrics for the group: invocation counts, execution time and output size per template,
+     * compilation time and counts of model adaptor lookups, fragment cache accesses and runtime errors. Counters are
+     * aggregated without locking, but measuring template execution time adds two calls to {@link System#nanoTime()}
+     * per template invocation. If called more than once, the last call of this method or of {@link
+     * #collectMetrics(MetricsRecorder)} wins.
+     *
+     * @return the next state of the fluent API. See <a href="../package-summary.html#fluent-api-usage-notes">Usage
+     * notes for fluent APIs in PureTemplate</a> for details.
+     *
+     * @see org.puretemplate.diagnostics.GroupDiagnostics#getRenderingMetrics()
+     */
+    @API(status = API.Status.EXPERIMENTAL)
+    @Override
+    public void collectMetrics()
+    {
+        metrics = true;
+        metricsRecorder = null;
+    }
+
+    /**
+     * Passes the metrics of the group to the given recorder instead of aggregating them, e.g. to publish them via a
+     * metrics library. The recorder receives the same measurements that {@link #collectMetrics()} aggregates, but
+     * {@link org.puretemplate.diagnostics.GroupDiagnostics#getRenderingMetrics()} returns an empty {@code Optional}.
+     * If called more than once, the last call of this method or of {@link #collectMetrics()} wins.
+     *
+     * @param recorder the recorder to use
+     *
+     * @return the next state of the fluent API. See <a href="../package-summary.html#fluent-api-usage-notes">Usage
+     * notes for fluent APIs in PureTemplate</a> for details.
+     */
+    @API(status = API.Status.EXPERIMENTAL)
+    @Override
+    public void collectMetrics(@NonNull MetricsRecorder recorder)
+    {
+        metrics = true;
+        metricsRecorder = recorder;
+    }
+
+    /**
+     * Executes the templates of the group with a register-based interpreter instead of the stack-based one. On first
+     * use, the code of each template is translated into three-address form whose instructions read locals and
+     * constants directly and keep intermediate values in numbered registers. The output is the same; templates are
+     * still executed by the stack-based interpreter while rendering with event listeners.
+     *
+     * @return the next state of the fluent API. See <a href="../package-summary.html#fluent-api-usage-notes">Usage
+     * notes for fluent APIs in PureTemplate</a> for details.
+     */
+    @API(status = API.Status.EXPERIMENTAL)
+    @Override
+    public void useRegisterInterpreter()
+    {
+        registerInterpreter = true;
+    }
+
     /**
      * @return the next state of the fluent API. See <a href="../package-summary.html#fluent-api-usage-notes">Usage
      * notes for fluent APIs in PureTemplate</a> for details.
@@ -351,6 +469,22 @@ class GroupLoaderAction extends AbstractLoaderAction implements org.puretemplate
         this.errorListener = listener;
     }
 
+    /**
+     * Sets the policy that decides which runtime errors are passed to the error listener, e.g. to ignore or only count
+     * errors that some templates trigger intentionally. If this method is not called, all runtime errors are reported.
+     *
+     * @param policy the policy to use
+     *
+     * @return the next state of the fluent API. See <a href="../package-summary.html#fluent-api-usage-notes">Usage
+     * notes for fluent APIs in PureTemplate</a> for details.
+     */
+    @API(status = API.Status.EXPERIMENTAL)
+    @Override
+    public void withRuntimeErrorPolicy(@NonNull RuntimeErrorPolicy policy)
+    {
+        this.runtimeErrorPolicy = policy;
+    }
+
     /**
      * Changes the template behavior so that attribute renderers are also applied to text elements. <br>
      * <br>
@@ -374,6 +508,23 @@ class GroupLoaderAction extends AbstractLoaderAction implements org.puretemplate
     @Override
     public Group build()
     {
+        if (runtimeErrorPolicy != null)
+        {
+            handles.add(new RuntimeErrorPolicyHandle(runtimeErrorPolicy));
+        }
+        if (metrics)
+        {
+            handles.add(new MetricsHandle(metricsRecorder));
+        }
+        if (!cacheableTemplates.isEmpty())
+        {
+            handles.add(new FragmentCacheHandle(cacheableTemplates, fragmentCacheLimit));
+        }
+        if (registerInterpreter)
+        {
+            handles.add(new RegisterInterpreterHandle());
+        }
+
         if (directory != null)
         {
             return new DirectoryGroupImpl(directory,
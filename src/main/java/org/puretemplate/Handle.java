@@ -2,5 +2,15 @@ package org.puretemplate;
 
 interface Handle
 {
+    /**
+     * Called before the group loads its templates.
+     */
+    default void prepare(STGroup stGroup)
+    {
+    }
+
+    /**
+     * Called after the group loaded its templates and imported other groups.
+     */
     void registerWith(STGroup stGroup);
 }
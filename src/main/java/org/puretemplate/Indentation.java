@@ -0,0 +1,140 @@
+package org.puretemplate;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * The indentation state of a {@link TemplateWriter}: a stack of indents and a stack of anchors.
+ * <p>
+ * The concatenation of all indents up to a given stack depth is computed once and kept until an indent is pushed at
+ * that depth, so that the indentation at the start of a line can be written with a single call regardless of the
+ * nesting depth.</p>
+ */
+@NotThreadSafe
+final class Indentation
+{
+    private static final char[] SPACES = new char[64];
+
+    static
+    {
+        Arrays.fill(SPACES, ' ');
+    }
+
+    private String[] indents = new String[8];
+
+    /**
+     * {@code prefixes[d]} is the concatenation of the first {@code d} indents, or {@code null} if it has not been
+     * computed since the indent at depth {@code d - 1} was pushed.
+     */
+    private String[] prefixes = new String[indents.length + 1];
+
+    private int depth;
+
+    /**
+     * Stack of anchors (char positions in line); avoid {@link Integer} creation overhead.
+     */
+    private int[] anchors = new int[10];
+    private int anchorIndex = -1;
+
+    Indentation()
+    {
+        prefixes[0] = "";
+    }
+
+    void push(String indent)
+    {
+        if (depth == indents.length)
+        {
+            indents = Arrays.copyOf(indents, depth * 2);
+            prefixes = Arrays.copyOf(prefixes, depth * 2 + 1);
+        }
+        indents[depth++] = indent;
+        prefixes[depth] = null;
+    }
+
+    /**
+     * @throws NoSuchElementException if no indent was pushed
+     */
+    String pop()
+    {
+        if (depth == 0)
+        {
+            throw new NoSuchElementException();
+        }
+        String result = indents[--depth];
+        indents[depth] = null;
+        return result;
+    }
+
+    /**
+     * Returns the concatenation of all indents.
+     */
+    String getPrefix()
+    {
+        String prefix = prefixes[depth];
+        if (prefix == null)
+        {
+            int validDepth = depth - 1;
+            while (prefixes[validDepth] == null)
+            {
+                validDepth--;
+            }
+            for (int d = validDepth; d < depth; d++)
+            {
+                prefixes[d + 1] = prefixes[d] + indents[d];
+            }
+            prefix = prefixes[depth];
+        }
+        return prefix;
+    }
+
+    void pushAnchorPoint(int charPosition)
+    {
+        if (anchorIndex + 1 == anchors.length)
+        {
+            anchors = Arrays.copyOf(anchors, anchors.length * 2);
+        }
+        anchors[++anchorIndex] = charPosition;
+    }
+
+    void popAnchorPoint()
+    {
+        anchorIndex--;
+    }
+
+    /**
+     * Writes the indents and, if the current anchor is beyond the indent width, pads with spaces up to the anchor.
+     *
+     * @return the number of characters written
+     */
+    int writeTo(Writer out) throws IOException
+    {
+        String prefix = getPrefix();
+        out.write(prefix);
+        int n = prefix.length();
+
+        // If current anchor is beyond current indent width, indent to anchor
+        // *after* doing indents (might tabs in there or whatever)
+        if (anchorIndex >= 0 && anchors[anchorIndex] > n)
+        {
+            int remainder = anchors[anchorIndex] - n;
+            writeSpaces(out, remainder);
+            n += remainder;
+        }
+        return n;
+    }
+
+    private static void writeSpaces(Writer out, int count) throws IOException
+    {
+        while (count > 0)
+        {
+            int chunk = Math.min(count, SPACES.length);
+            out.write(SPACES, 0, chunk);
+            count -= chunk;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package org.puretemplate;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.puretemplate.diagnostics.RenderingMetrics;
+import org.puretemplate.diagnostics.TemplateMetrics;
+
+/**
+ * Aggregates the metrics of a group. All counters are {@link LongAdder}s so that concurrent rendering operations don't
+ * contend on them. The per-template counters are keyed by {@link CompiledST} so that recording does not need to
+ * compare template names. This is the default used unless the user registers a {@link
+ * org.puretemplate.diagnostics.MetricsRecorder}.
+ */
+@ThreadSafe
+final class MetricsCollector extends MetricsSink
+{
+    private static final class TemplateCounters
+    {
+        private final LongAdder invocations = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+        private final LongAdder characters = new LongAdder();
+    }
+
+    /**
+     * Maps {@link CompiledST} instances to their counters. Templates without formal arguments get cloned when invoked
+     * with named arguments, so they are keyed by name instead to keep this map from growing with each invocation.
+     */
+    private final Map<Object, TemplateCounters> templates = new ConcurrentHashMap<>();
+    private final LongAdder modelAdaptorLookups = new LongAdder();
+    private final LongAdder fragmentCacheHits = new LongAdder();
+    private final LongAdder fragmentCacheMisses = new LongAdder();
+    private final LongAdder compilations = new LongAdder();
+    private final LongAdder compilationNanos = new LongAdder();
+    private final LongAdder runtimeErrors = new LongAdder();
+
+    @Override
+    void recordTemplate(CompiledST impl, long nanos, int characters)
+    {
+        Object key = impl.hasFormalArgs
+            ? impl
+            : String.valueOf(impl.name);
+        TemplateCounters counters = templates.computeIfAbsent(key, k -> new TemplateCounters());
+        counters.invocations.increment();
+        counters.nanos.add(nanos);
+        counters.characters.add(characters);
+    }
+
+    @Override
+    void recordModelAdaptorLookup()
+    {
+        modelAdaptorLookups.increment();
+    }
+
+    @Override
+    void recordFragmentCacheHit()
+    {
+        fragmentCacheHits.increment();
+    }
+
+    @Override
+    void recordFragmentCacheMiss()
+    {
+        fragmentCacheMisses.increment();
+    }
+
+    @Override
+    void recordCompilation(long nanos)
+    {
+        compilations.increment();
+        compilationNanos.add(nanos);
+    }
+
+    @Override
+    void recordRuntimeError()
+    {
+        runtimeErrors.increment();
+    }
+
+    /**
+     * Creates a snapshot of the current values. Templates that have several implementations with the same name are
+     * merged.
+     */
+    RenderingMetrics snapshot()
+    {
+        Map<String, long[]> sums = new LinkedHashMap<>();
+        for (Map.Entry<Object, TemplateCounters> entry : templates.entrySet())
+        {
+            Object key = entry.getKey();
+            String templateName = key instanceof CompiledST
+                ? String.valueOf(((CompiledST) key).name)
+                : (String) key;
+            TemplateCounters counters = entry.getValue();
+            long[] sum = sums.computeIfAbsent(templateName, name -> new long[3]);
+            sum[0] += counters.invocations.sum();
+            sum[1] += counters.nanos.sum();
+            sum[2] += counters.characters.sum();
+        }
+
+        List<TemplateMetrics> templateMetrics = sums.entrySet()
+            .stream()
+            .sorted(Comparator.comparingLong((Map.Entry<String, long[]> entry) -> entry.getValue()[1])
+                .reversed())
+            .map(entry -> TemplateMetricsImpl.builder()
+                .templateName(entry.getKey())
+                .invocationCount(entry.getValue()[0])
+                .time(Duration.ofNanos(entry.getValue()[1]))
+                .characterCount(entry.getValue()[2])
+                .build())
+            .collect(Collectors.toUnmodifiableList());
+
+        return RenderingMetricsImpl.builder()
+            .templateMetrics(templateMetrics)
+            .modelAdaptorLookupCount(modelAdaptorLookups.sum())
+            .fragmentCacheHitCount(fragmentCacheHits.sum())
+            .fragmentCacheMissCount(fragmentCacheMisses.sum())
+            .compilationCount(compilations.sum())
+            .compilationTime(Duration.ofNanos(compilationNanos.sum()))
+            .runtimeErrorCount(runtimeErrors.sum())
+            .build();
+    }
+}
@@ -0,0 +1,31 @@
+package org.puretemplate;
+
+import lombok.Value;
+
+import org.puretemplate.diagnostics.MetricsRecorder;
+
+import com.github.mizool.core.validation.Nullable;
+
+@Value
+class MetricsHandle implements Handle
+{
+    /**
+     * The recorder registered by the user, {@code null} to aggregate the metrics into a {@link MetricsCollector}.
+     */
+    @Nullable
+    MetricsRecorder recorder;
+
+    @Override
+    public void prepare(STGroup stGroup)
+    {
+        stGroup.metrics = recorder == null
+            ? new MetricsCollector()
+            : new RecorderMetricsSink(recorder);
+    }
+
+    @Override
+    public void registerWith(STGroup stGroup)
+    {
+        // the collector must exist before the templates are compiled, so prepare() already did the work
+    }
+}
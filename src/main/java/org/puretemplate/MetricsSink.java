@@ -0,0 +1,64 @@
+package org.puretemplate;
+
+import lombok.RequiredArgsConstructor;
+
+import org.puretemplate.error.ErrorListener;
+import org.puretemplate.error.Message;
+
+/**
+ * Receives the measurements of a group. Templates are passed as {@link CompiledST} so that {@link MetricsCollector}
+ * can key its counters by them.
+ */
+abstract class MetricsSink
+{
+    /**
+     * Forwards all errors to another listener, counting runtime errors on the way.
+     */
+    @RequiredArgsConstructor
+    private final class CountingErrorListener implements ErrorListener
+    {
+        private final ErrorListener target;
+
+        @Override
+        public void compileTimeError(Message msg)
+        {
+            target.compileTimeError(msg);
+        }
+
+        @Override
+        public void runTimeError(Message msg)
+        {
+            recordRuntimeError();
+            target.runTimeError(msg);
+        }
+
+        @Override
+        public void ioError(Message msg)
+        {
+            target.ioError(msg);
+        }
+
+        @Override
+        public void internalError(Message msg)
+        {
+            target.internalError(msg);
+        }
+    }
+
+    abstract void recordTemplate(CompiledST impl, long nanos, int characters);
+
+    abstract void recordModelAdaptorLookup();
+
+    abstract void recordFragmentCacheHit();
+
+    abstract void recordFragmentCacheMiss();
+
+    abstract void recordCompilation(long nanos);
+
+    abstract void recordRuntimeError();
+
+    ErrorListener countRuntimeErrors(ErrorListener listener)
+    {
+        return new CountingErrorListener(listener);
+    }
+}
@@ -0,0 +1,110 @@
+package org.puretemplate;
+
+import java.util.Arrays;
+import java.util.Iterator;
+
+/**
+ * The arguments of a template invocation like {@code <t(a=x, b=y)>}, collected by {@link
+ * org.puretemplate.diagnostics.Instruction#STORE_ARG} in the order they are passed. Calls have only a few arguments, so
+ * they are kept in two arrays instead of a hash map.
+ * <p>
+ * Iterating yields the names of the arguments, just like the keys of a map.</p>
+ */
+final class NamedArguments implements Iterable<String>
+{
+    private static final int INITIAL_CAPACITY = 4;
+
+    private String[] names = new String[INITIAL_CAPACITY];
+    private Object[] values = new Object[INITIAL_CAPACITY];
+    private int size;
+
+    /**
+     * Sets the value of the argument with the given name, adding the argument if it was not passed yet.
+     */
+    public void put(String name, Object value)
+    {
+        int index = indexOf(name);
+        if (index >= 0)
+        {
+            values[index] = value;
+            return;
+        }
+
+        if (size == names.length)
+        {
+            names = Arrays.copyOf(names, size * 2);
+            values = Arrays.copyOf(values, size * 2);
+        }
+        names[size] = name;
+        values[size] = value;
+        size++;
+    }
+
+    public boolean containsKey(String name)
+    {
+        return indexOf(name) >= 0;
+    }
+
+    private int indexOf(String name)
+    {
+        for (int i = 0; i < size; i++)
+        {
+            if (names[i].equals(name))
+            {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    public String getName(int index)
+    {
+        return names[index];
+    }
+
+    public Object getValue(int index)
+    {
+        return values[index];
+    }
+
+    /**
+     * @return a copy of the names of the arguments
+     */
+    String[] getNames()
+    {
+        return Arrays.copyOf(names, size);
+    }
+
+    /**
+     * Checks whether the arguments have exactly the given names in the given order. The names of the arguments of a
+     * call site are usually the same {@link String} instances every time, so they are compared by identity.
+     */
+    boolean hasNames(String[] expected)
+    {
+        if (expected.length != size)
+        {
+            return false;
+        }
+        for (int i = 0; i < size; i++)
+        {
+            if (names[i] != expected[i])
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public Iterator<String> iterator()
+    {
+        return Arrays.asList(names)
+            .subList(0, size)
+            .iterator();
+    }
+}
@@ -20,6 +20,13 @@ class NoIndentWriter extends AutoIndentWriter
         return str.length();
     }
 
+    @Override
+    public int write(char[] chars, int offset, int length) throws IOException
+    {
+        out.write(chars, offset, length);
+        return length;
+    }
+
     @Override
     public TemplateWriter createWriterTargeting(Writer target)
     {
@@ -0,0 +1,236 @@
+package org.puretemplate;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * A leaner variant of {@link AutoIndentWriter} for output that is never wrapped. Its output is identical to that of an
+ * {@link AutoIndentWriter} with a line width of {@link #NO_WRAP}.
+ * <p>
+ * Instead of processing the output char by char, this writer only looks for line breaks and writes the text in between
+ * with a single call. Positions are updated once per call to {@link #write(String)}.</p>
+ * <p>
+ * As an attribute value may be a template instance using the {@code anchor} option, anchors are supported, but they
+ * are expected to be rare. Use {@link CompiledST#usesLayoutOptions()} to decide whether a template is a good fit for
+ * this writer.</p>
+ */
+class PlainIndentWriter implements TemplateWriter
+{
+    private final Indentation indentation = new Indentation();
+
+    /**
+     * {@code \n} or {@code \r\n}?
+     */
+    private final String newline;
+
+    private final Writer out;
+    private boolean atStartOfLine = true;
+
+    /**
+     * See {@code AutoIndentWriter.charPosition}. This writer only uses it for anchors.
+     */
+    private int charPosition;
+
+    /**
+     * The absolute char index into the output of the next char to be written.
+     */
+    private int charIndex;
+
+    public PlainIndentWriter(Writer out, String newline)
+    {
+        this.out = out;
+        this.newline = newline;
+    }
+
+    public PlainIndentWriter(Writer out)
+    {
+        this(out, System.getProperty("line.separator"));
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        out.close();
+    }
+
+    /**
+     * @throws IllegalArgumentException if {@code lineWidth} is not {@link #NO_WRAP}
+     */
+    @Override
+    public void setLineWidth(int lineWidth)
+    {
+        if (lineWidth != NO_WRAP)
+        {
+            throw new IllegalArgumentException(getClass().getSimpleName() + " does not support line wrapping");
+        }
+    }
+
+    @Override
+    public void pushIndentation(String indent)
+    {
+        indentation.push(indent);
+    }
+
+    @Override
+    public String popIndentation()
+    {
+        return indentation.pop();
+    }
+
+    @Override
+    public void pushAnchorPoint()
+    {
+        indentation.pushAnchorPoint(charPosition);
+    }
+
+    @Override
+    public void popAnchorPoint()
+    {
+        indentation.popAnchorPoint();
+    }
+
+    @Override
+    public int index()
+    {
+        return charIndex;
+    }
+
+    @Override
+    public TemplateWriter createWriterTargeting(Writer target)
+    {
+        return new PlainIndentWriter(target);
+    }
+
+    @Override
+    public int write(String str) throws IOException
+    {
+        int n = 0;
+        boolean wroteNewline = false;
+        int start = 0;
+        int sl = str.length();
+        for (int i = 0; i < sl; i++)
+        {
+            char c = str.charAt(i);
+            if (c == '\r' || c == '\n')
+            {
+                n += writeText(str, start, i);
+                start = i + 1;
+                if (c == '\n')
+                {
+                    n += writeNewline();
+                    wroteNewline = true;
+                }
+            }
+        }
+        n += writeText(str, start, sl);
+        return advance(n, wroteNewline);
+    }
+
+    @Override
+    public int write(char[] chars, int offset, int length) throws IOException
+    {
+        int n = 0;
+        boolean wroteNewline = false;
+        int start = offset;
+        int end = offset + length;
+        for (int i = offset; i < end; i++)
+        {
+            char c = chars[i];
+            if (c == '\r' || c == '\n')
+            {
+                n += writeText(chars, start, i);
+                start = i + 1;
+                if (c == '\n')
+                {
+                    n += writeNewline();
+                    wroteNewline = true;
+                }
+            }
+        }
+        n += writeText(chars, start, end);
+        return advance(n, wroteNewline);
+    }
+
+    private int writeNewline() throws IOException
+    {
+        out.write(newline);
+        atStartOfLine = true;
+        return newline.length();
+    }
+
+    /**
+     * Updates the positions after a write of {@code n} characters.
+     */
+    private int advance(int n, boolean wroteNewline)
+    {
+        // same arithmetic as AutoIndentWriter, which counts the newline characters as the start of the next line
+        if (wroteNewline)
+        {
+            charPosition = n - newline.length();
+        }
+        else
+        {
+            charPosition += n;
+        }
+        charIndex += n;
+        return n;
+    }
+
+    /**
+     * Writes a piece of text that contains no line breaks, preceded by the indentation if at the start of a line.
+     */
+    private int writeText(String str, int start, int end) throws IOException
+    {
+        if (start == end)
+        {
+            return 0;
+        }
+
+        int n = writeIndentationIfAtStartOfLine();
+        out.write(str, start, end - start);
+        return n + end - start;
+    }
+
+    private int writeText(char[] chars, int start, int end) throws IOException
+    {
+        if (start == end)
+        {
+            return 0;
+        }
+
+        int n = writeIndentationIfAtStartOfLine();
+        out.write(chars, start, end - start);
+        return n + end - start;
+    }
+
+    private int writeIndentationIfAtStartOfLine() throws IOException
+    {
+        if (!atStartOfLine)
+        {
+            return 0;
+        }
+        atStartOfLine = false;
+        return indentation.writeTo(out);
+    }
+
+    @Override
+    public int writeSeparator(String str) throws IOException
+    {
+        return write(str);
+    }
+
+    @Override
+    public int write(String str, String wrap) throws IOException
+    {
+        return write(str);
+    }
+
+    /**
+     * Never wraps, as this writer does not track the line width.
+     */
+    @Override
+    public int writeWrap(String wrap)
+    {
+        return 0;
+    }
+}
@@ -0,0 +1,50 @@
+package org.puretemplate;
+
+import lombok.RequiredArgsConstructor;
+
+import org.puretemplate.diagnostics.MetricsRecorder;
+
+/**
+ * Passes the measurements of a group on to a {@link MetricsRecorder} registered by the user.
+ */
+@RequiredArgsConstructor
+final class RecorderMetricsSink extends MetricsSink
+{
+    private final MetricsRecorder recorder;
+
+    @Override
+    void recordTemplate(CompiledST impl, long nanos, int characters)
+    {
+        recorder.recordTemplate(impl.name, nanos, characters);
+    }
+
+    @Override
+    void recordModelAdaptorLookup()
+    {
+        recorder.recordModelAdaptorLookup();
+    }
+
+    @Override
+    void recordFragmentCacheHit()
+    {
+        recorder.recordFragmentCacheHit();
+    }
+
+    @Override
+    void recordFragmentCacheMiss()
+    {
+        recorder.recordFragmentCacheMiss();
+    }
+
+    @Override
+    void recordCompilation(long nanos)
+    {
+        recorder.recordCompilation(nanos);
+    }
+
+    @Override
+    void recordRuntimeError()
+    {
+        recorder.recordRuntimeError();
+    }
+}
@@ -0,0 +1,130 @@
+package org.puretemplate;
+
+import javax.annotation.concurrent.Immutable;
+
+import org.puretemplate.diagnostics.Instruction;
+
+/**
+ * The code of a template in three-address form for the register-based interpreter, translated from the stack code by
+ * {@link RegisterCompiler}. Each instruction names the registers it reads and the register that receives its result,
+ * so the interpreter does not move the stack pointer. Loads of locals, string constants and constant options do not
+ * become instructions of their own: the instructions using the value read it straight from its source.
+ * <p>
+ * Register {@code i} holds the value that the stack code keeps in stack slot {@code i}, so the registers of a template
+ * occupy {@link CompiledST#maxStackDepth} slots of the operand stack of the interpreter. Invoked templates push their
+ * operands above them.</p>
+ * <p>
+ * Each instruction starts with its opcode and the address of the stack instruction it was translated from, which is
+ * used for error locations. Source operands are encoded by {@link #register(int)}, {@link #local(int)} and
+ * {@link #constant(int)}; other operands are register numbers, indexes into {@link CompiledST#strings}, counts or code
+ * offsets.</p>
+ */
+@Immutable
+final class RegisterCode
+{
+    static final int KIND_BITS = 2;
+    static final int KIND_MASK = (1 << KIND_BITS) - 1;
+    static final int REGISTER = 0;
+    static final int LOCAL = 1;
+    static final int CONSTANT = 2;
+
+    // dest, source
+    static final int MOVE = 0;
+    // no operands; only marks the stack instruction executed last, see Instruction#NEWLINE
+    static final int MARK = 1;
+    // dest, name index
+    static final int LOAD_ATTR = 2;
+    // dest, source, name index
+    static final int LOAD_PROP = 3;
+    // dest, source, name source
+    static final int LOAD_PROP_IND = 4;
+    // first register of the arguments and of the result, name index, argument count
+    static final int NEW = 5;
+    // register of the name and the result, argument count; the arguments follow the name
+    static final int NEW_IND = 6;
+    // dest, name index, arguments source
+    static final int NEW_BOX_ARGS = 7;
+    // first register of the arguments and of the result, name index, argument count
+    static final int SUPER_NEW = 8;
+    // dest, name index, arguments source
+    static final int SUPER_NEW_BOX_ARGS = 9;
+    // options register, source, option index
+    static final int STORE_OPTION = 10;
+    // arguments register, source, name index
+    static final int STORE_ARG = 11;
+    // source
+    static final int WRITE = 12;
+    // source, options source
+    static final int WRITE_OPT = 13;
+    // dest, source, template source
+    static final int MAP = 14;
+    // dest, source, template count, template sources
+    static final int ROT_MAP = 15;
+    // dest, template source, attribute count, attribute sources
+    static final int ZIP_MAP = 16;
+    // code offset
+    static final int BR = 17;
+    // source, code offset
+    static final int BRF = 18;
+    // dest
+    static final int OPTIONS = 19;
+    // dest
+    static final int ARGS = 20;
+    // arguments register, name index
+    static final int PASSTHRU = 21;
+    // dest
+    static final int LIST = 22;
+    // list register, source
+    static final int ADD = 23;
+    // dest, source
+    static final int TOSTR = 24;
+    static final int FIRST = 25;
+    static final int LAST = 26;
+    static final int REST = 27;
+    static final int TRUNC = 28;
+    static final int STRIP = 29;
+    static final int TRIM = 30;
+    static final int LENGTH = 31;
+    static final int STRLEN = 32;
+    static final int REVERSE = 33;
+    static final int NOT = 34;
+    // dest, left source, right source
+    static final int OR = 35;
+    static final int AND = 36;
+    // string index
+    static final int INDENT = 37;
+    // no operands
+    static final int DEDENT = 38;
+    static final int NEWLINE = 39;
+    // string index
+    static final int WRITE_STR = 40;
+
+    final int[] code;
+
+    /**
+     * Values of the {@link #CONSTANT} operands, e.g. strings loaded by {@link Instruction#LOAD_STR}. The values are
+     * shared by all renderings and must not be modified.
+     */
+    final Object[] constants;
+
+    RegisterCode(int[] code, Object[] constants)
+    {
+        this.code = code;
+        this.constants = constants;
+    }
+
+    static int register(int index)
+    {
+        return index << KIND_BITS | REGISTER;
+    }
+
+    static int local(int index)
+    {
+        return index << KIND_BITS | LOCAL;
+    }
+
+    static int constant(int index)
+    {
+        return index << KIND_BITS | CONSTANT;
+    }
+}
@@ -0,0 +1,471 @@
+package org.puretemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.puretemplate.diagnostics.Instruction;
+
+import com.github.mizool.core.exception.CodeInconsistencyException;
+
+/**
+ * Translates the stack code of a compiled template into {@link RegisterCode}. The translation follows the stack depth
+ * computed by {@link BytecodeVerifier}: an instruction popping values from stack slots {@code i} and above reads
+ * them from the registers {@code i} and above, and its result goes to the register of the slot it is pushed to.
+ * <p>
+ * Values of locals and constants are kept as pending operands instead of being copied into a register. They are only
+ * copied when a register is needed: for the arguments of a template invocation, for a list or an options array that
+ * an instruction adds to, and for all pending operands before a branch and at a branch target, so that every path
+ * reaching an instruction leaves its operands in the same place.</p>
+ */
+final class RegisterCompiler
+{
+    private final CompiledST impl;
+    private final int[] depthAt;
+
+    /**
+     * The operands on the stack at the current instruction, encoded as in {@link RegisterCode}. A register operand
+     * always names the register of its own stack slot.
+     */
+    private final int[] stack;
+    private int depth;
+
+    private int[] code = new int[64];
+    private int pc;
+    private final List<Object> constants = new ArrayList<>();
+
+    /**
+     * The code offset of each instruction of the stack code.
+     */
+    private final int[] offsets;
+
+    /**
+     * Code offsets of branch operands, followed by the addresses of the stack instructions they branch to.
+     */
+    private final List<int[]> branches = new ArrayList<>();
+
+    /**
+     * The address of the stack instruction translated last on the current path, and that of the instruction the last
+     * register instruction was translated from. They differ after instructions that were not translated into code.
+     */
+    private int lastIp = -1;
+    private int lastEmittedIp = -1;
+
+    private RegisterCompiler(CompiledST impl)
+    {
+        this.impl = impl;
+        depthAt = BytecodeVerifier.getStackDepths(impl);
+        stack = new int[impl.maxStackDepth];
+        offsets = new int[impl.codeSize + 1];
+        Arrays.fill(offsets, -1);
+    }
+
+    /**
+     * @throws CodeInconsistencyException if the code is malformed
+     */
+    static RegisterCode compile(CompiledST impl)
+    {
+        return new RegisterCompiler(impl).translate();
+    }
+
+    private RegisterCode translate()
+    {
+        boolean[] branchTargets = getBranchTargets();
+        boolean reachable = false;
+        int ip = 0;
+        while (ip < impl.codeSize)
+        {
+            Instruction instruction = getInstruction(ip);
+            int next = ip + 1 + instruction.operandTypes.size() * Bytecode.OPND_SIZE_IN_BYTES;
+            if (depthAt[ip] == BytecodeVerifier.NOT_VISITED)
+            {
+                reachable = false;
+                ip = next;
+                continue;
+            }
+
+            if (reachable && branchTargets[ip])
+            {
+                materializeAll();
+            }
+            if (reachable && instruction == Instruction.NEWLINE && lastIp != lastEmittedIp)
+            {
+                // NEWLINE depends on the instruction executed before, which was not translated into code
+                emit(RegisterCode.MARK, lastIp);
+            }
+            if (!reachable || branchTargets[ip])
+            {
+                depth = depthAt[ip];
+                for (int i = 0; i < depth; i++)
+                {
+                    stack[i] = RegisterCode.register(i);
+                }
+            }
+
+            offsets[ip] = pc;
+            translate(instruction, ip);
+            lastIp = ip;
+            reachable = instruction != Instruction.BR;
+            ip = next;
+        }
+        offsets[impl.codeSize] = pc;
+
+        for (int[] branch : branches)
+        {
+            int offset = offsets[branch[1]];
+            if (offset < 0)
+            {
+                throw error(branch[1], "branch into an operand");
+            }
+            code[branch[0]] = offset;
+        }
+        return new RegisterCode(Arrays.copyOf(code, pc), constants.toArray());
+    }
+
+    private boolean[] getBranchTargets()
+    {
+        boolean[] targets = new boolean[impl.codeSize + 1];
+        for (int ip = 0; ip < impl.codeSize; ip++)
+        {
+            if (depthAt[ip] == BytecodeVerifier.NOT_VISITED)
+            {
+                continue;
+            }
+            Instruction instruction = getInstruction(ip);
+            if (instruction == Instruction.BR || instruction == Instruction.BRF)
+            {
+                targets[getShort(ip + 1)] = true;
+            }
+        }
+        return targets;
+    }
+
+    private void translate(Instruction instruction, int ip)
+    {
+        int a;
+        int b;
+        int dest;
+        int nargs;
+        switch (instruction)
+        {
+            case LOAD_STR:
+                push(addConstant(impl.strings[getShort(ip + 1)]));
+                break;
+            case LOAD_LOCAL:
+                push(RegisterCode.local(getShort(ip + 1)));
+                break;
+            case CONST_OPTIONS:
+                push(addConstant(impl.optionSets[getShort(ip + 1)]));
+                break;
+            case NULL:
+                push(addConstant(null));
+                break;
+            case TRUE:
+                push(addConstant(Boolean.TRUE));
+                break;
+            case FALSE:
+                push(addConstant(Boolean.FALSE));
+                break;
+            case POP:
+                pop();
+                break;
+            case NOOP:
+                break;
+            case LOAD_ATTR:
+                emit(RegisterCode.LOAD_ATTR, ip, pushRegister(), getShort(ip + 1));
+                break;
+            case LOAD_PROP:
+                a = pop();
+                emit(RegisterCode.LOAD_PROP, ip, pushRegister(), a, getShort(ip + 1));
+                break;
+            case LOAD_PROP_IND:
+                b = pop();
+                a = pop();
+                emit(RegisterCode.LOAD_PROP_IND, ip, pushRegister(), a, b);
+                break;
+            case NEW:
+            case SUPER_NEW:
+                nargs = getShort(ip + 1 + Bytecode.OPND_SIZE_IN_BYTES);
+                dest = materializeTop(nargs);
+                emit(instruction == Instruction.NEW
+                    ? RegisterCode.NEW
+                    : RegisterCode.SUPER_NEW, ip, dest, getShort(ip + 1), nargs);
+                pushRegister();
+                break;
+            case NEW_IND:
+                nargs = getShort(ip + 1);
+                dest = materializeTop(nargs + 1);
+                emit(RegisterCode.NEW_IND, ip, dest, nargs);
+                pushRegister();
+                break;
+            case NEW_BOX_ARGS:
+            case SUPER_NEW_BOX_ARGS:
+                a = pop();
+                emit(instruction == Instruction.NEW_BOX_ARGS
+                    ? RegisterCode.NEW_BOX_ARGS
+                    : RegisterCode.SUPER_NEW_BOX_ARGS, ip, pushRegister(), getShort(ip + 1), a);
+                break;
+            case STORE_OPTION:
+                a = pop();
+                emit(RegisterCode.STORE_OPTION, ip, materializeTopInPlace(), a, getShort(ip + 1));
+                break;
+            case STORE_ARG:
+                a = pop();
+                emit(RegisterCode.STORE_ARG, ip, materializeTopInPlace(), a, getShort(ip + 1));
+                break;
+            case PASSTHRU:
+                emit(RegisterCode.PASSTHRU, ip, materializeTopInPlace(), getShort(ip + 1));
+                break;
+            case ADD:
+                a = pop();
+                emit(RegisterCode.ADD, ip, materializeTopInPlace(), a);
+                break;
+            case WRITE:
+                emit(RegisterCode.WRITE, ip, pop());
+                break;
+            case WRITE_OPT:
+                b = pop();
+                a = pop();
+                emit(RegisterCode.WRITE_OPT, ip, a, b);
+                break;
+            case MAP:
+                b = pop();
+                a = pop();
+                emit(RegisterCode.MAP, ip, pushRegister(), a, b);
+                break;
+            case ROT_MAP:
+            case ZIP_MAP:
+                translateMultiMap(instruction, ip);
+                break;
+            case BR:
+                materializeAll();
+                emit(RegisterCode.BR, ip, 0);
+                branches.add(new int[]{ pc - 1, getShort(ip + 1) });
+                break;
+            case BRF:
+                a = pop();
+                materializeAll();
+                emit(RegisterCode.BRF, ip, a, 0);
+                branches.add(new int[]{ pc - 1, getShort(ip + 1) });
+                break;
+            case OPTIONS:
+                emit(RegisterCode.OPTIONS, ip, pushRegister());
+                break;
+            case ARGS:
+                emit(RegisterCode.ARGS, ip, pushRegister());
+                break;
+            case LIST:
+                emit(RegisterCode.LIST, ip, pushRegister());
+                break;
+            case TOSTR:
+                translateUnary(RegisterCode.TOSTR, ip);
+                break;
+            case FIRST:
+                translateUnary(RegisterCode.FIRST, ip);
+                break;
+            case LAST:
+                translateUnary(RegisterCode.LAST, ip);
+                break;
+            case REST:
+                translateUnary(RegisterCode.REST, ip);
+                break;
+            case TRUNC:
+                translateUnary(RegisterCode.TRUNC, ip);
+                break;
+            case STRIP:
+                translateUnary(RegisterCode.STRIP, ip);
+                break;
+            case TRIM:
+                translateUnary(RegisterCode.TRIM, ip);
+                break;
+            case LENGTH:
+                translateUnary(RegisterCode.LENGTH, ip);
+                break;
+            case STRLEN:
+                translateUnary(RegisterCode.STRLEN, ip);
+                break;
+            case REVERSE:
+                translateUnary(RegisterCode.REVERSE, ip);
+                break;
+            case NOT:
+                translateUnary(RegisterCode.NOT, ip);
+                break;
+            case OR:
+            case AND:
+                b = pop();
+                a = pop();
+                emit(instruction == Instruction.OR
+                    ? RegisterCode.OR
+                    : RegisterCode.AND, ip, pushRegister(), a, b);
+                break;
+            case INDENT:
+                emit(RegisterCode.INDENT, ip, getShort(ip + 1));
+                break;
+            case DEDENT:
+                emit(RegisterCode.DEDENT, ip);
+                break;
+            case NEWLINE:
+                emit(RegisterCode.NEWLINE, ip);
+                break;
+            case WRITE_STR:
+                emit(RegisterCode.WRITE_STR, ip, getShort(ip + 1));
+                break;
+            default:
+                throw error(ip, "cannot translate " + instruction.formalName);
+        }
+    }
+
+    private void translateUnary(int opcode, int ip)
+    {
+        int a = pop();
+        emit(opcode, ip, pushRegister(), a);
+    }
+
+    /**
+     * {@link Instruction#ROT_MAP} pops the templates above the attribute, {@link Instruction#ZIP_MAP} pops the template
+     * above the attributes.
+     */
+    private void translateMultiMap(Instruction instruction, int ip)
+    {
+        int count = getShort(ip + 1);
+        int[] sources = new int[count];
+        int single;
+        if (instruction == Instruction.ROT_MAP)
+        {
+            for (int i = count - 1; i >= 0; i--)
+            {
+                sources[i] = pop();
+            }
+            single = pop();
+        }
+        else
+        {
+            single = pop();
+            for (int i = count - 1; i >= 0; i--)
+            {
+                sources[i] = pop();
+            }
+        }
+
+        emit(instruction == Instruction.ROT_MAP
+            ? RegisterCode.ROT_MAP
+            : RegisterCode.ZIP_MAP, ip, pushRegister(), single, count);
+        for (int source : sources)
+        {
+            append(source);
+        }
+    }
+
+    private void push(int operand)
+    {
+        stack[depth++] = operand;
+    }
+
+    /**
+     * Pushes the register of the next stack slot.
+     *
+     * @return the number of the register
+     */
+    private int pushRegister()
+    {
+        stack[depth] = RegisterCode.register(depth);
+        return depth++;
+    }
+
+    private int pop()
+    {
+        return stack[--depth];
+    }
+
+    private int addConstant(Object value)
+    {
+        constants.add(value);
+        return RegisterCode.constant(constants.size() - 1);
+    }
+
+    /**
+     * Copies the given number of operands on top of the stack into their registers and pops them.
+     *
+     * @return the number of the lowest register
+     */
+    private int materializeTop(int count)
+    {
+        for (int i = depth - count; i < depth; i++)
+        {
+            materialize(i);
+        }
+        depth -= count;
+        return depth;
+    }
+
+    /**
+     * Copies the operand on top of the stack into its register, for instructions that modify the value and leave it on
+     * the stack.
+     *
+     * @return the number of the register
+     */
+    private int materializeTopInPlace()
+    {
+        materialize(depth - 1);
+        return depth - 1;
+    }
+
+    private void materializeAll()
+    {
+        for (int i = 0; i < depth; i++)
+        {
+            materialize(i);
+        }
+    }
+
+    private void materialize(int slot)
+    {
+        if ((stack[slot] & RegisterCode.KIND_MASK) != RegisterCode.REGISTER)
+        {
+            // attributed to the instruction executed last, so that MOVE does not affect NEWLINE
+            emit(RegisterCode.MOVE, lastIp, slot, stack[slot]);
+            stack[slot] = RegisterCode.register(slot);
+        }
+    }
+
+    private void emit(int opcode, int ip, int... operands)
+    {
+        append(opcode);
+        append(ip);
+        for (int operand : operands)
+        {
+            append(operand);
+        }
+        lastEmittedIp = ip;
+    }
+
+    private void append(int value)
+    {
+        if (pc == code.length)
+        {
+            code = Arrays.copyOf(code, code.length * 2);
+        }
+        code[pc++] = value;
+    }
+
+    /**
+     * Superinstructions are translated as the instruction they replaced; the instruction they also execute follows.
+     */
+    private Instruction getInstruction(int ip)
+    {
+        Instruction instruction = Bytecode.INSTRUCTIONS[impl.instrs[ip]];
+        return instruction.expansion != null
+            ? instruction.expansion
+            : instruction;
+    }
+
+    private int getShort(int ip)
+    {
+        return Misc.getShort(impl.instrs, ip);
+    }
+
+    private CodeInconsistencyException error(int ip, String message)
+    {
+        return new CodeInconsistencyException("cannot translate code of " + impl.name + " @ " + ip + ": " + message);
+    }
+}
@@ -0,0 +1,13 @@
+package org.puretemplate;
+
+import lombok.Value;
+
+@Value
+class RegisterInterpreterHandle implements Handle
+{
+    @Override
+    public void registerWith(STGroup stGroup)
+    {
+        stGroup.registerInterpreter = true;
+    }
+}
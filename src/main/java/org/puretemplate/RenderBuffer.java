@@ -0,0 +1,287 @@
+package org.puretemplate;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Arrays;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * Collects the output of a {@link org.puretemplate.model.StreamingAttributeRenderer StreamingAttributeRenderer} for a
+ * single value. The buffer is reused for all values written by an interpreter, so rendering a value allocates nothing
+ * once the buffer has grown to the size of the largest value.
+ * <p>
+ * For values without a renderer, {@link #appendValue(Object)} produces the result of {@code toString()} for boxed
+ * primitives and the common {@code java.time} types without creating that string.</p>
+ * <p>
+ * The value is passed to the {@link TemplateWriter} with a single call so that the writer sees the same sequence of
+ * calls as for a renderer returning a {@link String}.</p>
+ */
+@NotThreadSafe
+final class RenderBuffer implements Appendable
+{
+    /**
+     * The two-digit decimal representations of 0 to 99, first digits in {@link #TENS}, second digits in {@link #ONES}.
+     */
+    private static final char[] TENS = new char[100];
+    private static final char[] ONES = new char[100];
+
+    static
+    {
+        for (int i = 0; i < 100; i++)
+        {
+            TENS[i] = (char) ('0' + i / 10);
+            ONES[i] = (char) ('0' + i % 10);
+        }
+    }
+
+    private char[] chars = new char[256];
+    private int length;
+
+    /**
+     * Used for floating point values, which {@link StringBuilder} can format without creating a string.
+     */
+    private StringBuilder scratch;
+
+    void clear()
+    {
+        length = 0;
+    }
+
+    int writeTo(TemplateWriter out) throws IOException
+    {
+        return out.write(chars, 0, length);
+    }
+
+    private void ensureCapacity(int additional)
+    {
+        int required = length + additional;
+        if (required > chars.length)
+        {
+            chars = Arrays.copyOf(chars, Math.max(required, chars.length * 2));
+        }
+    }
+
+    @Override
+    public RenderBuffer append(CharSequence csq)
+    {
+        if (csq == null)
+        {
+            csq = "null";
+        }
+        return append(csq, 0, csq.length());
+    }
+
+    @Override
+    public RenderBuffer append(CharSequence csq, int start, int end)
+    {
+        if (csq == null)
+        {
+            csq = "null";
+        }
+        ensureCapacity(end - start);
+        if (csq instanceof String)
+        {
+            ((String) csq).getChars(start, end, chars, length);
+        }
+        else if (csq instanceof StringBuilder)
+        {
+            ((StringBuilder) csq).getChars(start, end, chars, length);
+        }
+        else
+        {
+            for (int i = start; i < end; i++)
+            {
+                chars[length + i - start] = csq.charAt(i);
+            }
+        }
+        length += end - start;
+        return this;
+    }
+
+    @Override
+    public RenderBuffer append(char c)
+    {
+        ensureCapacity(1);
+        chars[length++] = c;
+        return this;
+    }
+
+    /**
+     * Appends the result of {@code value.toString()} if the type of {@code value} is supported.
+     *
+     * @return {@code true} if the value was appended, {@code false} if the type is not supported
+     */
+    boolean appendValue(Object value)
+    {
+        Class<?> type = value.getClass();
+        if (type == Integer.class || type == Long.class || type == Short.class || type == Byte.class)
+        {
+            appendLong(((Number) value).longValue());
+        }
+        else if (type == Double.class || type == Float.class)
+        {
+            if (scratch == null)
+            {
+                scratch = new StringBuilder(32);
+            }
+            scratch.setLength(0);
+            if (type == Double.class)
+            {
+                scratch.append((double) (Double) value);
+            }
+            else
+            {
+                scratch.append((float) (Float) value);
+            }
+            append(scratch, 0, scratch.length());
+        }
+        else if (type == Boolean.class)
+        {
+            append((Boolean) value
+                ? "true"
+                : "false");
+        }
+        else if (type == Character.class)
+        {
+            append((char) (Character) value);
+        }
+        else if (type == LocalDate.class)
+        {
+            appendDate((LocalDate) value);
+        }
+        else if (type == LocalTime.class)
+        {
+            appendTime((LocalTime) value);
+        }
+        else if (type == LocalDateTime.class)
+        {
+            LocalDateTime dateTime = (LocalDateTime) value;
+            appendDate(dateTime.toLocalDate());
+            append('T');
+            appendTime(dateTime.toLocalTime());
+        }
+        else
+        {
+            return false;
+        }
+        return true;
+    }
+
+    void appendLong(long value)
+    {
+        if (value == Long.MIN_VALUE)
+        {
+            // cannot be negated
+            append("-9223372036854775808");
+            return;
+        }
+
+        if (value < 0)
+        {
+            append('-');
+            value = -value;
+        }
+
+        int digits = 1;
+        for (long limit = 10; digits < 19 && value >= limit; limit *= 10)
+        {
+            digits++;
+        }
+        ensureCapacity(digits);
+
+        int position = length + digits;
+        while (value >= 100)
+        {
+            int pair = (int) (value % 100);
+            value /= 100;
+            chars[--position] = ONES[pair];
+            chars[--position] = TENS[pair];
+        }
+        int pair = (int) value;
+        chars[--position] = ONES[pair];
+        if (pair >= 10)
+        {
+            chars[--position] = TENS[pair];
+        }
+        length += digits;
+    }
+
+    /**
+     * Appends a non-negative value, padded with zeros to the given number of digits.
+     */
+    private void appendPadded(int value, int digits)
+    {
+        ensureCapacity(digits);
+        int position = length + digits;
+        for (int i = 0; i < digits; i++)
+        {
+            chars[--position] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        length += digits;
+    }
+
+    /**
+     * Same format as {@link LocalDate#toString()}.
+     */
+    private void appendDate(LocalDate date)
+    {
+        int year = date.getYear();
+        if (Math.abs(year) < 1000)
+        {
+            if (year < 0)
+            {
+                append('-');
+            }
+            appendPadded(Math.abs(year), 4);
+        }
+        else
+        {
+            if (year > 9999)
+            {
+                append('+');
+            }
+            appendLong(year);
+        }
+        append('-');
+        appendPadded(date.getMonthValue(), 2);
+        append('-');
+        appendPadded(date.getDayOfMonth(), 2);
+    }
+
+    /**
+     * Same format as {@link LocalTime#toString()}.
+     */
+    private void appendTime(LocalTime time)
+    {
+        appendPadded(time.getHour(), 2);
+        append(':');
+        appendPadded(time.getMinute(), 2);
+        int second = time.getSecond();
+        int nano = time.getNano();
+        if (second > 0 || nano > 0)
+        {
+            append(':');
+            appendPadded(second, 2);
+            if (nano > 0)
+            {
+                append('.');
+                if (nano % 1_000_000 == 0)
+                {
+                    appendPadded(nano / 1_000_000, 3);
+                }
+                else if (nano % 1000 == 0)
+                {
+                    appendPadded(nano / 1000, 6);
+                }
+                else
+                {
+                    appendPadded(nano, 9);
+                }
+            }
+        }
+    }
+}
@@ -6,12 +6,15 @@ import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.StringWriter;
 import java.io.Writer;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.OpenOption;
 import java.nio.file.Path;
 import java.util.Locale;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow.Publisher;
 
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
@@ -83,8 +86,18 @@ class RendererAction implements IRendererAction
     @Override
     public int intoWriter(@NonNull Writer writer)
     {
-        TemplateWriter templateWriter = new AutoIndentWriter(writer);
-        templateWriter.setLineWidth(lineWidth);
+        TemplateWriter templateWriter;
+        if (lineWidth == TemplateWriter.NO_WRAP &&
+            !st.getImpl()
+                .usesLayoutOptions())
+        {
+            templateWriter = new PlainIndentWriter(writer);
+        }
+        else
+        {
+            templateWriter = new AutoIndentWriter(writer);
+            templateWriter.setLineWidth(lineWidth);
+        }
         return st.write(templateWriter, locale, errorListener);
     }
 
@@ -116,4 +129,50 @@ class RendererAction implements IRendererAction
         intoWriter(result);
         return result.toString();
     }
+
+    /**
+     * Renders the template in chunks of UTF-8 encoded bytes, using a shared pool of daemon threads. The pool has a
+     * fixed maximum size; subscriptions beyond it wait for a thread to become available.
+     *
+     * @return a publisher that renders the template once per subscription
+     *
+     * @see #intoPublisher(Charset, Executor)
+     */
+    @Override
+    public Publisher<ByteBuffer> intoPublisher()
+    {
+        return intoPublisher(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Renders the template in chunks of encoded bytes, using a shared pool of daemon threads. The pool has a fixed
+     * maximum size; subscriptions beyond it wait for a thread to become available.
+     *
+     * @return a publisher that renders the template once per subscription
+     *
+     * @see #intoPublisher(Charset, Executor)
+     */
+    @Override
+    public Publisher<ByteBuffer> intoPublisher(@NonNull Charset charset)
+    {
+        return intoPublisher(charset, RenderingPublisher.DEFAULT_EXECUTOR);
+    }
+
+    /**
+     * Renders the template in chunks of encoded bytes. For each subscription, the template is rendered by a task
+     * submitted to the given executor. That task blocks while the subscriber has no outstanding demand, so the
+     * executor must not be shared with the subscriber if the latter relies on it to make progress.<br>
+     * <br>
+     * If the subscription is cancelled, rendering stops at the next write and the remainder of the output is
+     * discarded. Errors thrown while rendering are passed to {@code onError}; instances of {@link Error} are rethrown
+     * afterwards so that the executor sees them, too. Each buffer is passed to the subscriber exactly once; the
+     * subscriber owns it and may keep it.
+     *
+     * @return a publisher that renders the template once per subscription
+     */
+    @Override
+    public Publisher<ByteBuffer> intoPublisher(@NonNull Charset charset, @NonNull Executor executor)
+    {
+        return new RenderingPublisher(this::intoWriter, charset, executor);
+    }
 }
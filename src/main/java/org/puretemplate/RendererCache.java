@@ -0,0 +1,111 @@
+package org.puretemplate;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+import org.puretemplate.model.AttributeRenderer;
+
+/**
+ * Remembers the renderers an interpreter looked up during a rendering operation, so that the synchronized registry of
+ * the group is only consulted once per attribute type. Types without a renderer are remembered as well.
+ * <p>
+ * As there are typically only a handful of attribute types per rendering operation, this is a small open-addressing
+ * hash table with linear probing. Entries are keyed by the native group and the attribute type, as templates from
+ * imported groups use the renderers of the group that defines them.</p>
+ */
+@NotThreadSafe
+final class RendererCache
+{
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * Marks types for which the group has no renderer.
+     */
+    private static final Object NO_RENDERER = new Object();
+
+    private STGroup[] groups = new STGroup[INITIAL_CAPACITY];
+    private Class<?>[] types = new Class<?>[INITIAL_CAPACITY];
+    private Object[] renderers = new Object[INITIAL_CAPACITY];
+    private int size;
+
+    /**
+     * Returns the renderer that the given group uses for the given type, or {@code null} if there is none.
+     */
+    <T> AttributeRenderer<? super T> get(STGroup group, Class<T> attributeType)
+    {
+        int mask = types.length - 1;
+        int index = indexFor(group, attributeType, mask);
+        Class<?> type;
+        while ((type = types[index]) != null)
+        {
+            if (type == attributeType && groups[index] == group)
+            {
+                return unwrap(renderers[index]);
+            }
+            index = (index + 1) & mask;
+        }
+
+        AttributeRenderer<? super T> renderer = group.getAttributeRenderer(attributeType);
+        insert(index, group, attributeType, renderer != null
+            ? renderer
+            : NO_RENDERER);
+        return renderer;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> AttributeRenderer<? super T> unwrap(Object renderer)
+    {
+        if (renderer == NO_RENDERER)
+        {
+            return null;
+        }
+        return (AttributeRenderer<? super T>) renderer;
+    }
+
+    private static int indexFor(STGroup group, Class<?> type, int mask)
+    {
+        int hash = System.identityHashCode(type) * 31 + System.identityHashCode(group);
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    private void insert(int index, STGroup group, Class<?> type, Object renderer)
+    {
+        groups[index] = group;
+        types[index] = type;
+        renderers[index] = renderer;
+        size++;
+
+        // keep the load factor at or below 1/2 so that probe sequences stay short
+        if (size * 2 > types.length)
+        {
+            rehash();
+        }
+    }
+
+    private void rehash()
+    {
+        STGroup[] oldGroups = groups;
+        Class<?>[] oldTypes = types;
+        Object[] oldRenderers = renderers;
+
+        int capacity = oldTypes.length * 2;
+        groups = new STGroup[capacity];
+        types = new Class<?>[capacity];
+        renderers = new Object[capacity];
+
+        int mask = capacity - 1;
+        for (int i = 0; i < oldTypes.length; i++)
+        {
+            if (oldTypes[i] != null)
+            {
+                int index = indexFor(oldGroups[i], oldTypes[i], mask);
+                while (types[index] != null)
+                {
+                    index = (index + 1) & mask;
+                }
+                groups[index] = oldGroups[i];
+                types[index] = oldTypes[i];
+                renderers[index] = oldRenderers[i];
+            }
+        }
+    }
+}
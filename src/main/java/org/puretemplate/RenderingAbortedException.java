@@ -0,0 +1,14 @@
+package org.puretemplate;
+
+/**
+ * Thrown by a writer to stop the rendering operation writing to it, e.g. because the consumer of the output went away.
+ * The interpreter passes it on instead of reporting it as an error, so it reaches the code that started rendering.
+ */
+final class RenderingAbortedException extends RuntimeException
+{
+    RenderingAbortedException()
+    {
+        // not an error, so there is no need to fill in the stack trace
+        super(null, null, false, false);
+    }
+}
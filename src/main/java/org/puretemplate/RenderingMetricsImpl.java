@@ -0,0 +1,33 @@
+package org.puretemplate;
+
+import java.time.Duration;
+import java.util.List;
+
+import lombok.Builder;
+import lombok.Value;
+
+import org.puretemplate.diagnostics.RenderingMetrics;
+import org.puretemplate.diagnostics.TemplateMetrics;
+
+@Value
+@Builder
+class RenderingMetricsImpl implements RenderingMetrics
+{
+    List<TemplateMetrics> templateMetrics;
+    long modelAdaptorLookupCount;
+    long fragmentCacheHitCount;
+    long fragmentCacheMissCount;
+    long compilationCount;
+    Duration compilationTime;
+    long runtimeErrorCount;
+
+    @Override
+    public List<TemplateMetrics> getTopTemplatesByTime(int limit)
+    {
+        if (limit < 0)
+        {
+            throw new IllegalArgumentException("limit must be >= 0");
+        }
+        return templateMetrics.subList(0, Math.min(limit, templateMetrics.size()));
+    }
+}
@@ -0,0 +1,368 @@
+package org.puretemplate;
+
+import java.io.InterruptedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+
+import com.github.mizool.core.exception.CodeInconsistencyException;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Publishes the output of a rendering operation as a stream of encoded chunks. Each subscription renders the template
+ * anew on a thread obtained from the executor. That thread blocks whenever a chunk is ready but the subscriber has not
+ * requested it yet, so the amount of buffered output is bounded by the chunk size regardless of the output size.
+ * <p>
+ * Once the subscription is cancelled or the subscriber received {@code onError}, the next write aborts the rendering
+ * operation with a {@link RenderingAbortedException}.</p>
+ */
+@ThreadSafe
+@RequiredArgsConstructor
+final class RenderingPublisher implements Flow.Publisher<ByteBuffer>
+{
+    /**
+     * The number of characters encoded into a single buffer.
+     */
+    static final int CHUNK_SIZE = 8192;
+
+    /**
+     * The maximum number of threads of {@link #DEFAULT_EXECUTOR}. As rendering threads block while their subscribers
+     * have no demand, there are more of them than processors.
+     */
+    static final int DEFAULT_EXECUTOR_THREADS = Math.max(4,
+        Runtime.getRuntime()
+            .availableProcessors() * 2);
+
+    /**
+     * Used if the caller does not supply an executor. Shared by all publishers, so the number of rendering threads is
+     * bounded; further subscriptions wait until a thread is available. The threads are daemon threads so that
+     * abandoned subscriptions don't keep the JVM alive, and they end when idle for a minute.
+     */
+    static final Executor DEFAULT_EXECUTOR = createDefaultExecutor();
+
+    private static Executor createDefaultExecutor()
+    {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(DEFAULT_EXECUTOR_THREADS,
+            DEFAULT_EXECUTOR_THREADS,
+            1,
+            TimeUnit.MINUTES,
+            new LinkedBlockingQueue<>(),
+            new ThreadFactoryBuilder().setNameFormat("puretemplate-rendering-%d")
+                .setDaemon(true)
+                .build());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private final @NonNull Consumer<Writer> renderingOperation;
+    private final @NonNull Charset charset;
+    private final @NonNull Executor executor;
+
+    @Override
+    public void subscribe(@NonNull Flow.Subscriber<? super ByteBuffer> subscriber)
+    {
+        ChunkWriter chunkWriter = new ChunkWriter(subscriber, charset.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE));
+        subscriber.onSubscribe(chunkWriter);
+        executor.execute(() -> chunkWriter.run(renderingOperation));
+    }
+
+    /**
+     * Receives the output of one rendering operation and hands it to the subscriber in chunks. All subscriber methods
+     * except {@code onSubscribe} are invoked on the rendering thread.
+     * <p>
+     * Chunks are encoded into a buffer allocated once per subscription. The subscriber owns each buffer it receives
+     * and may keep it, so it gets an exactly sized copy of the encoded bytes.</p>
+     */
+    private static final class ChunkWriter extends Writer implements Flow.Subscription
+    {
+        private final Flow.Subscriber<? super ByteBuffer> subscriber;
+        private final CharsetEncoder encoder;
+        private final char[] chunk = new char[CHUNK_SIZE];
+        private int chunkLength;
+        private final ByteBuffer encoded;
+
+        @GuardedBy("this")
+        private long demand;
+
+        /**
+         * Guarded by {@code this} for waiting, volatile so that writes can check it without locking.
+         */
+        private volatile boolean cancelled;
+
+        @GuardedBy("this")
+        private Throwable failure;
+
+        /**
+         * Set on the rendering thread once the subscriber received {@code onComplete} or {@code onError}, or the
+         * subscription was cancelled. From then on, writing aborts rendering.
+         */
+        private boolean done;
+
+        ChunkWriter(Flow.Subscriber<? super ByteBuffer> subscriber, CharsetEncoder encoder)
+        {
+            this.subscriber = subscriber;
+            this.encoder = encoder;
+
+            // one more character for the high surrogate kept from the previous chunk
+            encoded = ByteBuffer.allocate((int) Math.ceil(encoder.maxBytesPerChar() * (CHUNK_SIZE + 1)));
+        }
+
+        @Override
+        public synchronized void request(long n)
+        {
+            if (n <= 0)
+            {
+                // Reactive Streams rule 3.9
+                failure = new IllegalArgumentException("non-positive subscription request: " + n);
+            }
+            else
+            {
+                demand += n;
+                if (demand < 0)
+                {
+                    demand = Long.MAX_VALUE;
+                }
+            }
+            notifyAll();
+        }
+
+        @Override
+        public synchronized void cancel()
+        {
+            cancelled = true;
+            notifyAll();
+        }
+
+        void run(Consumer<Writer> renderingOperation)
+        {
+            try
+            {
+                renderingOperation.accept(this);
+                encodeChunk(true);
+                complete();
+            }
+            catch (RenderingAbortedException e)
+            {
+                // the subscription was cancelled or the subscriber already received onError
+            }
+            catch (Throwable t)
+            {
+                fail(t);
+
+                // let the executor see errors like OutOfMemoryError, too
+                if (t instanceof Error)
+                {
+                    throw (Error) t;
+                }
+            }
+        }
+
+        /**
+         * Signals the end of the output, unless the subscription was cancelled. A failure of the subscription is
+         * signalled instead, even if there was no output that would have made {@link #awaitDemand()} notice it.
+         */
+        private void complete()
+        {
+            if (done)
+            {
+                return;
+            }
+
+            Throwable pendingFailure;
+            synchronized (this)
+            {
+                if (cancelled)
+                {
+                    done = true;
+                    return;
+                }
+                pendingFailure = failure;
+            }
+
+            if (pendingFailure != null)
+            {
+                fail(pendingFailure);
+            }
+            else
+            {
+                done = true;
+                subscriber.onComplete();
+            }
+        }
+
+        private void checkNotAborted()
+        {
+            if (cancelled)
+            {
+                done = true;
+            }
+            if (done)
+            {
+                throw new RenderingAbortedException();
+            }
+        }
+
+        @Override
+        public void write(int c)
+        {
+            checkNotAborted();
+            chunk[chunkLength++] = (char) c;
+            if (chunkLength == chunk.length)
+            {
+                encodeChunk(false);
+            }
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len)
+        {
+            while (len > 0)
+            {
+                checkNotAborted();
+                int count = Math.min(len, chunk.length - chunkLength);
+                System.arraycopy(cbuf, off, chunk, chunkLength, count);
+                chunkLength += count;
+                off += count;
+                len -= count;
+                if (chunkLength == chunk.length)
+                {
+                    encodeChunk(false);
+                }
+            }
+        }
+
+        @Override
+        public void write(String str, int off, int len)
+        {
+            while (len > 0)
+            {
+                checkNotAborted();
+                int count = Math.min(len, chunk.length - chunkLength);
+                str.getChars(off, off + count, chunk, chunkLength);
+                chunkLength += count;
+                off += count;
+                len -= count;
+                if (chunkLength == chunk.length)
+                {
+                    encodeChunk(false);
+                }
+            }
+        }
+
+        /**
+         * Chunks are only emitted when full, so flushing has no effect.
+         */
+        @Override
+        public void flush()
+        {
+        }
+
+        @Override
+        public void close()
+        {
+        }
+
+        private void encodeChunk(boolean endOfInput)
+        {
+            if (done)
+            {
+                return;
+            }
+
+            CharBuffer in = CharBuffer.wrap(chunk, 0, chunkLength);
+            encoded.clear();
+            CoderResult result = encoder.encode(in, encoded, endOfInput);
+            if (endOfInput && result.isUnderflow())
+            {
+                result = encoder.flush(encoded);
+            }
+            if (!result.isUnderflow())
+            {
+                throw new CodeInconsistencyException("Output buffer too small for encoding " + encoder.charset());
+            }
+
+            // a high surrogate at the end of the chunk stays in the buffer until its low surrogate arrives
+            chunkLength = in.remaining();
+            in.get(chunk, 0, chunkLength);
+
+            encoded.flip();
+            if (encoded.hasRemaining() && awaitDemand())
+            {
+                ByteBuffer out = ByteBuffer.allocate(encoded.remaining());
+                out.put(encoded);
+                out.flip();
+                subscriber.onNext(out);
+            }
+        }
+
+        /**
+         * @return {@code true} if the next chunk may be sent, {@code false} if output is to be discarded from now on
+         */
+        private boolean awaitDemand()
+        {
+            Throwable pendingFailure;
+            synchronized (this)
+            {
+                try
+                {
+                    while (demand == 0 && !cancelled && failure == null)
+                    {
+                        wait();
+                    }
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread()
+                        .interrupt();
+                    InterruptedIOException interruptedIOException = new InterruptedIOException(
+                        "Interrupted while waiting for subscription request");
+                    interruptedIOException.initCause(e);
+                    failure = interruptedIOException;
+                }
+
+                if (cancelled)
+                {
+                    done = true;
+                    return false;
+                }
+
+                pendingFailure = failure;
+                if (pendingFailure == null)
+                {
+                    demand--;
+                    return true;
+                }
+            }
+
+            fail(pendingFailure);
+            return false;
+        }
+
+        private void fail(Throwable throwable)
+        {
+            if (!done)
+            {
+                done = true;
+                subscriber.onError(throwable);
+            }
+        }
+    }
+}
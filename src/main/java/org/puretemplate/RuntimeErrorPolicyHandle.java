@@ -0,0 +1,23 @@
+package org.puretemplate;
+
+import lombok.Value;
+
+import org.puretemplate.error.RuntimeErrorPolicy;
+
+@Value
+class RuntimeErrorPolicyHandle implements Handle
+{
+    RuntimeErrorPolicy policy;
+
+    @Override
+    public void prepare(STGroup stGroup)
+    {
+        stGroup.setRuntimeErrorPolicy(policy);
+    }
+
+    @Override
+    public void registerWith(STGroup stGroup)
+    {
+        // prepare() already did the work so that the policy also applies while loading
+    }
+}
@@ -6,13 +6,13 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 import lombok.NonNull;
@@ -25,10 +25,12 @@ import org.antlr.runtime.RecognitionException;
 import org.antlr.runtime.Token;
 import org.puretemplate.error.ErrorListener;
 import org.puretemplate.error.ErrorType;
+import org.puretemplate.error.RuntimeErrorPolicy;
 import org.puretemplate.exception.TemplateException;
 import org.puretemplate.model.Aggregate;
 import org.puretemplate.model.AggregateModelAdaptor;
 import org.puretemplate.model.AttributeRenderer;
+import org.puretemplate.model.CompiledDictionary;
 import org.puretemplate.model.MapModelAdaptor;
 import org.puretemplate.model.ModelAdaptor;
 import org.puretemplate.model.ObjectModelAdaptor;
@@ -65,10 +67,21 @@ abstract class STGroup
     protected Map<String, CompiledST> templates = Collections.synchronizedMap(new LinkedHashMap<>());
 
     /**
-     * Maps dictionary names to {@link Map} objects representing the dictionaries defined by the user like {@code
-     * typeInitMap ::= ["int":"0"]}.
+     * Maps dictionary names to {@link CompiledDictionary} objects representing the dictionaries defined by the user like
+     * {@code typeInitMap ::= ["int":"0"]}. This map is concurrent so that lookups while rendering don't lock.
      */
-    protected Map<String, Map<String, Object>> dictionaries = Collections.synchronizedMap(new HashMap<>());
+    protected Map<String, Map<String, Object>> dictionaries = new ConcurrentHashMap<>();
+
+    /**
+     * Shares strings and code among the templates defined in this group.
+     */
+    final ConstantPool constantPool = new ConstantPool();
+
+    /**
+     * Whether templates defined afterwards are added to {@link #constantPool}. Only turned off to measure the footprint
+     * of groups without the pool, see {@code ConstantPoolFootprint} in the tests.
+     */
+    boolean internConstants = true;
 
     /**
      * A dictionary that allows people to register a renderer for a particular kind of object for any template evaluated
@@ -91,6 +104,21 @@ abstract class STGroup
 
     private boolean legacyRendering;
 
+    /**
+     * Output cache for templates the user registered as cacheable, {@code null} if there are none.
+     */
+    FragmentCache fragmentCache;
+
+    /**
+     * Receives rendering and compilation metrics if the user enabled them, {@code null} otherwise.
+     */
+    MetricsSink metrics;
+
+    /**
+     * Whether templates are executed with the register-based interpreter, see {@link RegisterCode}.
+     */
+    boolean registerInterpreter;
+
     /**
      * A dictionary that allows people to register a model adaptor for a particular kind of object (subclass or
      * implementation). Applies for any template evaluated relative to this group.
@@ -198,7 +226,7 @@ abstract class STGroup
         ST st = getInstanceOf(fullyQualifiedName);
         if (st == null)
         {
-            errMgr.runTimeError(scope.toLocation(), ErrorType.NO_SUCH_TEMPLATE, fullyQualifiedName);
+            errMgr.runTimeError(scope, ErrorType.NO_SUCH_TEMPLATE, fullyQualifiedName);
             return createStringTemplateInternally(new CompiledST());
         }
         return st;
@@ -361,6 +389,22 @@ abstract class STGroup
     @VisibleForTesting
     CompiledST defineTemplate(
         String fullyQualifiedTemplateName, Token nameT, List<FormalArgument> args, String template, Token templateToken)
+    {
+        CompiledST code = compileTemplate(fullyQualifiedTemplateName, args, template, templateToken, errMgr);
+        return defineCompiledTemplate(fullyQualifiedTemplateName, nameT, code);
+    }
+
+    /**
+     * Compiles a template without defining it. Does not modify this group, so it can be called concurrently.
+     *
+     * @param errMgr receives compile errors
+     */
+    CompiledST compileTemplate(
+        String fullyQualifiedTemplateName,
+        List<FormalArgument> args,
+        String template,
+        Token templateToken,
+        ErrorManager errMgr)
     {
         log.debug("defineTemplate({})", fullyQualifiedTemplateName);
         if (fullyQualifiedTemplateName == null || fullyQualifiedTemplateName.length() == 0)
@@ -374,7 +418,14 @@ abstract class STGroup
         template = Misc.trimOneStartingNewline(template);
         template = Misc.trimOneTrailingNewline(template);
         // compile, passing in templateName as enclosing name for any embedded regions
-        CompiledST code = compile(getFileName(), fullyQualifiedTemplateName, args, template, templateToken);
+        return compile(getFileName(), fullyQualifiedTemplateName, args, template, templateToken, errMgr);
+    }
+
+    /**
+     * Defines a template compiled by {@link #compileTemplate(String, List, String, Token, ErrorManager)}.
+     */
+    CompiledST defineCompiledTemplate(String fullyQualifiedTemplateName, Token nameT, CompiledST code)
+    {
         code.name = fullyQualifiedTemplateName;
         rawDefineTemplate(fullyQualifiedTemplateName, code, nameT);
         code.defineArgDefaultValueTemplates(this);
@@ -402,10 +453,29 @@ abstract class STGroup
 
     private CompiledST defineRegion(String enclosingTemplateName, Token regionT, String template, Token templateToken)
     {
-        String name = regionT.getText();
+        CompiledST code = compileRegion(enclosingTemplateName, template, templateToken, errMgr);
+        return defineCompiledRegion(enclosingTemplateName, regionT, templateToken, code);
+    }
+
+    /**
+     * Compiles an explicitly defined region without defining it. Does not modify this group, so it can be called
+     * concurrently.
+     *
+     * @param errMgr receives compile errors
+     */
+    CompiledST compileRegion(String enclosingTemplateName, String template, Token templateToken, ErrorManager errMgr)
+    {
         template = Misc.trimOneStartingNewline(template);
         template = Misc.trimOneTrailingNewline(template);
-        CompiledST code = compile(getFileName(), enclosingTemplateName, null, template, templateToken);
+        return compile(getFileName(), enclosingTemplateName, null, template, templateToken, errMgr);
+    }
+
+    /**
+     * Defines a region compiled by {@link #compileRegion(String, String, Token, ErrorManager)}.
+     */
+    CompiledST defineCompiledRegion(String enclosingTemplateName, Token regionT, Token templateToken, CompiledST code)
+    {
+        String name = regionT.getText();
         String mangled = getMangledRegionName(enclosingTemplateName, name);
 
         if (lookupTemplate(mangled) == null)
@@ -480,6 +550,10 @@ abstract class STGroup
         }
         code.nativeGroup = this;
         code.templateDefStartToken = defT;
+        if (internConstants)
+        {
+            constantPool.intern(code);
+        }
         templates.put(name, code);
     }
 
@@ -493,8 +567,27 @@ abstract class STGroup
         String template,
         Token templateToken) // for error location
     {
-        Compiler c = new Compiler(this);
-        return c.compile(sourceName, name, args, template, templateToken);
+        return compile(sourceName, name, args, template, templateToken, errMgr);
+    }
+
+    private CompiledST compile(
+        String sourceName,
+        String name,
+        List<FormalArgument> args,
+        String template,
+        Token templateToken,
+        ErrorManager errMgr)
+    {
+        Compiler c = new Compiler(this, errMgr);
+        if (metrics == null)
+        {
+            return c.compile(sourceName, name, args, template, templateToken);
+        }
+
+        long start = System.nanoTime();
+        CompiledST result = c.compile(sourceName, name, args, template, templateToken);
+        metrics.recordCompilation(System.nanoTime() - start);
+        return result;
     }
 
     /**
@@ -526,7 +619,7 @@ abstract class STGroup
      */
     public void defineDictionary(String name, Map<String, Object> mapping)
     {
-        dictionaries.put(name, mapping);
+        dictionaries.put(name, new CompiledDictionary(mapping));
     }
 
     /**
@@ -751,7 +844,12 @@ abstract class STGroup
     @VisibleForTesting
     public void setListener(ErrorListener listener)
     {
-        errMgr = new ErrorManager(listener);
+        errMgr = errMgr.withListener(listener);
+    }
+
+    void setRuntimeErrorPolicy(RuntimeErrorPolicy runtimeErrorPolicy)
+    {
+        errMgr = errMgr.withRuntimeErrorPolicy(runtimeErrorPolicy);
     }
 
     @VisibleForTesting
@@ -783,7 +881,7 @@ abstract class STGroup
         ErrorManager errorManager = errMgr;
         if (listener != null)
         {
-            errorManager = new ErrorManager(listener);
+            errorManager = errorManager.withListener(listener);
         }
         return createInterpreterInternal(locale, errorManager);
     }
@@ -795,6 +893,11 @@ abstract class STGroup
 
     private Interpreter createInterpreterInternal(@NonNull Locale locale, ErrorManager errorManager)
     {
+        if (metrics != null)
+        {
+            errorManager = errorManager.withListener(metrics.countRuntimeErrors(errorManager.listener));
+        }
+
         if (legacyRendering)
         {
             return new LegacyInterpreter(this, locale, errorManager);
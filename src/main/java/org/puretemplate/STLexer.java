@@ -155,6 +155,10 @@ class STLexer implements TokenSource
     Token templateToken;
 
     CharStream input;
+    /**
+     * {@link #input} if literal text can be scanned in bulk, otherwise {@code null}
+     */
+    TemplateCharStream textInput;
     /**
      * current character
      */
@@ -187,6 +191,9 @@ class STLexer implements TokenSource
     {
         this.errMgr = errMgr;
         this.input = input;
+        textInput = input instanceof TemplateCharStream
+            ? (TemplateCharStream) input
+            : null;
         c = (char) input.LA(1); // prime lookahead
         this.templateToken = templateToken;
         this.delimiterStartChar = delimiterStartChar;
@@ -565,10 +572,24 @@ class STLexer implements TokenSource
 
     Token mTEXT()
     {
-        boolean modifiedText = false;
-        StringBuilder buf = new StringBuilder();
+        // only created once an escape modifies the text, most text is taken from the input as is
+        StringBuilder buf = null;
         while (c != EOF && c != delimiterStartChar)
         {
+            if (textInput != null)
+            {
+                int start = input.index();
+                int count = textInput.consumeText(delimiterStartChar, subtemplateDepth > 0);
+                if (count > 0)
+                {
+                    if (buf != null)
+                    {
+                        buf.append(input.substring(start, start + count - 1));
+                    }
+                    c = (char) input.LA(1);
+                    continue;
+                }
+            }
             if (c == '\r' || c == '\n')
             {
                 break;
@@ -582,30 +603,36 @@ class STLexer implements TokenSource
                 if (input.LA(2) == '\\')
                 {
                     // convert \\ to \
+                    buf = startModifiedText(buf);
                     consume();
                     consume();
                     buf.append('\\');
-                    modifiedText = true;
                     continue;
                 }
                 if (input.LA(2) == delimiterStartChar || input.LA(2) == '}')
                 {
-                    modifiedText = true;
+                    buf = startModifiedText(buf);
                     consume(); // toss out \ char
                     buf.append(c);
                     consume();
                 }
                 else
                 {
-                    buf.append(c);
+                    if (buf != null)
+                    {
+                        buf.append(c);
+                    }
                     consume();
                 }
                 continue;
             }
-            buf.append(c);
+            if (buf != null)
+            {
+                buf.append(c);
+            }
             consume();
         }
-        if (modifiedText)
+        if (buf != null)
         {
             return newToken(TEXT, buf.toString());
         }
@@ -615,6 +642,23 @@ class STLexer implements TokenSource
         }
     }
 
+    /**
+     * @return {@code buf} or, if it is {@code null}, a new buffer holding the text of the current token so far
+     */
+    private StringBuilder startModifiedText(StringBuilder buf)
+    {
+        if (buf != null)
+        {
+            return buf;
+        }
+        StringBuilder result = new StringBuilder();
+        if (input.index() > startCharIndex)
+        {
+            result.append(input.substring(startCharIndex, input.index() - 1));
+        }
+        return result;
+    }
+
     /**
      * <pre>
      *  ID  : ('a'..'z'|'A'..'Z'|'_'|'/')
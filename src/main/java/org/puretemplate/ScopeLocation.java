@@ -0,0 +1,66 @@
+package org.puretemplate;
+
+import java.io.ObjectStreamException;
+import java.util.Optional;
+
+import org.puretemplate.misc.Coordinates;
+import org.puretemplate.misc.Location;
+
+/**
+ * The location of an {@link InstanceScope}. Only the template and the instruction pointer of each scope are captured;
+ * coordinates and other details are computed when they are requested.
+ */
+final class ScopeLocation extends Location
+{
+    private final transient ScopeLocation parent;
+    private final transient ST st;
+    private final transient CompiledST impl;
+    private final int ip;
+
+    ScopeLocation(InstanceScope scope)
+    {
+        super(scope.st.getName());
+        parent = scope.parent != null
+            ? new ScopeLocation(scope.parent)
+            : null;
+        st = scope.st;
+        impl = st.getImpl();
+        ip = scope.ip;
+    }
+
+    @Override
+    public Optional<Location> getParent()
+    {
+        return Optional.ofNullable(parent);
+    }
+
+    @Override
+    public Optional<Coordinates> getCoordinates()
+    {
+        Interval interval = impl.sourceMap[ip];
+        if (interval == null)
+        {
+            return Optional.empty();
+        }
+
+        // use left edge of the interval
+        return Optional.of(impl.getCoordinates(interval.getA()));
+    }
+
+    @Override
+    public String getSourceText()
+    {
+        return impl.template;
+    }
+
+    @Override
+    public String getReference()
+    {
+        return st.toString();
+    }
+
+    private Object writeReplace() throws ObjectStreamException
+    {
+        return resolve();
+    }
+}
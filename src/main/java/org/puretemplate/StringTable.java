@@ -1,6 +1,8 @@
 package org.puretemplate;
 
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
+import java.util.List;
 
 /**
  * A unique set of strings where we can get a string's index. We can also get them back out in original order.
@@ -8,6 +10,7 @@ import java.util.LinkedHashMap;
 class StringTable
 {
     protected LinkedHashMap<String, Integer> table = new LinkedHashMap<>();
+    protected List<String> strings = new ArrayList<>();
     protected int i = -1;
 
     public int add(String s)
@@ -19,9 +22,15 @@ class StringTable
         }
         i++;
         table.put(s, i);
+        strings.add(s);
         return i;
     }
 
+    public String get(int index)
+    {
+        return strings.get(index);
+    }
+
     public String[] toArray()
     {
         String[] a = new String[table.size()];
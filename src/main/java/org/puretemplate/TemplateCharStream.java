@@ -0,0 +1,42 @@
+package org.puretemplate;
+
+import org.antlr.runtime.ANTLRStringStream;
+
+/**
+ * A char stream over the source of a template that lets {@link STLexer} skip runs of literal text in bulk. Scanning the
+ * backing array directly avoids the {@code LA(1)} and {@code consume()} calls for every character, which dominate
+ * lexing of templates that are mostly static text.
+ */
+class TemplateCharStream extends ANTLRStringStream
+{
+    public TemplateCharStream(String input)
+    {
+        super(input);
+    }
+
+    /**
+     * Consumes all characters up to the next one that may end a TEXT token or needs special treatment: the start
+     * delimiter, {@code \}, {@code \r}, {@code \n} and, if requested, <code>'}'</code>. As none of the consumed
+     * characters is a newline, the line stays the same.
+     *
+     * @return the number of consumed characters
+     */
+    int consumeText(char delimiterStartChar, boolean stopAtRightCurly)
+    {
+        int i = p;
+        while (i < n)
+        {
+            char ch = data[i];
+            if (ch == delimiterStartChar || ch == '\\' || ch == '\n' || ch == '\r' || (ch == '}' && stopAtRightCurly))
+            {
+                break;
+            }
+            i++;
+        }
+
+        int count = i - p;
+        p = i;
+        charPositionInLine += count;
+        return count;
+    }
+}
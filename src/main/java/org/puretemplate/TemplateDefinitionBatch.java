@@ -0,0 +1,193 @@
+package org.puretemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+
+import org.antlr.runtime.Token;
+import org.puretemplate.error.ErrorListener;
+import org.puretemplate.error.Message;
+import org.puretemplate.exception.TemplateException;
+
+/**
+ * Collects the template and region definitions of a group file while it is parsed, compiles them concurrently and
+ * then defines them in source order.
+ * <p>
+ * {@code GroupParser} flushes the batch before anything that depends on the templates defined so far, e.g. aliases and
+ * dictionaries, and before reporting an error. The errors of each compilation are recorded and reported when the
+ * template is defined. That way, the group and the reported errors are the same as if each template had been compiled
+ * and defined right when it was parsed.</p>
+ */
+final class TemplateDefinitionBatch
+{
+    /**
+     * Records errors so that they can be reported later, in the order of the definitions.
+     */
+    private static final class ErrorRecorder implements ErrorListener
+    {
+        private final List<Consumer<ErrorListener>> errors = new ArrayList<>();
+
+        @Override
+        public void compileTimeError(Message msg)
+        {
+            errors.add(listener -> listener.compileTimeError(msg));
+        }
+
+        @Override
+        public void runTimeError(Message msg)
+        {
+            errors.add(listener -> listener.runTimeError(msg));
+        }
+
+        @Override
+        public void ioError(Message msg)
+        {
+            errors.add(listener -> listener.ioError(msg));
+        }
+
+        @Override
+        public void internalError(Message msg)
+        {
+            errors.add(listener -> listener.internalError(msg));
+        }
+
+        void reportTo(ErrorListener listener)
+        {
+            errors.forEach(error -> error.accept(listener));
+        }
+    }
+
+    private final class Definition
+    {
+        private final String fullyQualifiedTemplateName;
+        private final String regionSurroundingTemplateName;
+        private final Token templateToken;
+        private final String template;
+        private final Token nameToken;
+        private final List<FormalArgument> args;
+
+        private final ErrorRecorder errors = new ErrorRecorder();
+        private ForkJoinTask<CompiledST> compilation;
+
+        Definition(
+            String fullyQualifiedTemplateName,
+            String regionSurroundingTemplateName,
+            Token templateToken,
+            String template,
+            Token nameToken,
+            List<FormalArgument> args)
+        {
+            this.fullyQualifiedTemplateName = fullyQualifiedTemplateName;
+            this.regionSurroundingTemplateName = regionSurroundingTemplateName;
+            this.templateToken = templateToken;
+            this.template = template;
+            this.nameToken = nameToken;
+            this.args = args;
+        }
+
+        CompiledST compile()
+        {
+            ErrorManager errMgr = group.errMgr.withListener(errors);
+            if (regionSurroundingTemplateName != null)
+            {
+                return group.compileRegion(regionSurroundingTemplateName, template, templateToken, errMgr);
+            }
+            return group.compileTemplate(fullyQualifiedTemplateName, args, template, templateToken, errMgr);
+        }
+
+        void define()
+        {
+            CompiledST code;
+            try
+            {
+                code = compilation != null
+                    ? compilation.join()
+                    : compile();
+            }
+            catch (TemplateException e)
+            {
+                // the compiler has recorded the error; the exception just blasts us out of compiling this template
+                code = null;
+            }
+            errors.reportTo(group.errMgr.listener);
+            if (code == null)
+            {
+                return;
+            }
+
+            try
+            {
+                if (regionSurroundingTemplateName != null)
+                {
+                    group.defineCompiledRegion(regionSurroundingTemplateName, nameToken, templateToken, code);
+                }
+                else
+                {
+                    group.defineCompiledTemplate(fullyQualifiedTemplateName, nameToken, code);
+                }
+            }
+            catch (TemplateException e)
+            {
+                // after getting syntax error in a template, we emit msg
+                // and throw exception to blast all the way out to here.
+            }
+        }
+    }
+
+    private final STGroup group;
+    private final List<Definition> pending = new ArrayList<>();
+
+    TemplateDefinitionBatch(STGroup group)
+    {
+        this.group = group;
+    }
+
+    /**
+     * Adds a definition like {@link STGroup#defineTemplateOrRegion(String, String, Token, String, Token, List)} would
+     * define it.
+     */
+    void add(
+        String fullyQualifiedTemplateName,
+        String regionSurroundingTemplateName,
+        Token templateToken,
+        String template,
+        Token nameToken,
+        List<FormalArgument> args)
+    {
+        pending.add(new Definition(fullyQualifiedTemplateName,
+            regionSurroundingTemplateName,
+            templateToken,
+            template,
+            nameToken,
+            args));
+    }
+
+    /**
+     * Compiles and defines all pending definitions.
+     */
+    void flush()
+    {
+        if (pending.isEmpty())
+        {
+            return;
+        }
+
+        List<Definition> definitions = new ArrayList<>(pending);
+        pending.clear();
+
+        if (definitions.size() > 1)
+        {
+            for (Definition definition : definitions)
+            {
+                definition.compilation = ForkJoinPool.commonPool()
+                    .submit(definition::compile);
+            }
+        }
+        for (Definition definition : definitions)
+        {
+            definition.define();
+        }
+    }
+}
@@ -32,6 +32,12 @@ final class TemplateDiagnosticsImpl implements TemplateDiagnostics
         return compiledST.getStatements();
     }
 
+    @Override
+    public List<Statement> getStatements(boolean expandSuperinstructions)
+    {
+        return compiledST.getStatements(expandSuperinstructions);
+    }
+
     @Override
     public String getStatementsAsString()
     {
@@ -0,0 +1,18 @@
+package org.puretemplate;
+
+import java.time.Duration;
+
+import lombok.Builder;
+import lombok.Value;
+
+import org.puretemplate.diagnostics.TemplateMetrics;
+
+@Value
+@Builder
+class TemplateMetricsImpl implements TemplateMetrics
+{
+    String templateName;
+    long invocationCount;
+    Duration time;
+    long characterCount;
+}
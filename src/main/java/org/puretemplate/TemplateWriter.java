@@ -33,6 +33,15 @@ interface TemplateWriter extends Closeable
      */
     int write(String str) throws IOException;
 
+    /**
+     * Same as {@link #write(String)}, but for a range of a char array. Implementations should override this to avoid
+     * creating a string.
+     */
+    default int write(char[] chars, int offset, int length) throws IOException
+    {
+        return write(new String(chars, offset, length));
+    }
+
     /**
      * Same as write, but wrap lines using the indicated string as the wrap character (such as {@code "\n"}).
      */
@@ -0,0 +1,35 @@
+package org.puretemplate.diagnostics;
+
+import javax.annotation.concurrent.Immutable;
+
+import org.apiguardian.api.API;
+
+/**
+ * A snapshot of the statistics of the process-wide compilation cache, see {@link
+ * org.puretemplate.CompilationCache#getStatistics()}.
+ */
+@API(status = API.Status.EXPERIMENTAL)
+@Immutable
+public interface CompilationCacheStatistics
+{
+    /**
+     * @return the number of compilations that reused the code of an identical template
+     */
+    long getHitCount();
+
+    /**
+     * @return the number of compilations that looked up the cache, but had to compile the template
+     */
+    long getMissCount();
+
+    /**
+     * @return the number of entries removed from the cache to stay within its size limit or because no template used
+     * them anymore
+     */
+    long getEvictionCount();
+
+    /**
+     * @return the approximate number of entries currently in the cache
+     */
+    long getSize();
+}
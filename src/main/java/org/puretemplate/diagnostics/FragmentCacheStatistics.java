@@ -0,0 +1,34 @@
+package org.puretemplate.diagnostics;
+
+import javax.annotation.concurrent.Immutable;
+
+import org.apiguardian.api.API;
+
+/**
+ * A snapshot of the statistics of a group's fragment cache, see {@link
+ * org.puretemplate.GroupLoader#registerCacheableTemplate(String) registerCacheableTemplate()}.
+ */
+@API(status = API.Status.EXPERIMENTAL)
+@Immutable
+public interface FragmentCacheStatistics
+{
+    /**
+     * @return the number of template invocations whose output was replayed from the cache
+     */
+    long getHitCount();
+
+    /**
+     * @return the number of invocations of cacheable templates that had to be executed
+     */
+    long getMissCount();
+
+    /**
+     * @return the number of fragments removed from the cache to stay within its size limit
+     */
+    long getEvictionCount();
+
+    /**
+     * @return the number of fragments currently in the cache
+     */
+    long getSize();
+}
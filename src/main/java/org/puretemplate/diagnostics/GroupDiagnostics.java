@@ -1,5 +1,7 @@
 package org.puretemplate.diagnostics;
 
+import java.util.Optional;
+
 import org.apiguardian.api.API;
 
 /**
@@ -9,4 +11,17 @@ import org.apiguardian.api.API;
 public interface GroupDiagnostics
 {
     String getDump();
+
+    /**
+     * @return the statistics of the fragment cache, or an empty {@code Optional} if no templates of the group were
+     * registered as cacheable
+     */
+    Optional<FragmentCacheStatistics> getFragmentCacheStatistics();
+
+    /**
+     * @return a snapshot of the metrics of the group, or an empty {@code Optional} if the group was not configured to
+     * {@linkplain org.puretemplate.GroupLoader#collectMetrics() collect metrics} or passes its metrics to a {@link
+     * MetricsRecorder}
+     */
+    Optional<RenderingMetrics> getRenderingMetrics();
 }
@@ -144,7 +144,40 @@ public enum Instruction
 
     WRITE_STR((short) 47, OperandType.STRING),
 
-    WRITE_LOCAL((short) 48, OperandType.INT);
+    /**
+     * {@code <name>} of an argument: load_local, write
+     */
+    WRITE_LOCAL((short) 48, LOAD_LOCAL),
+
+    /**
+     * push constant options array
+     */
+    CONST_OPTIONS((short) 49, OperandType.INT),
+
+    /**
+     * {@code <name>}: load_attr, write
+     */
+    WRITE_ATTR((short) 50, LOAD_ATTR),
+
+    /**
+     * {@code <name.property>}: load_attr, load_prop
+     */
+    LOAD_ATTR_PROP((short) 51, LOAD_ATTR),
+
+    /**
+     * {@code <name.property>} of an argument: load_local, load_prop
+     */
+    LOAD_LOCAL_PROP((short) 52, LOAD_LOCAL),
+
+    /**
+     * load_prop, write
+     */
+    WRITE_PROP((short) 53, LOAD_PROP),
+
+    /**
+     * text at the end of a line: write_str, newline
+     */
+    WRITE_STR_NEWLINE((short) 54, WRITE_STR);
 
     /**
      * The instruction bytecode. As byte is signed, we use a short to keep 0..255
@@ -159,10 +192,26 @@ public enum Instruction
      */
     public final String formalName;
 
+    /**
+     * For superinstructions, the instruction whose opcode they replace, otherwise {@code null}. A superinstruction
+     * executes that instruction and the one following it, which stays in place with its own opcode and operands. The
+     * superinstruction has the same operands as the instruction it replaces.
+     */
+    public final Instruction expansion;
+
     Instruction(short opcode, OperandType... operandTypes)
     {
         this.opcode = opcode;
         this.operandTypes = List.of(operandTypes);
         formalName = name().toLowerCase(Locale.ROOT);
+        expansion = null;
+    }
+
+    Instruction(short opcode, Instruction expansion)
+    {
+        this.opcode = opcode;
+        operandTypes = expansion.operandTypes;
+        formalName = name().toLowerCase(Locale.ROOT);
+        this.expansion = expansion;
     }
 }
@@ -0,0 +1,64 @@
+package org.puretemplate.diagnostics;
+
+import org.apiguardian.api.API;
+
+/**
+ * Receives the measurements of a group, e.g. to pass them on to a metrics library. Register it via {@link
+ * org.puretemplate.GroupLoader#collectMetrics(MetricsRecorder) collectMetrics(MetricsRecorder)}. Without a recorder,
+ * {@link org.puretemplate.GroupLoader#collectMetrics() collectMetrics()} aggregates the measurements into {@link
+ * RenderingMetrics}.
+ * <p>
+ * The methods are called on the rendering threads, possibly concurrently, so implementations must be thread-safe and
+ * should return quickly. All methods do nothing by default.</p>
+ */
+@API(status = API.Status.EXPERIMENTAL)
+public interface MetricsRecorder
+{
+    /**
+     * Called after a template was executed.
+     *
+     * @param templateName the fully qualified name of the template
+     * @param nanos the execution time of the template, including the templates it invoked
+     * @param characters the number of characters the template wrote
+     */
+    default void recordTemplate(String templateName, long nanos, int characters)
+    {
+    }
+
+    /**
+     * Called when a model adaptor is looked up to access a property.
+     */
+    default void recordModelAdaptorLookup()
+    {
+    }
+
+    /**
+     * Called when the output of a template invocation is replayed from the fragment cache.
+     */
+    default void recordFragmentCacheHit()
+    {
+    }
+
+    /**
+     * Called when an invocation of a cacheable template has to be executed.
+     */
+    default void recordFragmentCacheMiss()
+    {
+    }
+
+    /**
+     * Called after a template was compiled.
+     *
+     * @param nanos the compilation time
+     */
+    default void recordCompilation(long nanos)
+    {
+    }
+
+    /**
+     * Called when a runtime error is reported while rendering.
+     */
+    default void recordRuntimeError()
+    {
+    }
+}
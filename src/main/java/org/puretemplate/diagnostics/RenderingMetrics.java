@@ -0,0 +1,59 @@
+package org.puretemplate.diagnostics;
+
+import java.time.Duration;
+import java.util.List;
+
+import javax.annotation.concurrent.Immutable;
+
+import org.apiguardian.api.API;
+
+/**
+ * A snapshot of the metrics collected for a group, see {@link org.puretemplate.GroupLoader#collectMetrics()
+ * collectMetrics()}. All values are cumulative since the group was built.
+ */
+@API(status = API.Status.EXPERIMENTAL)
+@Immutable
+public interface RenderingMetrics
+{
+    /**
+     * @return the metrics of all templates executed so far, ordered by descending time
+     */
+    List<TemplateMetrics> getTemplateMetrics();
+
+    /**
+     * @param limit the maximum number of templates to return
+     *
+     * @return the metrics of the templates with the highest cumulative time, ordered by descending time
+     */
+    List<TemplateMetrics> getTopTemplatesByTime(int limit);
+
+    /**
+     * @return the number of model adaptor lookups performed to access properties
+     */
+    long getModelAdaptorLookupCount();
+
+    /**
+     * @return the number of template invocations whose output was replayed from the fragment cache
+     */
+    long getFragmentCacheHitCount();
+
+    /**
+     * @return the number of invocations of cacheable templates that had to be executed
+     */
+    long getFragmentCacheMissCount();
+
+    /**
+     * @return the number of templates compiled
+     */
+    long getCompilationCount();
+
+    /**
+     * @return the cumulative time spent compiling templates
+     */
+    Duration getCompilationTime();
+
+    /**
+     * @return the number of runtime errors reported while rendering
+     */
+    long getRuntimeErrorCount();
+}
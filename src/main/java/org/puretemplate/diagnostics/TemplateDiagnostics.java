@@ -15,8 +15,17 @@ public interface TemplateDiagnostics
 
     String getDump();
 
+    /**
+     * Returns the statements of the template, showing superinstructions as the instructions they replaced.
+     */
     List<Statement> getStatements();
 
+    /**
+     * @param expandSuperinstructions whether to show superinstructions as the instructions they replaced, see {@link
+     * Instruction#expansion}
+     */
+    List<Statement> getStatements(boolean expandSuperinstructions);
+
     String getStatementsAsString();
 
     String getStrings();
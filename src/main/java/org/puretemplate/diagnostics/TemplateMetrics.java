@@ -0,0 +1,35 @@
+package org.puretemplate.diagnostics;
+
+import java.time.Duration;
+
+import javax.annotation.concurrent.Immutable;
+
+import org.apiguardian.api.API;
+
+/**
+ * Aggregated metrics of a single template, see {@link RenderingMetrics}.
+ */
+@API(status = API.Status.EXPERIMENTAL)
+@Immutable
+public interface TemplateMetrics
+{
+    /**
+     * @return the fully qualified name of the template
+     */
+    String getTemplateName();
+
+    /**
+     * @return the number of times the template was executed
+     */
+    long getInvocationCount();
+
+    /**
+     * @return the cumulative time spent executing the template, including the templates it invoked
+     */
+    Duration getTime();
+
+    /**
+     * @return the cumulative number of characters written by the template, including those of the templates it invoked
+     */
+    long getCharacterCount();
+}
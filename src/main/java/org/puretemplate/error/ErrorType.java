@@ -26,6 +26,7 @@ public enum ErrorType
     EXPECTING_STRING("function %s expects a string not %s"),
     WRITER_CTOR_ISSUE("%s(Writer) constructor doesn't exist"),
     CANT_IMPORT("can't find template(s) in import \"%s\""),
+    UNCACHEABLE_TEMPLATE("template %s can't be cached: %s"),
 
     // COMPILE-TIME SYNTAX/SEMANTIC ERRORS
     SYNTAX_ERROR("%s"),
@@ -0,0 +1,225 @@
+package org.puretemplate.error;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import lombok.NonNull;
+
+import org.apiguardian.api.API;
+
+/**
+ * Decides which runtime errors of a group reach its {@link ErrorListener}. Errors that are not reported cost neither
+ * the creation of a {@link Message} nor the work of the listener, which matters for templates that intentionally
+ * refer to missing properties or attributes.
+ * <p>
+ * The policies returned by {@link #countOnly()}, {@link #sample(int)} and {@link #rateLimited(int, Executor)} count the
+ * errors they receive per {@link ErrorType}, see {@link #getCount(ErrorType)}. Compile time, IO and internal errors are
+ * always passed to the listener.</p>
+ * <p>
+ * A policy keeps its counters for its whole lifetime. To count the errors of each group separately, create a separate
+ * policy for each group.</p>
+ */
+@API(status = API.Status.EXPERIMENTAL)
+@ThreadSafe
+public abstract class RuntimeErrorPolicy
+{
+    private static final RuntimeErrorPolicy REPORT = new RuntimeErrorPolicy()
+    {
+        @Override
+        public boolean accept(ErrorType error)
+        {
+            return true;
+        }
+    };
+
+    private static final RuntimeErrorPolicy IGNORE = new RuntimeErrorPolicy()
+    {
+        @Override
+        public boolean accept(ErrorType error)
+        {
+            return false;
+        }
+    };
+
+    /**
+     * Counts all errors, reports none.
+     */
+    private static class CountingPolicy extends RuntimeErrorPolicy
+    {
+        private final LongAdder[] counts = new LongAdder[ErrorType.values().length];
+
+        CountingPolicy()
+        {
+            for (int i = 0; i < counts.length; i++)
+            {
+                counts[i] = new LongAdder();
+            }
+        }
+
+        @Override
+        public boolean accept(ErrorType error)
+        {
+            counts[error.ordinal()].increment();
+            return false;
+        }
+
+        @Override
+        public long getCount(@NonNull ErrorType error)
+        {
+            return counts[error.ordinal()].sum();
+        }
+    }
+
+    /**
+     * Reports the first of every {@code interval} errors of each type.
+     */
+    private static final class SamplingPolicy extends RuntimeErrorPolicy
+    {
+        private final AtomicLongArray counts = new AtomicLongArray(ErrorType.values().length);
+        private final int interval;
+
+        SamplingPolicy(int interval)
+        {
+            this.interval = interval;
+        }
+
+        @Override
+        public boolean accept(ErrorType error)
+        {
+            return (counts.getAndIncrement(error.ordinal()) % interval) == 0;
+        }
+
+        @Override
+        public long getCount(@NonNull ErrorType error)
+        {
+            return counts.get(error.ordinal());
+        }
+    }
+
+    /**
+     * Reports at most {@code limit} errors per second, passing them to the listener on another thread.
+     */
+    private static final class RateLimitingPolicy extends CountingPolicy
+    {
+        private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+        private final int limit;
+        private final Executor executor;
+        private final AtomicLong currentSecond = new AtomicLong(Long.MIN_VALUE);
+        private final AtomicLong reportedInCurrentSecond = new AtomicLong();
+
+        RateLimitingPolicy(int limit, Executor executor)
+        {
+            this.limit = limit;
+            this.executor = executor;
+        }
+
+        @Override
+        public boolean accept(ErrorType error)
+        {
+            super.accept(error);
+
+            long second = System.nanoTime() / NANOS_PER_SECOND;
+            long previousSecond = currentSecond.get();
+            if (second != previousSecond && currentSecond.compareAndSet(previousSecond, second))
+            {
+                reportedInCurrentSecond.set(0);
+            }
+            return reportedInCurrentSecond.incrementAndGet() <= limit;
+        }
+
+        @Override
+        public void deliver(@NonNull Message msg, @NonNull ErrorListener listener)
+        {
+            executor.execute(() -> listener.runTimeError(msg));
+        }
+    }
+
+    RuntimeErrorPolicy()
+    {
+    }
+
+    /**
+     * Reports all errors to the listener. This is the default.
+     */
+    public static RuntimeErrorPolicy report()
+    {
+        return REPORT;
+    }
+
+    /**
+     * Neither reports nor counts errors.
+     */
+    public static RuntimeErrorPolicy ignore()
+    {
+        return IGNORE;
+    }
+
+    /**
+     * Counts errors without reporting them.
+     */
+    public static RuntimeErrorPolicy countOnly()
+    {
+        return new CountingPolicy();
+    }
+
+    /**
+     * Reports the first error of each type and then every {@code interval}th one, counting all of them.
+     *
+     * @param interval the number of errors of a type per reported error, at least 1
+     */
+    public static RuntimeErrorPolicy sample(int interval)
+    {
+        if (interval < 1)
+        {
+            throw new IllegalArgumentException("interval must be >= 1");
+        }
+        return new SamplingPolicy(interval);
+    }
+
+    /**
+     * Reports at most {@code errorsPerSecond} errors per second and counts all of them. Reported errors are passed to
+     * the listener by the given executor, so rendering does not wait for the listener.
+     *
+     * @param errorsPerSecond the maximum number of errors to report per second, at least 1
+     * @param executor the executor that invokes the listener
+     */
+    public static RuntimeErrorPolicy rateLimited(int errorsPerSecond, @NonNull Executor executor)
+    {
+        if (errorsPerSecond < 1)
+        {
+            throw new IllegalArgumentException("errorsPerSecond must be >= 1");
+        }
+        return new RateLimitingPolicy(errorsPerSecond, executor);
+    }
+
+    /**
+     * Decides whether an error is to be reported and counts it if the policy counts errors. Called before the message
+     * is created.
+     *
+     * @return {@code true} if a message is to be created and passed to {@link #deliver(Message, ErrorListener)}
+     */
+    @API(status = API.Status.INTERNAL)
+    public abstract boolean accept(ErrorType error);
+
+    /**
+     * Passes the message of an accepted error to the listener.
+     */
+    @API(status = API.Status.INTERNAL)
+    public void deliver(@NonNull Message msg, @NonNull ErrorListener listener)
+    {
+        listener.runTimeError(msg);
+    }
+
+    /**
+     * @return the number of errors of the given type received by this policy, or 0 if the policy does not count errors
+     */
+    public long getCount(@NonNull ErrorType error)
+    {
+        return 0;
+    }
+}
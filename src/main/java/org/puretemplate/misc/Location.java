@@ -3,38 +3,74 @@ package org.puretemplate.misc;
 import java.io.Serializable;
 import java.util.Optional;
 
-import lombok.Getter;
+import lombok.EqualsAndHashCode;
 import lombok.NonNull;
-import lombok.Value;
+import lombok.ToString;
 
 /**
  * Provides details about the part of the template source code that caused an error.
+ * <p>
+ * Subclasses may determine the details lazily by overriding the getters. As locations are created for every runtime
+ * error, including expected ones like missing properties, this avoids computing coordinates that are never read.</p>
  */
-@Value
+@EqualsAndHashCode
+@ToString
 public class Location implements Serializable
 {
-    Location parent;
+    private final Location parent;
 
     @NonNull
-    @Getter
-    String templateName;
+    private final String templateName;
 
-    Coordinates coordinates;
+    private final Coordinates coordinates;
 
-    String sourceText;
+    private final String sourceText;
 
-    String reference;
+    private final String reference;
+
+    public Location(
+        Location parent, @NonNull String templateName, Coordinates coordinates, String sourceText, String reference)
+    {
+        this.parent = parent;
+        this.templateName = templateName;
+        this.coordinates = coordinates;
+        this.sourceText = sourceText;
+        this.reference = reference;
+    }
+
+    /**
+     * Constructor for subclasses that override the getters of the other details.
+     */
+    protected Location(@NonNull String templateName)
+    {
+        this(null, templateName, null, null, null);
+    }
 
     public Optional<Location> getParent()
     {
         return Optional.ofNullable(parent);
     }
 
+    public String getTemplateName()
+    {
+        return templateName;
+    }
+
     public Optional<Coordinates> getCoordinates()
     {
         return Optional.ofNullable(coordinates);
     }
 
+    public String getSourceText()
+    {
+        return sourceText;
+    }
+
+    public String getReference()
+    {
+        return reference;
+    }
+
     /**
      * If an instance of <i>x</i> is enclosed in a <i>y</i> which is in a <i>z</i>, return a {@code String} of these
      * instance names in order from topmost to lowest; here that would be {@code [z y x]}.
@@ -48,12 +84,14 @@ public class Location implements Serializable
 
     private void appendNames(StringBuilder result)
     {
-        if (parent != null)
+        Optional<Location> parentLocation = getParent();
+        if (parentLocation.isPresent())
         {
-            parent.appendNames(result);
+            parentLocation.get()
+                .appendNames(result);
             result.append(' ');
         }
-        result.append(templateName);
+        result.append(getTemplateName());
     }
 
     public String toShortString()
@@ -63,4 +101,18 @@ public class Location implements Serializable
                 .map(s -> "#" + s)
                 .orElse("");
     }
+
+    /**
+     * Returns a location holding the values of the getters, for subclasses that compute them from objects which cannot
+     * be serialized.
+     */
+    protected final Location resolve()
+    {
+        return new Location(getParent().map(Location::resolve)
+            .orElse(null),
+            getTemplateName(),
+            getCoordinates().orElse(null),
+            getSourceText(),
+            getReference());
+    }
 }
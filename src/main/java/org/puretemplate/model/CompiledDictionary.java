@@ -0,0 +1,134 @@
+package org.puretemplate.model;
+
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.concurrent.Immutable;
+
+import org.apiguardian.api.API;
+
+/**
+ * A dictionary defined in a group file, e.g. {@code typeInitMap ::= ["int":"0", default:"null"]}. As a {@link Map}, it
+ * contains the entries as defined, including the {@link Maps#DEFAULT_KEY default} entry.
+ * <p>
+ * For property lookups, the dictionary is compiled into an open-addressing hash table when the group is loaded. The
+ * table contains the {@code keys} and {@code values} pseudo properties unless the dictionary defines such keys, and
+ * the default value is resolved ahead of time, so that {@link #getProperty(Object, String)} needs a single probe and
+ * gives the same results as {@link MapModelAdaptor} does for plain maps.</p>
+ */
+@API(status = API.Status.INTERNAL)
+@Immutable
+public final class CompiledDictionary extends AbstractMap<String, Object>
+{
+    /**
+     * Marks values that are the key used for the lookup, see {@link Maps#DICT_KEY}.
+     */
+    private static final Object KEY = new Object();
+
+    private final Map<String, Object> entries;
+
+    private final String[] keys;
+    private final Object[] values;
+    private final int mask;
+    private final Object defaultValue;
+
+    public CompiledDictionary(Map<String, Object> mapping)
+    {
+        entries = Collections.unmodifiableMap(new LinkedHashMap<>(mapping));
+
+        Map<String, Object> properties = new LinkedHashMap<>();
+        for (Map.Entry<String, Object> entry : entries.entrySet())
+        {
+            properties.put(entry.getKey(), resolve(entry.getValue()));
+        }
+        properties.putIfAbsent("keys", entries.keySet());
+        properties.putIfAbsent("values", entries.values());
+
+        // keep the load factor at or below 1/2 so that probe sequences stay short
+        int capacity = Integer.highestOneBit(properties.size() * 4 - 1);
+        keys = new String[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        for (Map.Entry<String, Object> property : properties.entrySet())
+        {
+            int index = indexFor(property.getKey());
+            while (keys[index] != null)
+            {
+                index = (index + 1) & mask;
+            }
+            keys[index] = property.getKey();
+            values[index] = property.getValue();
+        }
+
+        defaultValue = resolve(entries.get(Maps.DEFAULT_KEY));
+    }
+
+    private static Object resolve(Object value)
+    {
+        // compare by identity like MapModelAdaptor does, as a string "key" in the group file is a regular value
+        return value == Maps.DICT_KEY
+            ? KEY
+            : value;
+    }
+
+    private int indexFor(String key)
+    {
+        int hash = key.hashCode();
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    /**
+     * Looks up a property like {@link MapModelAdaptor#getProperty(Map, Object, String)}.
+     */
+    public Object getProperty(Object property, String propertyName)
+    {
+        Object value = defaultValue;
+        if (property != null)
+        {
+            int index = indexFor(propertyName);
+            String key;
+            while ((key = keys[index]) != null)
+            {
+                if (key.equals(propertyName))
+                {
+                    value = values[index];
+                    break;
+                }
+                index = (index + 1) & mask;
+            }
+        }
+
+        if (value == KEY)
+        {
+            return property;
+        }
+        return value;
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet()
+    {
+        return entries.entrySet();
+    }
+
+    @Override
+    public int size()
+    {
+        return entries.size();
+    }
+
+    @Override
+    public boolean containsKey(Object key)
+    {
+        return entries.containsKey(key);
+    }
+
+    @Override
+    public Object get(Object key)
+    {
+        return entries.get(key);
+    }
+}
@@ -8,19 +8,15 @@ import java.time.format.DateTimeFormatter;
 import java.time.format.FormatStyle;
 import java.time.temporal.TemporalAccessor;
 import java.util.Locale;
-import java.util.Map;
-import java.util.function.Supplier;
 
 import org.apiguardian.api.API;
 
-import com.google.common.collect.ImmutableMap;
-
 /**
  * A renderer for {@link LocalDateTime}, {@link ZonedDateTime} and other {@code java.time} classes. <br>
  * <br>
  * The format string in the template can be
  * <ul>
- *     <li>a {@linkplain java.text.SimpleDateFormat custom pattern}</li>
+ *     <li>a {@linkplain DateTimeFormatter custom pattern}</li>
  *     <li>one of the standard {@linkplain FormatStyle formatting styles}
  *     <ul>
  *         <li>{@code "short"}, typically numeric. Examples: '12.13.52' or '3:30pm'</li>
@@ -48,22 +44,6 @@ import com.google.common.collect.ImmutableMap;
 @API(status = API.Status.EXPERIMENTAL)
 public class DateTimeRenderer<T extends TemporalAccessor> implements AttributeRenderer<T>
 {
-    private static final Map<String, Supplier<DateTimeFormatter>> FORMATTERS = createFormatterMap();
-
-    private static Map<String, Supplier<DateTimeFormatter>> createFormatterMap()
-    {
-        ImmutableMap.Builder<String, Supplier<DateTimeFormatter>> result = ImmutableMap.builder();
-        for (FormatStyle style : FormatStyle.values())
-        {
-            String key = style.name()
-                .toLowerCase(Locale.ROOT);
-            result.put(key, () -> DateTimeFormatter.ofLocalizedDateTime(style));
-            result.put("date:" + key, () -> DateTimeFormatter.ofLocalizedDate(style));
-            result.put("time:" + key, () -> DateTimeFormatter.ofLocalizedTime(style));
-        }
-        return result.build();
-    }
-
     /**
      * Renders the given time object.
      *
@@ -74,27 +54,14 @@ public class DateTimeRenderer<T extends TemporalAccessor> implements AttributeRe
      */
     @Override
     public String render(T value, String formatString, Locale locale)
-    {
-        return getFormatter(value, formatString).withLocale(locale)
-            .format(value);
-    }
-
-    private DateTimeFormatter getFormatter(T value, String formatString)
     {
         if (formatString == null)
         {
             formatString = getDefaultFormat(value);
         }
 
-        Supplier<DateTimeFormatter> supplier = FORMATTERS.get(formatString);
-        if (supplier == null)
-        {
-            return DateTimeFormatter.ofPattern(formatString);
-        }
-        else
-        {
-            return supplier.get();
-        }
+        return Dates.getFormatter(formatString, locale)
+            .format(value);
     }
 
     private String getDefaultFormat(T value)
@@ -4,16 +4,34 @@ import static java.util.Map.entry;
 
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
+import java.time.format.DateTimeFormatter;
+import java.time.format.FormatStyle;
 import java.util.Date;
 import java.util.Locale;
 import java.util.Map;
+import java.util.TimeZone;
 
+import lombok.Value;
 import lombok.experimental.UtilityClass;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Provides the formats for the date renderers, created once per combination of format string and locale.
+ * <p>
+ * {@link Date} and {@link java.util.Calendar} values are formatted with {@link DateFormat}, i.e. custom patterns
+ * follow the {@link SimpleDateFormat} syntax. As these formats are not thread-safe, the cache holds prototypes that are
+ * cloned for each use, which is still much cheaper than parsing the pattern and loading the locale data again.
+ * {@code java.time} values use {@link DateTimeFormatter}s, which are immutable and thus shared directly.</p>
+ */
 @UtilityClass
 class Dates
 {
-    private static final Map<String, Integer> FORMATS = Map.ofEntries(entry("short", DateFormat.SHORT),
+    private static final int CACHE_SIZE = 1000;
+
+    private static final Map<String, Integer> DATE_FORMAT_STYLES = Map.ofEntries(entry("short", DateFormat.SHORT),
         entry("medium", DateFormat.MEDIUM),
         entry("long", DateFormat.LONG),
         entry("full", DateFormat.FULL),
@@ -26,19 +44,66 @@ class Dates
         entry("time:long", DateFormat.LONG),
         entry("time:full", DateFormat.FULL));
 
-    public String format(Date date, String formatString, Locale locale)
+    private static final Map<String, DateTimeFormatter> FORMATTER_STYLES = createFormatterStyleMap();
+
+    private static final Cache<Key, DateFormat> DATE_FORMATS = CacheBuilder.newBuilder()
+        .maximumSize(CACHE_SIZE)
+        .build();
+
+    private static final Cache<Key, DateTimeFormatter> FORMATTERS = CacheBuilder.newBuilder()
+        .maximumSize(CACHE_SIZE)
+        .build();
+
+    @Value
+    private static class Key
     {
-        DateFormat dateFormat = getDateFormat(formatString, locale);
-        return dateFormat.format(date);
+        String formatString;
+        Locale locale;
     }
 
-    private DateFormat getDateFormat(String formatString, Locale locale)
+    private static Map<String, DateTimeFormatter> createFormatterStyleMap()
+    {
+        ImmutableMap.Builder<String, DateTimeFormatter> result = ImmutableMap.builder();
+        for (FormatStyle style : FormatStyle.values())
+        {
+            String key = style.name()
+                .toLowerCase(Locale.ROOT);
+            result.put(key, DateTimeFormatter.ofLocalizedDateTime(style));
+            result.put("date:" + key, DateTimeFormatter.ofLocalizedDate(style));
+            result.put("time:" + key, DateTimeFormatter.ofLocalizedTime(style));
+        }
+        return result.build();
+    }
+
+    /**
+     * Formats the given date in the default time zone of the JVM.
+     *
+     * @param formatString a {@link SimpleDateFormat} pattern or a predefined style; {@code null} selects {@code
+     * "short"}
+     */
+    public String format(Date date, String formatString, Locale locale)
     {
         if (formatString == null)
         {
             formatString = "short";
         }
-        Integer style = FORMATS.get(formatString);
+
+        Key key = new Key(formatString, locale);
+        DateFormat prototype = DATE_FORMATS.getIfPresent(key);
+        if (prototype == null)
+        {
+            prototype = createDateFormat(formatString, locale);
+            DATE_FORMATS.put(key, prototype);
+        }
+
+        DateFormat dateFormat = (DateFormat) prototype.clone();
+        dateFormat.setTimeZone(TimeZone.getDefault());
+        return dateFormat.format(date);
+    }
+
+    private DateFormat createDateFormat(String formatString, Locale locale)
+    {
+        Integer style = DATE_FORMAT_STYLES.get(formatString);
 
         if (style == null)
         {
@@ -57,4 +122,26 @@ class Dates
 
         return DateFormat.getDateTimeInstance(style, style, locale);
     }
+
+    /**
+     * Returns the shared formatter for the given format string.
+     *
+     * @param formatString a {@link DateTimeFormatter} pattern or a predefined style
+     */
+    public DateTimeFormatter getFormatter(String formatString, Locale locale)
+    {
+        Key key = new Key(formatString, locale);
+        DateTimeFormatter result = FORMATTERS.getIfPresent(key);
+        if (result == null)
+        {
+            result = FORMATTER_STYLES.get(formatString);
+            if (result == null)
+            {
+                result = DateTimeFormatter.ofPattern(formatString);
+            }
+            result = result.withLocale(locale);
+            FORMATTERS.put(key, result);
+        }
+        return result;
+    }
 }
@@ -10,6 +10,11 @@ public class MapModelAdaptor implements ModelAdaptor<Map<?, ?>>
     @Override
     public Object getProperty(Map<?, ?> model, Object property, String propertyName)
     {
+        if (model instanceof CompiledDictionary)
+        {
+            return ((CompiledDictionary) model).getProperty(property, propertyName);
+        }
+
         Object value;
         if (property == null)
         {
@@ -0,0 +1,426 @@
+package org.puretemplate.model;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.util.Formatter;
+import java.util.Locale;
+
+import javax.annotation.concurrent.Immutable;
+
+import lombok.Value;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * A {@link Formatter} pattern with a single conversion, parsed once for a given locale.
+ * <p>
+ * Integers formatted with {@code %d} and {@link BigDecimal}s formatted with {@code %f} are converted by this class,
+ * reproducing the algorithm of {@link Formatter} including flags, width, precision and localized digits and
+ * separators. All other patterns and values are passed to {@link String#format(Locale, String, Object...)}. This
+ * includes {@code double} values, as the decimal expansion used by {@link Formatter} is not guaranteed to match that of
+ * {@link Double#toString(double)} on all Java versions.</p>
+ */
+@Immutable
+final class NumberFormat
+{
+    private static final int CACHE_SIZE = 1000;
+
+    private static final Cache<Key, NumberFormat> CACHE = CacheBuilder.newBuilder()
+        .maximumSize(CACHE_SIZE)
+        .build();
+
+    private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(StringBuilder::new);
+
+    /**
+     * Longest width or precision accepted by the fast path; longer ones are left to {@link Formatter}.
+     */
+    private static final int MAX_NUMBER_LENGTH = 6;
+
+    private static final String FLAG_CHARACTERS = "-#+ 0,(<";
+
+    @Value
+    private static class Key
+    {
+        String pattern;
+        Locale locale;
+    }
+
+    /**
+     * Formats the given number like {@code String.format(locale, pattern, value)}.
+     */
+    static String format(Number value, String pattern, Locale locale)
+    {
+        if (locale == null)
+        {
+            return String.format((Locale) null, pattern, value);
+        }
+
+        Key key = new Key(pattern, locale);
+        NumberFormat format = CACHE.getIfPresent(key);
+        if (format == null)
+        {
+            format = new NumberFormat(pattern, locale);
+            CACHE.put(key, format);
+        }
+        return format.format(value);
+    }
+
+    private final String pattern;
+    private final Locale locale;
+
+    /**
+     * The conversion character, or {@code 0} if the pattern is handled by {@link Formatter}.
+     */
+    private final char conversion;
+
+    private final String prefix;
+    private final String suffix;
+
+    private final boolean leftJustify;
+    private final boolean plus;
+    private final boolean leadingSpace;
+    private final boolean zeroPad;
+    private final boolean parentheses;
+    private final int width;
+    private final int precision;
+
+    private final char zero;
+    private final char decimalSeparator;
+
+    /**
+     * The grouping separator, or {@code 0} if digits are not grouped.
+     */
+    private final char groupingSeparator;
+    private final int groupingSize;
+
+    private NumberFormat(String pattern, Locale locale)
+    {
+        this.pattern = pattern;
+        this.locale = locale;
+
+        StringBuilder prefixBuilder = new StringBuilder();
+        StringBuilder suffixBuilder = new StringBuilder();
+        StringBuilder text = prefixBuilder;
+        String flags = null;
+        int parsedWidth = -1;
+        int parsedPrecision = -1;
+        char parsedConversion = 0;
+        boolean supported = true;
+
+        int i = 0;
+        while (supported && i < pattern.length())
+        {
+            char c = pattern.charAt(i++);
+            if (c != '%')
+            {
+                text.append(c);
+                continue;
+            }
+            if (i == pattern.length())
+            {
+                supported = false;
+                break;
+            }
+
+            char next = pattern.charAt(i);
+            if (next == '%')
+            {
+                text.append('%');
+                i++;
+                continue;
+            }
+            if (next == 'n')
+            {
+                text.append(System.lineSeparator());
+                i++;
+                continue;
+            }
+            if (parsedConversion != 0)
+            {
+                // more than one conversion
+                supported = false;
+                break;
+            }
+
+            int start = i;
+            while (i < pattern.length() && FLAG_CHARACTERS.indexOf(pattern.charAt(i)) >= 0)
+            {
+                i++;
+            }
+            flags = pattern.substring(start, i);
+
+            start = i;
+            while (i < pattern.length() && isDigit(pattern.charAt(i)))
+            {
+                i++;
+            }
+            if (i > start)
+            {
+                parsedWidth = parseNumber(pattern, start, i);
+                supported = parsedWidth > 0;
+            }
+
+            if (i < pattern.length() && pattern.charAt(i) == '.')
+            {
+                start = ++i;
+                while (i < pattern.length() && isDigit(pattern.charAt(i)))
+                {
+                    i++;
+                }
+                parsedPrecision = parseNumber(pattern, start, i);
+                supported &= parsedPrecision >= 0;
+            }
+
+            if (i < pattern.length())
+            {
+                parsedConversion = pattern.charAt(i++);
+            }
+            supported &= (parsedConversion == 'd' && parsedPrecision == -1) || parsedConversion == 'f';
+            text = suffixBuilder;
+        }
+
+        if (supported && parsedConversion != 0)
+        {
+            supported = isSupported(flags, parsedWidth);
+        }
+
+        if (!supported)
+        {
+            parsedConversion = 0;
+            flags = "";
+        }
+        else if (parsedConversion == 0)
+        {
+            // no conversion at all, so the pattern is just literal text
+            flags = "";
+        }
+
+        this.conversion = parsedConversion;
+        this.prefix = prefixBuilder.toString();
+        this.suffix = suffixBuilder.toString();
+        this.leftJustify = flags.indexOf('-') >= 0;
+        this.plus = flags.indexOf('+') >= 0;
+        this.leadingSpace = flags.indexOf(' ') >= 0;
+        this.zeroPad = flags.indexOf('0') >= 0;
+        this.parentheses = flags.indexOf('(') >= 0;
+        this.width = parsedWidth;
+        this.precision = parsedPrecision == -1
+            ? 6
+            : parsedPrecision;
+
+        if (locale.equals(Locale.US))
+        {
+            zero = '0';
+            decimalSeparator = '.';
+        }
+        else
+        {
+            DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance(locale);
+            zero = symbols.getZeroDigit();
+            decimalSeparator = symbols.getDecimalSeparator();
+        }
+
+        char separator = 0;
+        int size = -1;
+        if (flags.indexOf(',') >= 0)
+        {
+            if (locale.equals(Locale.US))
+            {
+                separator = ',';
+                size = 3;
+            }
+            else
+            {
+                java.text.NumberFormat numberFormat = java.text.NumberFormat.getNumberInstance(locale);
+                if (numberFormat instanceof DecimalFormat)
+                {
+                    DecimalFormat decimalFormat = (DecimalFormat) numberFormat;
+                    size = decimalFormat.getGroupingSize();
+                    if (decimalFormat.isGroupingUsed() && size != 0)
+                    {
+                        separator = DecimalFormatSymbols.getInstance(locale)
+                            .getGroupingSeparator();
+                    }
+                }
+            }
+        }
+        this.groupingSeparator = separator;
+        this.groupingSize = size;
+    }
+
+    private static boolean isDigit(char c)
+    {
+        return c >= '0' && c <= '9';
+    }
+
+    private static int parseNumber(String pattern, int start, int end)
+    {
+        if (end == start || end - start > MAX_NUMBER_LENGTH)
+        {
+            return -1;
+        }
+        return Integer.parseInt(pattern.substring(start, end));
+    }
+
+    /**
+     * Accepts exactly the flag combinations that {@link Formatter} accepts for {@code %d} and {@code %f}, except for
+     * {@code #} and {@code <}.
+     */
+    private static boolean isSupported(String flags, int width)
+    {
+        for (int i = 0; i < flags.length(); i++)
+        {
+            char flag = flags.charAt(i);
+            if (flag == '#' || flag == '<' || flags.indexOf(flag, i + 1) >= 0)
+            {
+                return false;
+            }
+        }
+        boolean leftJustify = flags.indexOf('-') >= 0;
+        boolean zeroPad = flags.indexOf('0') >= 0;
+        if (width == -1 && (leftJustify || zeroPad))
+        {
+            return false;
+        }
+        return !(flags.indexOf('+') >= 0 && flags.indexOf(' ') >= 0) && !(leftJustify && zeroPad);
+    }
+
+    String format(Number value)
+    {
+        if (conversion == 'd')
+        {
+            if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte)
+            {
+                long longValue = value.longValue();
+                return format(Long.toString(longValue), longValue < 0);
+            }
+            if (value instanceof BigInteger)
+            {
+                BigInteger bigInteger = (BigInteger) value;
+                return format(bigInteger.toString(), bigInteger.signum() < 0);
+            }
+        }
+        else if (conversion == 'f' && value instanceof BigDecimal)
+        {
+            BigDecimal bigDecimal = (BigDecimal) value;
+            String magnitude = bigDecimal.abs()
+                .setScale(precision, RoundingMode.HALF_UP)
+                .toPlainString();
+            return format(magnitude, bigDecimal.signum() < 0);
+        }
+        else if (conversion == 0 && prefix.equals(pattern))
+        {
+            // literal text only; Formatter ignores the argument
+            return prefix;
+        }
+
+        return String.format(locale, pattern, value);
+    }
+
+    /**
+     * @param digits the plain decimal representation of the value, possibly with a leading minus sign
+     */
+    private String format(String digits, boolean negative)
+    {
+        StringBuilder sb = BUFFER.get();
+        sb.setLength(0);
+        sb.append(prefix);
+        int start = sb.length();
+
+        if (!negative)
+        {
+            if (plus)
+            {
+                sb.append('+');
+            }
+            else if (leadingSpace)
+            {
+                sb.append(' ');
+            }
+        }
+        else if (parentheses)
+        {
+            sb.append('(');
+        }
+        else
+        {
+            sb.append('-');
+        }
+
+        appendLocalizedMagnitude(sb,
+            digits,
+            digits.charAt(0) == '-'
+                ? 1
+                : 0,
+            start,
+            negative && parentheses && width != -1
+                ? width - 1
+                : width);
+
+        if (negative && parentheses)
+        {
+            sb.append(')');
+        }
+
+        if (width != -1 && sb.length() - start < width)
+        {
+            int padding = width - (sb.length() - start);
+            if (leftJustify)
+            {
+                for (int i = 0; i < padding; i++)
+                {
+                    sb.append(' ');
+                }
+            }
+            else
+            {
+                sb.insert(start, " ".repeat(padding));
+            }
+        }
+
+        sb.append(suffix);
+        return sb.toString();
+    }
+
+    private void appendLocalizedMagnitude(StringBuilder sb, String digits, int offset, int start, int paddedWidth)
+    {
+        int begin = sb.length();
+        int length = digits.length();
+        int dot = digits.indexOf('.', offset);
+        if (dot < 0)
+        {
+            dot = length;
+        }
+
+        char separator = groupingSeparator;
+        for (int j = offset; j < length; j++)
+        {
+            if (j == dot)
+            {
+                sb.append(decimalSeparator);
+                // no grouping separators after the decimal separator
+                separator = 0;
+                continue;
+            }
+
+            sb.append((char) ((digits.charAt(j) - '0') + zero));
+            if (separator != 0 && j != dot - 1 && ((dot - j) % groupingSize == 1))
+            {
+                sb.append(separator);
+            }
+        }
+
+        if (zeroPad && paddedWidth != -1)
+        {
+            int missing = paddedWidth - (sb.length() - start);
+            for (int k = 0; k < missing; k++)
+            {
+                sb.insert(begin, zero);
+            }
+        }
+    }
+}
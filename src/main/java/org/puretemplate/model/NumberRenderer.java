@@ -13,6 +13,10 @@ import org.apiguardian.api.API;
  * <p>
  * For example, {@code %10d} emits a number as a decimal int padding to 10 char. This can even do {@code long} to {@code
  * Date} conversions using the format string.</p>
+ * <p>
+ * Format strings are parsed once per locale and cached. Integer values formatted with {@code %d} and {@link BigDecimal}
+ * values formatted with {@code %f} are then converted without creating a {@link Formatter}; the output is the same as
+ * that of {@link String#format(Locale, String, Object...)}.</p>
  */
 @API(status = API.Status.STABLE)
 public class NumberRenderer implements AttributeRenderer<Number>
@@ -25,10 +29,6 @@ public class NumberRenderer implements AttributeRenderer<Number>
             return value.toString();
         }
 
-        try (Formatter f = new Formatter(locale))
-        {
-            f.format(formatString, value);
-            return f.toString();
-        }
+        return NumberFormat.format(value, formatString, locale);
     }
 }
@@ -0,0 +1,50 @@
+package org.puretemplate.model;
+
+import java.io.IOException;
+import java.util.Locale;
+
+import org.apiguardian.api.API;
+
+import com.github.mizool.core.exception.CodeInconsistencyException;
+
+/**
+ * An {@link AttributeRenderer} that can write its output directly to the template output instead of returning a
+ * {@link String}. PureTemplate uses {@link #render(Object, String, Locale, Appendable)} whenever the value is not
+ * subject to line wrapping, which avoids creating intermediate strings for large values.
+ *
+ * @param <T> the type of values this renderer can handle.
+ */
+@API(status = API.Status.EXPERIMENTAL)
+public interface StreamingAttributeRenderer<T> extends AttributeRenderer<T>
+{
+    /**
+     * Renders the given non-null value to the given {@link Appendable}. The same notes as for {@link
+     * #render(Object, String, Locale)} apply.
+     *
+     * @param value the object to render, never {@code null}
+     * @param formatString format string or {@code null} if unspecified
+     * @param locale the active locale, never {@code null}
+     * @param out the target to append the rendered value to. Only valid until this method returns.
+     *
+     * @throws IOException if appending to {@code out} fails
+     */
+    void render(T value, String formatString, Locale locale, Appendable out) throws IOException;
+
+    /**
+     * Renders the given non-null value as a {@link String} by appending it to a new {@link StringBuilder}.
+     */
+    @Override
+    default String render(T value, String formatString, Locale locale)
+    {
+        StringBuilder result = new StringBuilder();
+        try
+        {
+            render(value, formatString, locale, result);
+        }
+        catch (IOException e)
+        {
+            throw new CodeInconsistencyException(e);
+        }
+        return result.toString();
+    }
+}
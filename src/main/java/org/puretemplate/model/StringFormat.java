@@ -0,0 +1,306 @@
+package org.puretemplate.model;
+
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Formatter;
+import java.util.Locale;
+
+import javax.annotation.concurrent.Immutable;
+
+import lombok.RequiredArgsConstructor;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * A format string of {@link StringRenderer}, resolved once into the operation it stands for.
+ * <p>
+ * Format strings in templates are constants, so the same string instance is passed on each call. Looking it up in the
+ * cache is therefore cheap, and the named formats as well as simple {@code %s} patterns are applied without string
+ * comparisons or pattern parsing.</p>
+ */
+@Immutable
+abstract class StringFormat
+{
+    private static final int CACHE_SIZE = 1000;
+
+    private static final Cache<String, StringFormat> CACHE = CacheBuilder.newBuilder()
+        .maximumSize(CACHE_SIZE)
+        .build();
+
+    private static final StringFormat UPPER = new StringFormat()
+    {
+        @Override
+        String format(String value, Locale locale)
+        {
+            return value.toUpperCase(locale);
+        }
+    };
+
+    private static final StringFormat LOWER = new StringFormat()
+    {
+        @Override
+        String format(String value, Locale locale)
+        {
+            return value.toLowerCase(locale);
+        }
+    };
+
+    private static final StringFormat CAP = new StringFormat()
+    {
+        @Override
+        String format(String value, Locale locale)
+        {
+            return (value.length() > 0)
+                ? Character.toUpperCase(value.charAt(0)) + value.substring(1)
+                : value;
+        }
+    };
+
+    private static final StringFormat URL_ENCODE = new StringFormat()
+    {
+        @Override
+        String format(String value, Locale locale)
+        {
+            return URLEncoder.encode(value, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        void format(String value, Locale locale, Appendable out) throws IOException
+        {
+            StringRenderer.urlEncode(value, out);
+        }
+    };
+
+    private static final StringFormat XML_ENCODE = new StringFormat()
+    {
+        @Override
+        String format(String value, Locale locale)
+        {
+            return StringRenderer.escapeHTML(value);
+        }
+
+        @Override
+        void format(String value, Locale locale, Appendable out) throws IOException
+        {
+            StringRenderer.escapeHTML(value, out);
+        }
+    };
+
+    /**
+     * Any pattern not covered by the other formats, passed to {@link String#format(Locale, String, Object...)}.
+     */
+    @RequiredArgsConstructor
+    private static final class PatternFormat extends StringFormat
+    {
+        private final String pattern;
+
+        @Override
+        String format(String value, Locale locale)
+        {
+            return String.format(locale, pattern, value);
+        }
+    }
+
+    /**
+     * A pattern with a single {@code %s} conversion that has at most a width, a precision and the {@code -} flag.
+     */
+    @RequiredArgsConstructor
+    private static final class JustifiedFormat extends StringFormat
+    {
+        private final String prefix;
+        private final String suffix;
+        private final boolean leftJustify;
+        private final int width;
+        private final int precision;
+
+        @Override
+        String format(String value, Locale locale)
+        {
+            int capacity = prefix.length() + Math.max(width, value.length()) + suffix.length();
+            StringBuilder result = new StringBuilder(capacity);
+            append(value, result);
+            return result.toString();
+        }
+
+        @Override
+        void format(String value, Locale locale, Appendable out) throws IOException
+        {
+            append(value, out);
+        }
+
+        private void append(String value, Appendable out) throws IOException
+        {
+            int length = value.length();
+            if (precision != -1 && precision < length)
+            {
+                length = precision;
+            }
+
+            out.append(prefix);
+            if (!leftJustify)
+            {
+                appendPadding(length, out);
+            }
+            out.append(value, 0, length);
+            if (leftJustify)
+            {
+                appendPadding(length, out);
+            }
+            out.append(suffix);
+        }
+
+        private void appendPadding(int length, Appendable out) throws IOException
+        {
+            for (int i = length; i < width; i++)
+            {
+                out.append(' ');
+            }
+        }
+    }
+
+    static StringFormat of(String formatString)
+    {
+        StringFormat result = CACHE.getIfPresent(formatString);
+        if (result == null)
+        {
+            result = compile(formatString);
+            CACHE.put(formatString, result);
+        }
+        return result;
+    }
+
+    private static StringFormat compile(String formatString)
+    {
+        switch (formatString)
+        {
+            case "upper":
+                return UPPER;
+            case "lower":
+                return LOWER;
+            case "cap":
+                return CAP;
+            case "url-encode":
+                return URL_ENCODE;
+            case "xml-encode":
+                return XML_ENCODE;
+            default:
+                StringFormat justified = compileJustified(formatString);
+                if (justified != null)
+                {
+                    return justified;
+                }
+                return new PatternFormat(formatString);
+        }
+    }
+
+    /**
+     * Parses a pattern that {@link JustifiedFormat} can handle. Follows the syntax of {@link Formatter}, where a flag
+     * {@code 0} would come before the width, so the width cannot start with a zero.
+     *
+     * @return the format, or {@code null} if the pattern needs {@link Formatter}
+     */
+    private static StringFormat compileJustified(String pattern)
+    {
+        StringBuilder prefix = new StringBuilder();
+        StringBuilder suffix = new StringBuilder();
+        StringBuilder text = prefix;
+        boolean converted = false;
+        boolean leftJustify = false;
+        int width = -1;
+        int precision = -1;
+
+        int i = 0;
+        int length = pattern.length();
+        while (i < length)
+        {
+            char c = pattern.charAt(i++);
+            if (c != '%')
+            {
+                text.append(c);
+                continue;
+            }
+            if (i == length)
+            {
+                return null;
+            }
+
+            c = pattern.charAt(i++);
+            if (c == '%')
+            {
+                text.append('%');
+                continue;
+            }
+            if (c == 'n')
+            {
+                text.append(System.lineSeparator());
+                continue;
+            }
+            if (converted)
+            {
+                return null;
+            }
+
+            if (c == '-')
+            {
+                leftJustify = true;
+                c = i < length
+                    ? pattern.charAt(i++)
+                    : 0;
+            }
+            if (c >= '1' && c <= '9')
+            {
+                width = c - '0';
+                while (i < length && isDigit(pattern.charAt(i)) && width < 100_000)
+                {
+                    width = width * 10 + pattern.charAt(i++) - '0';
+                }
+                c = i < length
+                    ? pattern.charAt(i++)
+                    : 0;
+            }
+            if (c == '.')
+            {
+                int start = i;
+                precision = 0;
+                while (i < length && isDigit(pattern.charAt(i)) && precision < 100_000)
+                {
+                    precision = precision * 10 + pattern.charAt(i++) - '0';
+                }
+                if (i == start)
+                {
+                    return null;
+                }
+                c = i < length
+                    ? pattern.charAt(i++)
+                    : 0;
+            }
+            if (c != 's' || (leftJustify && width == -1))
+            {
+                return null;
+            }
+
+            converted = true;
+            text = suffix;
+        }
+
+        if (!converted)
+        {
+            return null;
+        }
+        return new JustifiedFormat(prefix.toString(), suffix.toString(), leftJustify, width, precision);
+    }
+
+    private static boolean isDigit(char c)
+    {
+        return c >= '0' && c <= '9';
+    }
+
+    abstract String format(String value, Locale locale);
+
+    void format(String value, Locale locale, Appendable out) throws IOException
+    {
+        out.append(format(value, locale));
+    }
+}
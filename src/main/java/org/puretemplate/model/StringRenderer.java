@@ -1,11 +1,13 @@
 package org.puretemplate.model;
 
+import java.io.IOException;
 import java.net.URLEncoder;
-import java.nio.charset.StandardCharsets;
 import java.util.Locale;
 
 import org.apiguardian.api.API;
 
+import com.github.mizool.core.exception.CodeInconsistencyException;
+
 /**
  * This render knows to perform a few format operations on {@link String} objects:
  * <ul>
@@ -15,10 +17,48 @@ import org.apiguardian.api.API;
  *  <li>{@code url-encode}:</li>
  *  <li>{@code xml-encode}:</li>
  * </ul>
+ * <p>
+ * When the template output is not wrapped, encoded values are written directly to the output. Runs of characters that
+ * need no encoding are copied in one go. Subclasses, which may override {@link #render(String, String, Locale)} to
+ * support additional formats, are always rendered via that method.</p>
+ * <p>
+ * Each format string is resolved once into the operation it stands for. Patterns with a single {@code %s} conversion
+ * and at most the {@code -} flag, a width and a precision are applied without a {@link java.util.Formatter}; all other
+ * patterns are passed to {@link String#format(Locale, String, Object...)}.</p>
  */
 @API(status = API.Status.STABLE)
-public class StringRenderer implements AttributeRenderer<String>
+public class StringRenderer implements StreamingAttributeRenderer<String>
 {
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+    /**
+     * Printable ASCII characters that {@link #escapeHTML(String)} copies unchanged.
+     */
+    private static final boolean[] HTML_SAFE = new boolean[128];
+
+    /**
+     * ASCII characters that {@link URLEncoder} copies unchanged.
+     */
+    private static final boolean[] URL_SAFE = new boolean[128];
+
+    static
+    {
+        for (char c = ' '; c < 127; c++)
+        {
+            HTML_SAFE[c] = c != '&' && c != '<' && c != '>';
+            URL_SAFE[c] = (c >= 'a' && c <= 'z') ||
+                (c >= 'A' && c <= 'Z') ||
+                (c >= '0' && c <= '9') ||
+                c == '-' ||
+                c == '_' ||
+                c == '.' ||
+                c == '*';
+        }
+        HTML_SAFE['\r'] = true;
+        HTML_SAFE['\n'] = true;
+        HTML_SAFE['\t'] = true;
+    }
+
     @Override
     public String render(String value, String formatString, Locale locale)
     {
@@ -26,29 +66,27 @@ public class StringRenderer implements AttributeRenderer<String>
         {
             return value;
         }
-        if (formatString.equals("upper"))
-        {
-            return value.toUpperCase(locale);
-        }
-        if (formatString.equals("lower"))
-        {
-            return value.toLowerCase(locale);
-        }
-        if (formatString.equals("cap"))
+        return StringFormat.of(formatString)
+            .format(value, locale);
+    }
+
+    @API(status = API.Status.EXPERIMENTAL)
+    @Override
+    public void render(String value, String formatString, Locale locale, Appendable out) throws IOException
+    {
+        if (getClass() != StringRenderer.class)
         {
-            return (value.length() > 0)
-                ? Character.toUpperCase(value.charAt(0)) + value.substring(1)
-                : value;
+            out.append(render(value, formatString, locale));
         }
-        if (formatString.equals("url-encode"))
+        else if (formatString == null)
         {
-            return URLEncoder.encode(value, StandardCharsets.UTF_8);
+            out.append(value);
         }
-        if (formatString.equals("xml-encode"))
+        else
         {
-            return escapeHTML(value);
+            StringFormat.of(formatString)
+                .format(value, locale, out);
         }
-        return String.format(locale, formatString, value);
     }
 
     public static String escapeHTML(String s)
@@ -57,43 +95,164 @@ public class StringRenderer implements AttributeRenderer<String>
         {
             return null;
         }
-        StringBuilder buf = new StringBuilder(s.length());
+
+        int firstUnsafe = skipHtmlSafe(s, 0);
+        if (firstUnsafe == s.length())
+        {
+            return s;
+        }
+
+        StringBuilder buf = new StringBuilder(s.length() + 16);
+        try
+        {
+            escapeHTML(s, buf);
+        }
+        catch (IOException e)
+        {
+            throw new CodeInconsistencyException(e);
+        }
+        return buf.toString();
+    }
+
+    /**
+     * Appends the given string to {@code out}, escaping it like {@link #escapeHTML(String)}.
+     *
+     * @throws IOException if appending to {@code out} fails
+     */
+    @API(status = API.Status.EXPERIMENTAL)
+    public static void escapeHTML(String s, Appendable out) throws IOException
+    {
         int len = s.length();
-        for (int i = 0; i < len; )
+        int i = 0;
+        while (i < len)
         {
+            int safeEnd = skipHtmlSafe(s, i);
+            if (safeEnd > i)
+            {
+                out.append(s, i, safeEnd);
+                i = safeEnd;
+                if (i == len)
+                {
+                    break;
+                }
+            }
+
             int c = s.codePointAt(i);
             switch (c)
             {
                 case '&':
-                    buf.append("&amp;");
+                    out.append("&amp;");
                     break;
                 case '<':
-                    buf.append("&lt;");
+                    out.append("&lt;");
                     break;
                 case '>':
-                    buf.append("&gt;");
-                    break;
-                case '\r':
-                case '\n':
-                case '\t':
-                    buf.append((char) c);
+                    out.append("&gt;");
                     break;
                 default:
-                    boolean control = c < ' '; // 32
-                    boolean aboveASCII = c > 126;
-                    if (control || aboveASCII)
-                    {
-                        buf.append("&#");
-                        buf.append(c);
-                        buf.append(";");
-                    }
-                    else
-                    {
-                        buf.append((char) c);
-                    }
+                    // control character or above ASCII
+                    out.append("&#");
+                    appendDecimal(c, out);
+                    out.append(';');
             }
             i += Character.charCount(c);
         }
-        return buf.toString();
+    }
+
+    private static int skipHtmlSafe(String s, int start)
+    {
+        int len = s.length();
+        int i = start;
+        while (i < len)
+        {
+            char c = s.charAt(i);
+            if (c >= 128 || !HTML_SAFE[c])
+            {
+                break;
+            }
+            i++;
+        }
+        return i;
+    }
+
+    private static void appendDecimal(int value, Appendable out) throws IOException
+    {
+        int divisor = 1;
+        while (divisor <= value / 10)
+        {
+            divisor *= 10;
+        }
+        for (; divisor > 0; divisor /= 10)
+        {
+            out.append((char) ('0' + value / divisor % 10));
+        }
+    }
+
+    /**
+     * Appends the given string to {@code out}, producing the same result as {@link URLEncoder#encode(String,
+     * java.nio.charset.Charset)} with UTF-8.
+     */
+    static void urlEncode(String s, Appendable out) throws IOException
+    {
+        int len = s.length();
+        int i = 0;
+        while (i < len)
+        {
+            int safeEnd = i;
+            while (safeEnd < len && s.charAt(safeEnd) < 128 && URL_SAFE[s.charAt(safeEnd)])
+            {
+                safeEnd++;
+            }
+            if (safeEnd > i)
+            {
+                out.append(s, i, safeEnd);
+                i = safeEnd;
+                if (i == len)
+                {
+                    break;
+                }
+            }
+
+            int c = s.codePointAt(i);
+            if (c == ' ')
+            {
+                out.append('+');
+            }
+            else if (c < 0x80)
+            {
+                appendPercentEncoded(c, out);
+            }
+            else if (c < 0x800)
+            {
+                appendPercentEncoded(0xC0 | (c >> 6), out);
+                appendPercentEncoded(0x80 | (c & 0x3F), out);
+            }
+            else if (c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE)
+            {
+                // unpaired surrogate, which the UTF-8 encoder replaces with '?'
+                appendPercentEncoded('?', out);
+            }
+            else if (c < 0x10000)
+            {
+                appendPercentEncoded(0xE0 | (c >> 12), out);
+                appendPercentEncoded(0x80 | ((c >> 6) & 0x3F), out);
+                appendPercentEncoded(0x80 | (c & 0x3F), out);
+            }
+            else
+            {
+                appendPercentEncoded(0xF0 | (c >> 18), out);
+                appendPercentEncoded(0x80 | ((c >> 12) & 0x3F), out);
+                appendPercentEncoded(0x80 | ((c >> 6) & 0x3F), out);
+                appendPercentEncoded(0x80 | (c & 0x3F), out);
+            }
+            i += Character.charCount(c);
+        }
+    }
+
+    private static void appendPercentEncoded(int b, Appendable out) throws IOException
+    {
+        out.append('%')
+            .append(HEX_DIGITS[b >> 4])
+            .append(HEX_DIGITS[b & 0xF]);
     }
 }
@@ -128,7 +128,7 @@ class TestCompiler extends BaseTest
                 "[go: , name, hi, foo, user, a user, bye]"),
             args("Option",
                 "hi <name; separator=\"x\">",
-                "write_str 0, load_attr 1, options, load_str 2, store_option 3, write_opt",
+                "write_str 0, load_attr 1, const_options 0, write_opt",
                 "[hi , name, x]"),
             args("OptionAsTemplate",
                 "hi <name; separator={, }>",
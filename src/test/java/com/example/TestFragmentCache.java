@@ -0,0 +1,273 @@
+package com.example;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.puretemplate.BaseTest;
+import org.puretemplate.Group;
+import org.puretemplate.diagnostics.FragmentCacheStatistics;
+import org.puretemplate.error.ErrorType;
+import org.puretemplate.misc.ErrorBuffer;
+
+class TestFragmentCache extends BaseTest
+{
+    /**
+     * Equality by id, as usual for entities.
+     */
+    public static class Person
+    {
+        private final int id;
+        private String name;
+
+        public Person(int id, String name)
+        {
+            this.id = id;
+            this.name = name;
+        }
+
+        public String getName()
+        {
+            return name;
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            return o instanceof Person && ((Person) o).id == id;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return id;
+        }
+    }
+
+    private static final String TEMPLATES = "header(title) ::= <<" +
+        NEWLINE +
+        "== <title> ==" +
+        NEWLINE +
+        "----" +
+        NEWLINE +
+        ">>" +
+        NEWLINE +
+        "page(title, body) ::= <<" +
+        NEWLINE +
+        "<header(title)>" +
+        NEWLINE +
+        "<body>" +
+        NEWLINE +
+        ">>" +
+        NEWLINE +
+        "indented(title) ::= <<" +
+        NEWLINE +
+        "  <header(title)>" +
+        NEWLINE +
+        ">>" +
+        NEWLINE;
+
+    @Test
+    void testCachedTemplateIsReused()
+    {
+        Group group = loader.getGroup()
+            .fromString(TEMPLATES)
+            .registerCacheableTemplate("header")
+            .build();
+
+        for (String body : new String[]{ "first", "second", "third" })
+        {
+            assertRenderingResult("== Intro ==" + NEWLINE + "----" + NEWLINE + body,
+                group.getTemplate("page")
+                    .createContext()
+                    .add("title", "Intro")
+                    .add("body", body));
+        }
+
+        FragmentCacheStatistics statistics = group.diagnostics()
+            .getFragmentCacheStatistics()
+            .orElseThrow();
+        assertThat(statistics.getMissCount()).isEqualTo(1);
+        assertThat(statistics.getHitCount()).isEqualTo(2);
+        assertThat(statistics.getSize()).isEqualTo(1);
+    }
+
+    @Test
+    void testDifferentArgumentsAreCachedSeparately()
+    {
+        Group group = loader.getGroup()
+            .fromString(TEMPLATES)
+            .registerCacheableTemplate("/header")
+            .build();
+
+        assertRenderingResult("== A ==" + NEWLINE + "----" + NEWLINE + "x",
+            group.getTemplate("page")
+                .createContext()
+                .add("title", "A")
+                .add("body", "x"));
+        assertRenderingResult("== B ==" + NEWLINE + "----" + NEWLINE + "x",
+            group.getTemplate("page")
+                .createContext()
+                .add("title", "B")
+                .add("body", "x"));
+
+        assertThat(group.diagnostics()
+            .getFragmentCacheStatistics()
+            .orElseThrow()
+            .getSize()).isEqualTo(2);
+    }
+
+    @Test
+    void testIndentationIsAppliedToCachedOutput()
+    {
+        Group group = loader.getGroup()
+            .fromString(TEMPLATES)
+            .registerCacheableTemplate("header")
+            .build();
+
+        for (int i = 0; i < 2; i++)
+        {
+            assertRenderingResult("  == Intro ==" + NEWLINE + "  ----",
+                group.getTemplate("indented")
+                    .createContext()
+                    .add("title", "Intro"));
+        }
+
+        assertThat(group.diagnostics()
+            .getFragmentCacheStatistics()
+            .orElseThrow()
+            .getHitCount()).isEqualTo(1);
+    }
+
+    @Test
+    void testNoStatisticsWithoutCacheableTemplates()
+    {
+        Group group = loadGroupFromString(TEMPLATES);
+
+        assertThat(group.diagnostics()
+            .getFragmentCacheStatistics()).isEmpty();
+    }
+
+    @Test
+    void testDynamicallyScopedTemplateIsNotCached()
+    {
+        String templates = "outer(x) ::= \"<inner(\\\"1\\\")>\"" + NEWLINE + "inner(y) ::= \"<x><y>\"" + NEWLINE;
+        ErrorBuffer errors = new ErrorBuffer();
+        Group group = loader.getGroup()
+            .fromString(templates)
+            .registerCacheableTemplate("inner")
+            .withErrorListener(errors)
+            .build();
+
+        for (int i = 0; i < 2; i++)
+        {
+            assertRenderingResult("a1",
+                group.getTemplate("outer")
+                    .createContext()
+                    .add("x", "a"));
+        }
+
+        assertThat(errors.getErrors()).hasSize(1);
+        assertThat(errors.getErrors()
+            .get(0)
+            .getError()).isEqualTo(ErrorType.UNCACHEABLE_TEMPLATE);
+        assertThat(group.diagnostics()
+            .getFragmentCacheStatistics()
+            .orElseThrow()
+            .getSize()).isZero();
+    }
+
+    @Test
+    void testImpureOverrideInImportingGroupIsNotCached()
+    {
+        String baseTemplates = "page(title, body) ::= \"<header(title)>|<body>\"" +
+            NEWLINE +
+            "header(title) ::= \"<line(title)>\"" +
+            NEWLINE +
+            "line(text) ::= \"== <text> ==\"" +
+            NEWLINE;
+        Group base = loadGroupFromString(baseTemplates);
+        ErrorBuffer errors = new ErrorBuffer();
+        Group group = loader.getGroup()
+            .fromString("line(text) ::= \"== <text> (<body>) ==\"" + NEWLINE)
+            .importTemplates(base)
+            .registerCacheableTemplate("header")
+            .withErrorListener(errors)
+            .build();
+
+        for (String body : new String[]{ "first", "second" })
+        {
+            assertRenderingResult("== Intro (" + body + ") ==|" + body,
+                group.getTemplate("page")
+                    .createContext()
+                    .add("title", "Intro")
+                    .add("body", body));
+        }
+
+        assertThat(errors.getErrors()).hasSize(1);
+        assertThat(errors.getErrors()
+            .get(0)
+            .getError()).isEqualTo(ErrorType.UNCACHEABLE_TEMPLATE);
+        assertThat(group.diagnostics()
+            .getFragmentCacheStatistics()
+            .orElseThrow()
+            .getSize()).isZero();
+    }
+
+    @Test
+    void testBeanArgumentsAreNotCached()
+    {
+        Group group = loader.getGroup()
+            .fromString("greeting(person) ::= \"Hello <person.name>\"" + NEWLINE)
+            .registerCacheableTemplate("greeting")
+            .build();
+        Person person = new Person(1, "Ann");
+
+        assertRenderingResult("Hello Ann",
+            group.getTemplate("greeting")
+                .createContext()
+                .add("person", person));
+        person.name = "Bob";
+        assertRenderingResult("Hello Bob",
+            group.getTemplate("greeting")
+                .createContext()
+                .add("person", person));
+
+        assertThat(group.diagnostics()
+            .getFragmentCacheStatistics()
+            .orElseThrow()
+            .getSize()).isZero();
+    }
+
+    @Test
+    void testListArgumentsAreCopied()
+    {
+        Group group = loader.getGroup()
+            .fromString("items(xs) ::= \"<xs; separator=\\\",\\\">\"" + NEWLINE)
+            .registerCacheableTemplate("items")
+            .build();
+        List<String> items = new ArrayList<>(List.of("a", "b"));
+
+        assertRenderingResult("a,b",
+            group.getTemplate("items")
+                .createContext()
+                .add("xs", items));
+        items.add("c");
+        assertRenderingResult("a,b,c",
+            group.getTemplate("items")
+                .createContext()
+                .add("xs", items));
+        assertRenderingResult("a,b",
+            group.getTemplate("items")
+                .createContext()
+                .add("xs", new ArrayList<>(List.of("a", "b"))));
+
+        FragmentCacheStatistics statistics = group.diagnostics()
+            .getFragmentCacheStatistics()
+            .orElseThrow();
+        assertThat(statistics.getSize()).isEqualTo(2);
+        assertThat(statistics.getHitCount()).isEqualTo(1);
+    }
+}
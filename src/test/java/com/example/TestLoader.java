@@ -63,6 +63,17 @@ class TestLoader extends BaseTest
         assertEquals("bar", renderGroupTemplate(group, "b"));
     }
 
+    @Test
+    void testGroupWithRegisterInterpreter()
+    {
+        Group group = loader.getGroup()
+            .fromString("a() ::= \"<b(\\\"x\\\")><if(true)>!<endif>\"\n" + "b(v) ::= <<[<v>]>>\n")
+            .useRegisterInterpreter()
+            .build();
+
+        assertEquals("[x]!", renderGroupTemplate(group, "a"));
+    }
+
     @Test
     void testGroupFromResourceFile()
     {
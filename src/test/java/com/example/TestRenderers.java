@@ -18,6 +18,7 @@ import org.puretemplate.Template;
 import org.puretemplate.misc.ErrorBuffer;
 import org.puretemplate.model.AttributeRenderer;
 import org.puretemplate.model.ModelAdaptor;
+import org.puretemplate.model.StringRenderer;
 
 class TestRenderers extends BaseTest
 {
@@ -132,6 +133,30 @@ class TestRenderers extends BaseTest
         verify(mockStringRenderer).render(eq("ack"), eq("quux"), any());
     }
 
+    @Test
+    void testStringRendererSubclassWithAdditionalFormat()
+    {
+        StringRenderer renderer = new StringRenderer()
+        {
+            @Override
+            public String render(String value, String formatString, Locale locale)
+            {
+                if ("reverse".equals(formatString))
+                {
+                    return new StringBuilder(value).reverse()
+                        .toString();
+                }
+                return super.render(value, formatString, locale);
+            }
+        };
+        String templates = "t(x) ::= \"<x; format=\\\"reverse\\\">|<x; format=\\\"upper\\\">|<x>\"\n";
+
+        assertRenderingResult("cba|ABC|abc",
+            getGroupWithRenderer(String.class, renderer, templates).getTemplate("t")
+                .createContext()
+                .add("x", "abc"));
+    }
+
     private <T> Group getGroupWithRenderer(
         @SuppressWarnings("SameParameterValue") Class<T> type, AttributeRenderer<? super T> renderer, String templates)
     {
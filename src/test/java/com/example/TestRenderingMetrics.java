@@ -0,0 +1,151 @@
+package com.example;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.junit.jupiter.api.Test;
+import org.puretemplate.BaseTest;
+import org.puretemplate.Group;
+import org.puretemplate.diagnostics.MetricsRecorder;
+import org.puretemplate.diagnostics.RenderingMetrics;
+import org.puretemplate.diagnostics.TemplateMetrics;
+import org.puretemplate.misc.ErrorBuffer;
+
+class TestRenderingMetrics extends BaseTest
+{
+    private static final String TEMPLATES = "page(users) ::= \"<users:user(); separator=\\\", \\\">\"" +
+        NEWLINE +
+        "user(u) ::= \"<u.name>\"" +
+        NEWLINE;
+
+    public static class User
+    {
+        private final String name;
+
+        public User(String name)
+        {
+            this.name = name;
+        }
+
+        public String getName()
+        {
+            return name;
+        }
+    }
+
+    @Test
+    void testTemplateMetrics()
+    {
+        Group group = loader.getGroup()
+            .fromString(TEMPLATES)
+            .collectMetrics()
+            .build();
+
+        assertRenderingResult("Ann, Bob",
+            group.getTemplate("page")
+                .createContext()
+                .add("users", List.of(new User("Ann"), new User("Bob"))));
+
+        RenderingMetrics metrics = group.diagnostics()
+            .getRenderingMetrics()
+            .orElseThrow();
+
+        assertThat(metrics.getTemplateMetrics()).extracting(TemplateMetrics::getTemplateName)
+            .containsExactlyInAnyOrder("/page", "/user");
+        assertThat(metrics.getTopTemplatesByTime(1)).extracting(TemplateMetrics::getTemplateName)
+            .containsExactly("/page");
+
+        TemplateMetrics user = metrics.getTemplateMetrics()
+            .stream()
+            .filter(templateMetrics -> templateMetrics.getTemplateName()
+                .equals("/user"))
+            .findFirst()
+            .orElseThrow();
+        assertThat(user.getInvocationCount()).isEqualTo(2);
+        assertThat(user.getCharacterCount()).isEqualTo(6);
+
+        assertThat(metrics.getModelAdaptorLookupCount()).isEqualTo(2);
+        assertThat(metrics.getCompilationCount()).isEqualTo(2);
+        assertThat(metrics.getRuntimeErrorCount()).isZero();
+    }
+
+    @Test
+    void testRuntimeErrorsAreCounted()
+    {
+        ErrorBuffer errors = new ErrorBuffer();
+        Group group = loader.getGroup()
+            .fromString("t(x) ::= \"<x.missing>\"" + NEWLINE)
+            .collectMetrics()
+            .withErrorListener(errors)
+            .build();
+
+        assertRenderingResult("",
+            group.getTemplate("t")
+                .createContext()
+                .add("x", new User("Ann")));
+
+        assertThat(group.diagnostics()
+            .getRenderingMetrics()
+            .orElseThrow()
+            .getRuntimeErrorCount()).isEqualTo(errors.getErrors()
+            .size())
+            .isPositive();
+    }
+
+    @Test
+    void testCustomRecorder()
+    {
+        Map<String, LongAdder> invocations = new ConcurrentHashMap<>();
+        LongAdder compilations = new LongAdder();
+        LongAdder modelAdaptorLookups = new LongAdder();
+        MetricsRecorder recorder = new MetricsRecorder()
+        {
+            @Override
+            public void recordTemplate(String templateName, long nanos, int characters)
+            {
+                invocations.computeIfAbsent(templateName, name -> new LongAdder())
+                    .increment();
+            }
+
+            @Override
+            public void recordModelAdaptorLookup()
+            {
+                modelAdaptorLookups.increment();
+            }
+
+            @Override
+            public void recordCompilation(long nanos)
+            {
+                compilations.increment();
+            }
+        };
+        Group group = loader.getGroup()
+            .fromString(TEMPLATES)
+            .collectMetrics(recorder)
+            .build();
+
+        assertRenderingResult("Ann, Bob",
+            group.getTemplate("page")
+                .createContext()
+                .add("users", List.of(new User("Ann"), new User("Bob"))));
+
+        assertThat(invocations).containsOnlyKeys("/page", "/user");
+        assertThat(invocations.get("/user")
+            .sum()).isEqualTo(2);
+        assertThat(modelAdaptorLookups.sum()).isEqualTo(2);
+        assertThat(compilations.sum()).isEqualTo(2);
+        assertThat(group.diagnostics()
+            .getRenderingMetrics()).isEmpty();
+    }
+
+    @Test
+    void testNoMetricsByDefault()
+    {
+        assertThat(loadGroupFromString(TEMPLATES).diagnostics()
+            .getRenderingMetrics()).isEmpty();
+    }
+}
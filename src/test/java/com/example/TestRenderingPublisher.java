@@ -0,0 +1,252 @@
+package com.example;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.puretemplate.BaseTest;
+import org.puretemplate.Context;
+
+class TestRenderingPublisher extends BaseTest
+{
+    /**
+     * Requests one buffer at a time and collects the bytes it receives.
+     */
+    private static class CollectingSubscriber implements Flow.Subscriber<ByteBuffer>
+    {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final CompletableFuture<byte[]> result = new CompletableFuture<>();
+        private final long initialRequest;
+        private Flow.Subscription subscription;
+        private int buffers;
+
+        CollectingSubscriber(long initialRequest)
+        {
+            this.initialRequest = initialRequest;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription)
+        {
+            this.subscription = subscription;
+            subscription.request(initialRequest);
+        }
+
+        @Override
+        public void onNext(ByteBuffer item)
+        {
+            buffers++;
+            byte[] chunk = new byte[item.remaining()];
+            item.get(chunk);
+            bytes.write(chunk, 0, chunk.length);
+            subscription.request(1);
+        }
+
+        @Override
+        public void onError(Throwable throwable)
+        {
+            result.completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete()
+        {
+            result.complete(bytes.toByteArray());
+        }
+
+        String await() throws Exception
+        {
+            return new String(result.get(10, TimeUnit.SECONDS), StandardCharsets.UTF_8);
+        }
+    }
+
+    private Context createLargeContext()
+    {
+        return makeTemplateContext("<items:{it | <it>: \u00e4\u00f6\u00fc\u20ac}; separator=\"\\n\">").add("items",
+            Collections.nCopies(5000, "item"));
+    }
+
+    @Test
+    void testOutputIsIdenticalToString() throws Exception
+    {
+        Context context = createLargeContext();
+        String expected = context.render()
+            .intoString();
+
+        CollectingSubscriber subscriber = new CollectingSubscriber(1);
+        context.render()
+            .intoPublisher()
+            .subscribe(subscriber);
+
+        assertThat(subscriber.await()).isEqualTo(expected);
+        assertThat(subscriber.buffers).isGreaterThan(1);
+    }
+
+    @Test
+    void testSubscriberOwnsBuffers() throws Exception
+    {
+        Context context = createLargeContext();
+        String expected = context.render()
+            .intoString();
+        List<ByteBuffer> buffers = new ArrayList<>();
+        CollectingSubscriber subscriber = new CollectingSubscriber(1)
+        {
+            @Override
+            public void onNext(ByteBuffer buffer)
+            {
+                // keep the buffer and read it only after all others were received
+                buffers.add(buffer);
+                super.onNext(buffer.duplicate());
+            }
+        };
+        context.render()
+            .intoPublisher()
+            .subscribe(subscriber);
+        subscriber.await();
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        for (ByteBuffer buffer : buffers)
+        {
+            bytes.write(buffer.array(), buffer.position(), buffer.remaining());
+        }
+        assertThat(bytes.toString(StandardCharsets.UTF_8)).isEqualTo(expected);
+    }
+
+    @Test
+    void testEachSubscriptionRendersAgain() throws Exception
+    {
+        Flow.Publisher<ByteBuffer> publisher = makeTemplateContext("hello <name>").add("name", "world")
+            .render()
+            .intoPublisher(StandardCharsets.UTF_8);
+
+        CollectingSubscriber first = new CollectingSubscriber(1);
+        CollectingSubscriber second = new CollectingSubscriber(Long.MAX_VALUE);
+        publisher.subscribe(first);
+        publisher.subscribe(second);
+
+        assertThat(first.await()).isEqualTo("hello world");
+        assertThat(second.await()).isEqualTo("hello world");
+    }
+
+    @Test
+    void testNoOutputWithoutDemand() throws Exception
+    {
+        CollectingSubscriber subscriber = new CollectingSubscriber(0)
+        {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription)
+            {
+                // deliberately don't request anything
+            }
+        };
+        createLargeContext().render()
+            .intoPublisher()
+            .subscribe(subscriber);
+
+        assertThat(subscriber.result).failsWithin(200, TimeUnit.MILLISECONDS)
+            .withThrowableOfType(TimeoutException.class);
+        assertThat(subscriber.buffers).isZero();
+    }
+
+    @Test
+    void testNonPositiveRequestIsRejected()
+    {
+        CollectingSubscriber subscriber = new CollectingSubscriber(0);
+        createLargeContext().render()
+            .intoPublisher()
+            .subscribe(subscriber);
+
+        assertThat(subscriber.result).failsWithin(10, TimeUnit.SECONDS)
+            .withThrowableOfType(ExecutionException.class)
+            .withCauseInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void testNonPositiveRequestIsRejectedForEmptyOutput()
+    {
+        CollectingSubscriber subscriber = new CollectingSubscriber(0);
+        makeTemplateContext("").render()
+            .intoPublisher()
+            .subscribe(subscriber);
+
+        assertThat(subscriber.result).failsWithin(10, TimeUnit.SECONDS)
+            .withThrowableOfType(ExecutionException.class)
+            .withCauseInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void testCancelStopsRendering() throws Exception
+    {
+        AtomicInteger renderedItems = new AtomicInteger();
+        Object item = new Object()
+        {
+            @Override
+            public String toString()
+            {
+                renderedItems.incrementAndGet();
+                return "item";
+            }
+        };
+        CollectingSubscriber subscriber = new CollectingSubscriber(1)
+        {
+            @Override
+            public void onNext(ByteBuffer buffer)
+            {
+                super.onNext(buffer);
+                super.subscription.cancel();
+            }
+        };
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try
+        {
+            makeTemplateContext("<items:{it | <it>}; separator=\"\\n\">").add("items", Collections.nCopies(5000, item))
+                .render()
+                .intoPublisher(StandardCharsets.UTF_8, executor)
+                .subscribe(subscriber);
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(subscriber.buffers).isEqualTo(1);
+        assertThat(subscriber.result).isNotDone();
+        assertThat(renderedItems.get()).isLessThan(5000);
+    }
+
+    @Test
+    void testErrorsAreSignalledAndRethrown()
+    {
+        Object item = new Object()
+        {
+            @Override
+            public String toString()
+            {
+                throw new AssertionError("broken model");
+            }
+        };
+        CollectingSubscriber subscriber = new CollectingSubscriber(Long.MAX_VALUE);
+        Flow.Publisher<ByteBuffer> publisher = makeTemplateContext("hello <name>").add("name", item)
+            .render()
+            .intoPublisher(StandardCharsets.UTF_8, Runnable::run);
+
+        assertThatThrownBy(() -> publisher.subscribe(subscriber)).isInstanceOf(AssertionError.class);
+        assertThat(subscriber.result).isCompletedExceptionally();
+    }
+}
@@ -0,0 +1,85 @@
+package com.example;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.puretemplate.BaseTest;
+import org.puretemplate.Context;
+import org.puretemplate.Group;
+import org.puretemplate.error.ErrorType;
+import org.puretemplate.error.RuntimeErrorPolicy;
+import org.puretemplate.misc.ErrorBuffer;
+
+class TestRuntimeErrorPolicy extends BaseTest
+{
+    private static final String TEMPLATES = "t(xs) ::= \"<xs:{x|<x.missing>}>\"" + NEWLINE;
+
+    private final ErrorBuffer errors = new ErrorBuffer();
+
+    private Context createContext(RuntimeErrorPolicy policy)
+    {
+        Group group = loader.getGroup()
+            .fromString(TEMPLATES)
+            .withErrorListener(errors)
+            .withRuntimeErrorPolicy(policy)
+            .build();
+        return group.getTemplate("t")
+            .createContext()
+            .add("xs", List.of("a", "b", "c"));
+    }
+
+    @Test
+    void testReport()
+    {
+        assertRenderingResult("", createContext(RuntimeErrorPolicy.report()));
+
+        assertThat(errors.getErrors()).hasSize(3);
+    }
+
+    @Test
+    void testIgnore()
+    {
+        RuntimeErrorPolicy policy = RuntimeErrorPolicy.ignore();
+
+        assertRenderingResult("", createContext(policy));
+
+        assertThat(errors.getErrors()).isEmpty();
+        assertThat(policy.getCount(ErrorType.NO_SUCH_PROPERTY)).isZero();
+    }
+
+    @Test
+    void testCountOnly()
+    {
+        RuntimeErrorPolicy policy = RuntimeErrorPolicy.countOnly();
+
+        assertRenderingResult("", createContext(policy));
+
+        assertThat(errors.getErrors()).isEmpty();
+        assertThat(policy.getCount(ErrorType.NO_SUCH_PROPERTY)).isEqualTo(3);
+        assertThat(policy.getCount(ErrorType.NO_SUCH_ATTRIBUTE)).isZero();
+    }
+
+    @Test
+    void testSample()
+    {
+        RuntimeErrorPolicy policy = RuntimeErrorPolicy.sample(2);
+
+        assertRenderingResult("", createContext(policy));
+
+        assertThat(errors.getErrors()).hasSize(2);
+        assertThat(policy.getCount(ErrorType.NO_SUCH_PROPERTY)).isEqualTo(3);
+    }
+
+    @Test
+    void testRateLimited()
+    {
+        RuntimeErrorPolicy policy = RuntimeErrorPolicy.rateLimited(1, Runnable::run);
+
+        assertRenderingResult("", createContext(policy));
+
+        assertThat(errors.getErrors()).hasSize(1);
+        assertThat(policy.getCount(ErrorType.NO_SUCH_PROPERTY)).isEqualTo(3);
+    }
+}
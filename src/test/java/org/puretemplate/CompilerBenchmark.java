@@ -0,0 +1,90 @@
+package org.puretemplate;
+
+import java.util.concurrent.TimeUnit;
+
+import org.antlr.runtime.ANTLRStringStream;
+import org.antlr.runtime.CommonTokenStream;
+import org.antlr.runtime.RecognitionException;
+import org.antlr.runtime.tree.CommonTreeNodeStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares compiling templates made of text, newlines, indentation and plain attribute references with {@link
+ * DirectCompiler} and with {@code STParser} and {@code CodeGenerator}. The GC profiler reports the garbage allocated per
+ * compilation. Not run by the build; start it via {@link #main(String[])} after compiling the test sources.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompilerBenchmark
+{
+    @Param({ "1", "20", "1000" })
+    public int lines;
+
+    private String template;
+
+    public static void main(String[] args) throws RunnerException
+    {
+        new Runner(new OptionsBuilder().include(CompilerBenchmark.class.getSimpleName())
+            .addProfiler(GCProfiler.class)
+            .build()).run();
+    }
+
+    @Setup
+    public void setUp()
+    {
+        // measure compiling, not looking up the code of the previous iteration
+        CompilationCache.setEnabled(false);
+
+        StringBuilder buf = new StringBuilder();
+        for (int i = 0; i < lines; i++)
+        {
+            buf.append("    Dear <name>, line ")
+                .append(i)
+                .append(" of <title> is here.\n");
+        }
+        template = buf.toString();
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        CompilationCache.setEnabled(true);
+    }
+
+    @Benchmark
+    public CompiledST directCompiler()
+    {
+        return new Compiler().compile(template);
+    }
+
+    @Benchmark
+    public CompiledST codeGenerator() throws RecognitionException
+    {
+        ErrorManager errMgr = STGroup.DEFAULT_ERR_MGR;
+        CommonTokenStream tokens = new CommonTokenStream(new STLexer(errMgr, new TemplateCharStream(template), null));
+        STParser parser = new STParser(tokens, errMgr, null);
+        CommonTreeNodeStream nodes = new CommonTreeNodeStream(parser.templateAndEOF()
+            .getTree());
+        nodes.setTokenStream(tokens);
+        return new CodeGenerator(nodes, errMgr, null, template, null).template(null, null);
+    }
+}
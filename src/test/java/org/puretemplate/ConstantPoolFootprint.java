@@ -0,0 +1,69 @@
+package org.puretemplate;
+
+import org.openjdk.jol.info.GraphLayout;
+
+/**
+ * Reports the retained size of a generated group with and without {@link ConstantPool}. The templates share property
+ * names, literals and indentation and each maps an identical anonymous subtemplate, like the templates of a typical
+ * code generator. The {@link CompilationCache} is disabled so that the difference is due to the pool alone.
+ * <p>
+ * Not run by the build; start it via {@link #main(String[])} after compiling the test sources. The sizes are those of
+ * the running JVM, so run it with the heap settings and compressed oops mode of interest.</p>
+ */
+public class ConstantPoolFootprint
+{
+    private static final int[] TEMPLATE_COUNTS = { 10, 100, 1000 };
+
+    public static void main(String[] args)
+    {
+        CompilationCache.setEnabled(false);
+        try
+        {
+            System.out.printf("%10s %15s %15s %8s%n", "templates", "without pool", "with pool", "saved");
+            for (int templateCount : TEMPLATE_COUNTS)
+            {
+                long withoutPool = measure(templateCount, false);
+                long withPool = measure(templateCount, true);
+                System.out.printf("%10d %15d %15d %7.1f%%%n",
+                    templateCount,
+                    withoutPool,
+                    withPool,
+                    100.0 * (withoutPool - withPool) / withoutPool);
+            }
+        }
+        finally
+        {
+            CompilationCache.setEnabled(true);
+        }
+    }
+
+    private static long measure(int templateCount, boolean pool)
+    {
+        STGroup group = new STGroupString(generateTemplates(templateCount));
+        group.internConstants = pool;
+        group.load();
+        return GraphLayout.parseInstance(group)
+            .totalSize();
+    }
+
+    private static String generateTemplates(int templateCount)
+    {
+        StringBuilder buf = new StringBuilder();
+        for (int i = 0; i < templateCount; i++)
+        {
+            buf.append("row")
+                .append(i)
+                .append("(item) ::= <<\n")
+                .append("    <tr class=\"row\">\n")
+                .append("        <td><item.name></td>\n")
+                .append("        <td><item.price></td>\n")
+                .append("        <td><item.tags:{t | <li><t></li>}></td>\n")
+                .append("        <td>row ")
+                .append(i)
+                .append("</td>\n")
+                .append("    </tr>\n")
+                .append(">>\n");
+        }
+        return buf.toString();
+    }
+}
@@ -0,0 +1,85 @@
+package org.puretemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares the stack-based interpreter with the register-based one, see {@link RegisterCode}, on templates dominated by
+ * writing locals and properties, by conditions and functions, and by invoking other templates. Not run by the build;
+ * start it via {@link #main(String[])} after compiling the test sources.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InterpreterBenchmark
+{
+    private static final String TEMPLATES = "row(a, b, c) ::= \"<a>|<b>|<c>\"\n" +
+        "writes(user) ::= \"<user.name> (<user.id>): <user.name>, <user.id>, <user.name>, <user.id>\"\n" +
+        "conditions(user, names) ::= \"<if(user.admin && !names)>a<elseif(first(names) || user.id)>" +
+        "<first(names)><length(names)><last(names)><else>c<endif>\"\n" +
+        "invocations(names) ::= \"<row(names, names, names)><names:{n | <row(n, n, n)>}; separator=\\\",\\\">\"\n";
+
+    @Param({ "false", "true" })
+    public boolean registerInterpreter;
+
+    private STGroup group;
+    private final Map<String, Object> user = Map.of("name", "Ter", "id", 7, "admin", false);
+    private final List<String> names = List.of("a", "b", "c", "d");
+
+    public static void main(String[] args) throws RunnerException
+    {
+        new Runner(new OptionsBuilder().include(InterpreterBenchmark.class.getSimpleName())
+            .build()).run();
+    }
+
+    @Setup
+    public void setUp()
+    {
+        group = new STGroupString(TEMPLATES);
+        group.registerInterpreter = registerInterpreter;
+    }
+
+    @Benchmark
+    public String writes()
+    {
+        return group.getInstanceOf("writes")
+            .add("user", user)
+            .render();
+    }
+
+    @Benchmark
+    public String conditions()
+    {
+        return group.getInstanceOf("conditions")
+            .add("user", user)
+            .add("names", names)
+            .render();
+    }
+
+    @Benchmark
+    public String invocations()
+    {
+        return group.getInstanceOf("invocations")
+            .add("names", names)
+            .render();
+    }
+}
@@ -0,0 +1,98 @@
+package org.puretemplate;
+
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures rendering templates that invoke other templates with positional and named arguments. The {@code store...}
+ * benchmarks compare how {@code AbstractInterpreter.storeArgs()} passes positional arguments: by looking up each formal
+ * argument by name, as it used to, or by copying the values into the locals of the new instance. Not run by the build;
+ * start it via {@link #main(String[])} after compiling the test sources.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TemplateInvocationBenchmark
+{
+    private static final String TEMPLATES = "row(a, b, c) ::= \"<a>|<b>|<c>\"\n" +
+        "positional(x) ::= \"<row(x, x, x)><row(x, x, x)><row(x, x, x)><row(x, x, x)>\"\n" +
+        "named(x) ::= \"<row(a=x, b=x, c=x)><row(a=x, b=x, c=x)><row(a=x, b=x, c=x)><row(a=x, b=x, c=x)>\"\n" +
+        "mapped(xs) ::= \"<xs:{x | <row(x, x, x)>}>\"\n";
+
+    private STGroup group;
+    private ST row;
+    private final Object[] values = { "a", "b", "c" };
+
+    public static void main(String[] args) throws RunnerException
+    {
+        new Runner(new OptionsBuilder().include(TemplateInvocationBenchmark.class.getSimpleName())
+            .build()).run();
+    }
+
+    @Setup
+    public void setUp()
+    {
+        group = new STGroupString(TEMPLATES);
+        row = group.getInstanceOf("row");
+    }
+
+    @Benchmark
+    public Object[] storeByName()
+    {
+        Iterator<String> argNames = row.getImpl().formalArguments.keySet()
+            .iterator();
+        for (Object value : values)
+        {
+            row.rawSetAttribute(argNames.next(), value);
+        }
+        return row.locals;
+    }
+
+    @Benchmark
+    public Object[] storeIntoLocals()
+    {
+        System.arraycopy(values, 0, row.locals, 0, values.length);
+        return row.locals;
+    }
+
+    @Benchmark
+    public String positionalArguments()
+    {
+        return group.getInstanceOf("positional")
+            .add("x", "value")
+            .render();
+    }
+
+    @Benchmark
+    public String namedArguments()
+    {
+        return group.getInstanceOf("named")
+            .add("x", "value")
+            .render();
+    }
+
+    @Benchmark
+    public String mappedSubtemplate()
+    {
+        return group.getInstanceOf("mapped")
+            .add("xs", new int[]{ 1, 2, 3, 4, 5, 6, 7, 8 })
+            .render();
+    }
+}
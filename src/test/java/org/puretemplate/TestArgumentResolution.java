@@ -0,0 +1,59 @@
+package org.puretemplate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+import org.puretemplate.misc.ErrorBuffer;
+
+class TestArgumentResolution extends BaseTest
+{
+    @Test
+    void testRepeatedCallsWithNamedArguments()
+    {
+        STGroup group = new STGroupString("c(x) ::= \"<x:{v | <t(b=v, a={<v>!})>}>\"\n" +
+            "t(a, b, c=\"-\") ::= \"[<a>|<b>|<c>]\"\n");
+        ST st = group.getInstanceOf("c");
+        st.add("x", new int[]{ 1, 2, 3 });
+        assertEquals("[1!|1|-][2!|2|-][3!|3|-]", st.render());
+        assertEquals("[1!|1|-][2!|2|-][3!|3|-]", st.render());
+    }
+
+    @Test
+    void testCallSiteInvokingDifferentTemplates()
+    {
+        STGroup library = new STGroupString("c() ::= \"<t(a=\\\"1\\\", b=\\\"2\\\")>\"\n" +
+            "t(a, b) ::= \"<a><b>\"\n");
+        STGroup group = new STGroupString("t(b, a) ::= \"[<a>|<b>]\"\n");
+        group.importTemplates(library);
+
+        assertEquals("12",
+            library.getInstanceOf("c")
+                .render());
+        assertEquals("[1|2]",
+            group.getInstanceOf("c")
+                .render());
+        assertEquals("12",
+            library.getInstanceOf("c")
+                .render());
+    }
+
+    @Test
+    void testErrorsAreReportedForEveryCall()
+    {
+        ErrorBuffer errors = new ErrorBuffer();
+        STGroup group = new STGroupString("c() ::= \"<t(a=\\\"1\\\", x=\\\"2\\\")>\"\n" + "t(a) ::= \"<a>\"\n");
+        group.setListener(errors);
+
+        group.getInstanceOf("c")
+            .render();
+        int errorsOfFirstCall = errors.getErrors()
+            .size();
+        group.getInstanceOf("c")
+            .render();
+
+        assertEquals(1, errorsOfFirstCall);
+        assertEquals(2,
+            errors.getErrors()
+                .size());
+    }
+}
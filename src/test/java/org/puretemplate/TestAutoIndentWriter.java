@@ -0,0 +1,77 @@
+package org.puretemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import org.junit.jupiter.api.Test;
+
+class TestAutoIndentWriter
+{
+    @Test
+    void testDeepIndentation() throws IOException
+    {
+        StringWriter result = new StringWriter();
+        AutoIndentWriter writer = new AutoIndentWriter(result, "\n");
+        StringBuilder expected = new StringBuilder();
+        for (int depth = 1; depth <= 12; depth++)
+        {
+            writer.pushIndentation(depth % 2 == 0
+                ? "\t"
+                : " ");
+            writer.write("x\n");
+            expected.append(" \t".repeat(depth / 2))
+                .append(depth % 2 == 0
+                    ? ""
+                    : " ")
+                .append("x\n");
+        }
+        for (int depth = 12; depth > 10; depth--)
+        {
+            writer.popIndentation();
+        }
+        writer.write("y\n");
+        expected.append(" \t".repeat(5))
+            .append("y\n");
+        writer.pushIndentation("--");
+        writer.write("z");
+        expected.append(" \t".repeat(5))
+            .append("--z");
+
+        assertThat(result.toString()).isEqualTo(expected.toString());
+    }
+
+    @Test
+    void testAnchorBeyondIndentation() throws IOException
+    {
+        StringWriter result = new StringWriter();
+        AutoIndentWriter writer = new AutoIndentWriter(result, "\n");
+        writer.pushIndentation("  ");
+        writer.write("foo(");
+        writer.pushAnchorPoint();
+        writer.write("a,\nb)");
+        writer.popAnchorPoint();
+        writer.write("\nc");
+
+        assertThat(result.toString()).isEqualTo("  foo(a,\n      b)\n  c");
+    }
+
+    @Test
+    void testCharArrayWrite() throws IOException
+    {
+        StringWriter expected = new StringWriter();
+        AutoIndentWriter stringWriter = new AutoIndentWriter(expected, "\n");
+        stringWriter.pushIndentation("  ");
+        StringWriter actual = new StringWriter();
+        AutoIndentWriter charArrayWriter = new AutoIndentWriter(actual, "\n");
+        charArrayWriter.pushIndentation("  ");
+
+        String text = "a\r\nb\n\nc";
+        char[] chars = ("xx" + text + "yy").toCharArray();
+
+        assertThat(charArrayWriter.write(chars, 2, text.length())).isEqualTo(stringWriter.write(text));
+        assertThat(charArrayWriter.index()).isEqualTo(stringWriter.index());
+        assertThat(actual.toString()).isEqualTo(expected.toString());
+    }
+}
@@ -0,0 +1,83 @@
+package org.puretemplate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.puretemplate.diagnostics.Instruction;
+
+import com.github.mizool.core.exception.CodeInconsistencyException;
+
+class TestBytecodeVerifier extends BaseTest
+{
+    static Arguments[] maxStackDepths()
+    {
+        return new Arguments[]{
+            args("hi", 0),
+            args("hi <name>", 1),
+            args("<name.first>", 1),
+            args("<t(a, b)>", 2),
+            args("<if(a)>x<elseif(b)><c><else><d.e><endif>", 1),
+            args("<names:{n | <n>}; separator=\", \">", 2),
+            args("hi <name; anchor, wrap=foo(), separator=\", \">", 3)
+        };
+    }
+
+    @ParameterizedTest(name = "[{index}] {0}")
+    @MethodSource("maxStackDepths")
+    void testMaxStackDepth(String template, int expected)
+    {
+        CompiledST code = new Compiler().compile(template);
+        assertEquals(expected, code.maxStackDepth);
+    }
+
+    @Test
+    void testRejectsStackUnderflow()
+    {
+        CompiledST code = createCode(Instruction.WRITE);
+        assertThrowsExceptionOfType(() -> BytecodeVerifier.getMaxStackDepth(code), CodeInconsistencyException.class);
+    }
+
+    @Test
+    void testRejectsOperandsLeftOnStack()
+    {
+        CompiledST code = createCode(Instruction.NULL);
+        assertThrowsExceptionOfType(() -> BytecodeVerifier.getMaxStackDepth(code), CodeInconsistencyException.class);
+    }
+
+    @Test
+    void testRejectsBranchesWithDifferentStackDepths()
+    {
+        // true, brf 5, null, null: the second null is reached with no or one operand on the stack
+        CompiledST code = createCode(Instruction.TRUE, Instruction.BRF, 0, 5, Instruction.NULL, Instruction.NULL);
+        assertThrowsExceptionOfType(() -> BytecodeVerifier.getMaxStackDepth(code), CodeInconsistencyException.class);
+    }
+
+    @Test
+    void testRoundRobinMapOfNull()
+    {
+        STGroup group = new STGroupString("a(x) ::= \"[<x>]\"\n" +
+            "b(x) ::= \"(<x>)\"\n" +
+            "t(xs) ::= \"<xs:a(),b()>!\"\n");
+        assertEquals("!",
+            group.getInstanceOf("t")
+                .render());
+    }
+
+    private static CompiledST createCode(Object... code)
+    {
+        CompiledST impl = new CompiledST();
+        impl.name = "t";
+        impl.instrs = new byte[code.length];
+        for (int i = 0; i < code.length; i++)
+        {
+            impl.instrs[i] = code[i] instanceof Instruction
+                ? (byte) ((Instruction) code[i]).opcode
+                : (byte) (int) (Integer) code[i];
+        }
+        impl.codeSize = code.length;
+        return impl;
+    }
+}
@@ -0,0 +1,123 @@
+package org.puretemplate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.puretemplate.misc.ErrorBuffer;
+
+class TestCompilationCache extends BaseTest
+{
+    @Test
+    void testIdenticalTemplatesShareCode()
+    {
+        String template = "testIdenticalTemplatesShareCode <name>!";
+        CompiledST a = new Compiler(new LegacyBareStGroup()).compile("t", template);
+        CompiledST b = new Compiler(new LegacyBareStGroup()).compile("t", template);
+
+        assertNotSame(a, b);
+        assertSame(a.instrs, b.instrs);
+        assertSame(a.strings, b.strings);
+        assertEquals(template, b.template);
+    }
+
+    @Test
+    void testTemplatesOfDifferentNamesShareCode()
+    {
+        String template = "testTemplatesOfDifferentNamesShareCode <name>!";
+        CompiledST a = new Compiler(new LegacyBareStGroup()).compile("a", template);
+        CompiledST b = new Compiler(new LegacyBareStGroup()).compile("b", template);
+
+        assertSame(a.instrs, b.instrs);
+        assertEquals("a", a.name);
+        assertEquals("b", b.name);
+    }
+
+    @Test
+    void testTokensAndTreeAreNotShared()
+    {
+        String template = "testTokensAndTreeAreNotShared <if(name)><name><endif>";
+        new Compiler(new LegacyBareStGroup()).compile("t", template);
+        CompiledST cached = new Compiler(new LegacyBareStGroup()).compile("t", template);
+
+        assertNull(cached.tokens);
+        assertNull(cached.ast);
+    }
+
+    @Test
+    void testTemplatesReferringToSuperRegionsAreNotShared()
+    {
+        String template = "testTemplatesReferringToSuperRegionsAreNotShared <@super.r()>";
+        CompiledST a = new Compiler(new LegacyBareStGroup()).compile("a", template);
+        CompiledST b = new Compiler(new LegacyBareStGroup()).compile("b", template);
+
+        assertNotSame(a.instrs, b.instrs);
+        assertEquals("/region__/a__r", a.strings[1]);
+        assertEquals("/region__/b__r", b.strings[1]);
+    }
+
+    @Test
+    void testDifferentFormalArgumentsDoNotShareCode()
+    {
+        String template = "testDifferentFormalArgumentsDoNotShareCode <x>";
+        CompiledST a = new Compiler(new LegacyBareStGroup()).compile(null,
+            "t",
+            List.of(new FormalArgument("x")),
+            template,
+            null);
+        CompiledST b = new Compiler(new LegacyBareStGroup()).compile(null, "t", null, template, null);
+
+        assertNotSame(a.instrs, b.instrs);
+        assertEquals("write_str 0, load_local 0, write", a.getStatementsAsString());
+        assertEquals("write_str 0, load_attr 1, write", b.getStatementsAsString());
+    }
+
+    @Test
+    void testErrorsAreReportedOnEachCompilation()
+    {
+        String template = "testErrorsAreReportedOnEachCompilation <>";
+        STGroup group = new LegacyBareStGroup();
+        ErrorBuffer errors = new ErrorBuffer();
+        group.setListener(errors);
+
+        group.defineTemplate("a", template);
+        group.defineTemplate("b", template);
+
+        assertEquals("a 1:39: doesn't look like an expression" +
+            NEWLINE +
+            "b 1:39: doesn't look like an expression" +
+            NEWLINE, errors.toString());
+    }
+
+    @Test
+    void testTemplatesWithSubtemplatesAreNotShared()
+    {
+        String template = "testTemplatesWithSubtemplatesAreNotShared <names:{n | <n>}>";
+        CompiledST a = new Compiler(new LegacyBareStGroup()).compile("t", template);
+        CompiledST b = new Compiler(new LegacyBareStGroup()).compile("t", template);
+
+        assertNotSame(a.instrs, b.instrs);
+    }
+
+    @Test
+    void testDisabled()
+    {
+        String template = "testDisabled <name>";
+        CompilationCache.setEnabled(false);
+        try
+        {
+            CompiledST a = new Compiler(new LegacyBareStGroup()).compile("t", template);
+            CompiledST b = new Compiler(new LegacyBareStGroup()).compile("t", template);
+
+            assertNotSame(a.instrs, b.instrs);
+        }
+        finally
+        {
+            CompilationCache.setEnabled(true);
+        }
+    }
+}
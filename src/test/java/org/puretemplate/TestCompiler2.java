@@ -1,15 +1,23 @@
 package org.puretemplate;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 
 import java.util.Arrays;
+import java.util.stream.Collectors;
 
 import lombok.extern.slf4j.Slf4j;
 
+import org.antlr.runtime.ANTLRStringStream;
+import org.antlr.runtime.CommonTokenStream;
+import org.antlr.runtime.RecognitionException;
+import org.antlr.runtime.tree.CommonTreeNodeStream;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.puretemplate.diagnostics.Statement;
 import org.puretemplate.error.ErrorListener;
 import org.puretemplate.misc.ErrorBuffer;
 
@@ -57,6 +65,66 @@ class TestCompiler2 extends BaseTest
         assertEquals(asmExpected, asmResult);
     }
 
+    @Test
+    void testConstantOptions()
+    {
+        String template = "hi <name; anchor, null=\"-\", separator=\", \">";
+        CompiledST code = new Compiler().compile(template);
+        String asmExpected = "write_str 0, load_attr 1, const_options 0, write_opt";
+        String optionSetsExpected = "[true, null, -, , , null]";
+        String optionSetsResult = Arrays.toString(code.optionSets[0]);
+        assertEquals(optionSetsExpected, optionSetsResult);
+        assertEquals(1, code.optionSets.length);
+        String asmResult = code.getStatementsAsString();
+        assertEquals(asmExpected, asmResult);
+    }
+
+    @ParameterizedTest(name = "[{index}] {0}")
+    @ValueSource(strings = { "hi <name>!", "a\n  <b>\n<c>d", "  x", "\n\n", "<x>\n  \n<y><z>", "x <\\n> y", "<i>" })
+    void testDirectCompilerMatchesCodeGenerator(String template) throws RecognitionException
+    {
+        CompiledST direct = new Compiler().compile(template);
+        CompiledST generated = compileWithCodeGenerator(template);
+
+        assertNull(direct.ast);
+        assertEquals(dump(generated), dump(direct));
+    }
+
+    @Test
+    void testSuperinstructions()
+    {
+        CompiledST code = new Compiler().compile("hi <name>\nbye\n<name.first><a>");
+
+        String asmExpected = "write_str 0, load_attr 1, write, newline, write_str 2, newline, " +
+            "load_attr 1, load_prop 3, write, load_attr 4, write";
+        String fusedExpected = "write_str 0, write_attr 1, write, newline, write_str_newline 2, newline, " +
+            "load_attr_prop 1, load_prop 3, write, write_attr 4, write";
+        assertEquals(asmExpected, code.getStatementsAsString());
+        assertEquals(fusedExpected,
+            code.getStatements(false)
+                .stream()
+                .map(statement -> statement.toString(Statement.Format.MINIMAL))
+                .collect(Collectors.joining(", ")));
+    }
+
+    private static CompiledST compileWithCodeGenerator(String template) throws RecognitionException
+    {
+        ErrorManager errMgr = STGroup.DEFAULT_ERR_MGR;
+        CommonTokenStream tokens = new CommonTokenStream(new STLexer(errMgr, new ANTLRStringStream(template), null));
+        STParser parser = new STParser(tokens, errMgr, null);
+        CommonTreeNodeStream nodes = new CommonTreeNodeStream(parser.templateAndEOF()
+            .getTree());
+        nodes.setTokenStream(tokens);
+        return new CodeGenerator(nodes, errMgr, null, template, null).template(null, null);
+    }
+
+    private static String dump(CompiledST code)
+    {
+        StringBuilder result = new StringBuilder();
+        code.dump(result::append);
+        return result.toString();
+    }
+
     @Test
     void testEmbeddedRegion()
     {
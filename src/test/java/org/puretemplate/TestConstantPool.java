@@ -0,0 +1,79 @@
+package org.puretemplate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+class TestConstantPool extends BaseTest
+{
+    @Test
+    void testTemplatesShareStrings()
+    {
+        STGroup group = new STGroupString("a(x) ::= \"hello <x.name>\"\n" + "b(y) ::= \"<y.name>, hello\"\n");
+
+        CompiledST a = group.getInstanceOf("a")
+            .getImpl();
+        CompiledST b = group.getInstanceOf("b")
+            .getImpl();
+
+        assertSame(find(a.strings, "name"), find(b.strings, "name"));
+    }
+
+    @Test
+    void testPoolCanBeTurnedOffPerGroup()
+    {
+        STGroup group = new STGroupString("a(x) ::= \"hi <x.name>\"\n" + "b(y) ::= \"<y.name>, hi\"\n");
+        group.internConstants = false;
+
+        CompiledST a = group.getInstanceOf("a")
+            .getImpl();
+        CompiledST b = group.getInstanceOf("b")
+            .getImpl();
+
+        assertNotSame(find(a.strings, "name"), find(b.strings, "name"));
+    }
+
+    private static String find(String[] strings, String s)
+    {
+        return Arrays.stream(strings)
+            .filter(s::equals)
+            .findFirst()
+            .orElseThrow();
+    }
+
+    @Test
+    void testIdenticalSubtemplatesShareCode()
+    {
+        STGroup group = new STGroupString("a(xs) ::= \"<xs:{x | [<x>]}><xs:{x | [<x>]}>\"\n");
+        ST st = group.getInstanceOf("a");
+
+        List<CompiledST> subtemplates = group.templates.values()
+            .stream()
+            .filter(impl -> impl.isAnonSubtemplate)
+            .collect(Collectors.toList());
+
+        assertEquals(2, subtemplates.size());
+        assertSame(subtemplates.get(0).instrs, subtemplates.get(1).instrs);
+        assertSame(subtemplates.get(0).strings, subtemplates.get(1).strings);
+
+        st.add("xs", List.of(1, 2));
+        assertEquals("[1][2][1][2]", st.render());
+    }
+
+    @Test
+    void testCodeIsTrimmed()
+    {
+        STGroup group = new STGroupString("a(x) ::= \"<x>\"\n");
+
+        CompiledST a = group.getInstanceOf("a")
+            .getImpl();
+
+        assertEquals(a.codeSize, a.instrs.length);
+    }
+}
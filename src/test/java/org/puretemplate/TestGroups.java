@@ -257,6 +257,34 @@ class TestGroups extends BaseTest
         assertEquals("group.stg 2:0: redefinition of template b" + NEWLINE, errors.toString());
     }
 
+    @Test
+    void testErrorsOfManyTemplatesInSourceOrder() throws IOException
+    {
+        // the templates of a group file are compiled concurrently, but errors must still be reported in source order
+        StringBuilder templates = new StringBuilder();
+        List<Integer> expectedLines = new ArrayList<>();
+        for (int i = 0; i < 20; i++)
+        {
+            templates.append("f" + i + "(x,y) ::= \"<x><y>\"\n")
+                .append("g" + i + "() ::= \"<f" + i + "(x={a},{b})>\"\n")
+                .append("h" + i + "(a,a) ::= \"\"\n")
+                .append("f" + i + "() ::= \"dup\"\n");
+            expectedLines.add(4 * i + 2);
+            expectedLines.add(4 * i + 3);
+            expectedLines.add(4 * i + 4);
+        }
+
+        ErrorBuffer errors = getGroupLoadingErrors(templates.toString());
+
+        List<Integer> lines = new ArrayList<>();
+        for (String error : errors.toString()
+            .split(NEWLINE))
+        {
+            lines.add(Integer.parseInt(error.substring("group.stg ".length(), error.indexOf(':'))));
+        }
+        assertEquals(expectedLines, lines);
+    }
+
     @Test
     void testAlias()
     {
@@ -165,6 +165,24 @@ class TestInterptimeErrors extends BaseTest
         assertEquals("context [/t /u] 1:1 attribute x isn't defined" + NEWLINE, errors.toString());
     }
 
+    @Test
+    void testErrorLocationsOnLaterLines()
+    {
+        ErrorBuffer errors = new ErrorBuffer();
+
+        String templates = "t() ::= <<\na\n<u()>\n>>\n" + "u() ::= <<\nx <foo()>\n  <y>\n>>\n";
+
+        writeFile(tmpdir, "t.stg", templates);
+        STGroup group = STGroupFilePath.createWithDefaults(tmpdir + "/" + "t.stg");
+        group.setListener(errors);
+        ST st = group.getInstanceOf("t");
+        st.render();
+        assertEquals("context [/t /u] 1:3 no such template: /foo" +
+            NEWLINE +
+            "context [/t /u] 2:3 attribute y isn't defined" +
+            NEWLINE, errors.toString());
+    }
+
     @Test
     void testParallelAttributeIterationWithMissingArgs() throws IOException
     {
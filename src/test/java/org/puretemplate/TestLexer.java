@@ -47,6 +47,14 @@ class TestLexer extends BaseTest
         Tokens.checkTokens(template, expected);
     }
 
+    @Test
+    void testEscapesBetweenTextRuns()
+    {
+        String template = "ab\\\\cd\\<ef gh";
+        String expected = "[[@0,0:12='ab\\cd<ef gh',<TEXT>,1:0]]";
+        Tokens.checkTokens(template, expected);
+    }
+
     @Test
     void testEscChar()
     {
@@ -173,4 +173,17 @@ class TestOptions extends BaseTest
             errors.getErrors()
                 .toString());
     }
+
+    @Test
+    void testConstantOptionsOnRepeatedRendering() throws IOException
+    {
+        STGroup group = new LegacyBareStGroup();
+        group.defineTemplate("test", "name", "<name; null=\"-\", separator=\", \">|<name; separator=\"/\">");
+        ST st = group.getInstanceOf("test");
+        st.add("name", "Ter");
+        st.add("name", null);
+        st.add("name", "Tom");
+        assertRenderingResult("Ter, -, Tom|Ter/Tom", st);
+        assertRenderingResult("Ter, -, Tom|Ter/Tom", st);
+    }
 }
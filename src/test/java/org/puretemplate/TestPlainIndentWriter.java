@@ -0,0 +1,81 @@
+package org.puretemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import org.junit.jupiter.api.Test;
+
+class TestPlainIndentWriter extends BaseTest
+{
+    private static String render(ST st, TemplateWriter templateWriter, StringWriter result)
+    {
+        st.write(templateWriter);
+        return result.toString();
+    }
+
+    private static void assertSameOutput(ST st)
+    {
+        StringWriter expected = new StringWriter();
+        StringWriter actual = new StringWriter();
+        assertThat(render(st, new PlainIndentWriter(actual), actual)).isEqualTo(render(st,
+            new AutoIndentWriter(expected),
+            expected));
+    }
+
+    @Test
+    void testNestedIndentation()
+    {
+        STGroup group = new LegacyBareStGroup();
+        group.defineTemplate("outer", "names", "begin\n  <names:inner()>\nend");
+        group.defineTemplate("inner", "name", "<name>:\n    <name>\r\n\n  x");
+        ST st = group.getInstanceOf("outer");
+        st.add("names", "a");
+        st.add("names", "b\nc");
+
+        assertSameOutput(st);
+    }
+
+    @Test
+    void testAnchorFromAttributeValue()
+    {
+        STGroup group = new LegacyBareStGroup();
+        group.defineTemplate("outer", "x", "  { <x> }");
+        group.defineTemplate("anchored", "names", "foo(<names; anchor, separator=\",\n\">)");
+        ST anchored = group.getInstanceOf("anchored");
+        anchored.add("names", "a");
+        anchored.add("names", "b");
+        anchored.add("names", "c");
+        ST st = group.getInstanceOf("outer");
+        st.add("x", anchored);
+
+        assertSameOutput(st);
+    }
+
+    @Test
+    void testIndex() throws IOException
+    {
+        PlainIndentWriter writer = new PlainIndentWriter(new StringWriter(), "\n");
+        writer.pushIndentation("  ");
+        assertThat(writer.write("a\nb")).isEqualTo(7);
+        assertThat(writer.index()).isEqualTo(7);
+    }
+
+    @Test
+    void testUsesLayoutOptions()
+    {
+        STGroup group = new LegacyBareStGroup();
+        group.defineTemplate("plain", "x", "<x:callee()>");
+        group.defineTemplate("callee", "y", "<y>");
+        group.defineTemplate("wrapping", "x", "<x:callee(); wrap>");
+        group.defineTemplate("caller", "x", "<x:wrapping()>");
+
+        assertThat(group.lookupTemplate("/plain")
+            .usesLayoutOptions()).isFalse();
+        assertThat(group.lookupTemplate("/wrapping")
+            .usesLayoutOptions()).isTrue();
+        assertThat(group.lookupTemplate("/caller")
+            .usesLayoutOptions()).isTrue();
+    }
+}
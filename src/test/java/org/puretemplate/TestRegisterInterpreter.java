@@ -0,0 +1,77 @@
+package org.puretemplate;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.puretemplate.misc.ErrorBuffer;
+
+class TestRegisterInterpreter extends BaseTest
+{
+    private static final String LIBRARY = "lib(v) ::= \"{<v>}\"\n";
+
+    private static final String TEMPLATES = "row(v) ::= \"[<v>]\"\n" +
+        "row2(v) ::= \"(<v>)\"\n" +
+        "call(a, x) ::= \"<a>|<x>\"\n" +
+        "lib(v) ::= \"<super.lib(v)><super.lib(v=v)>\"\n";
+
+    @ParameterizedTest(name = "[{index}] {0}")
+    @ValueSource(strings = {
+        "\"<names; separator=\\\", \\\">\"",
+        "\"<names:{v | [<v>]}; wrap, anchor, separator=\\\",\\\">\"",
+        "\"<if(x && !n)>both<elseif(n || x)>one<else>none<endif>\"",
+        "\"<first(names)> <last(names)> <rest(names)> <length(names)> <reverse(names)> <trunc(names)>\"",
+        "\"<strip([n, x, names])> <trim(x)> <strlen(x)>\"",
+        "\"<user.name> <user.(x)> <user.(\\\"id\\\")>\"",
+        "\"<names, names:{a, b | <a>=<b>}; separator=\\\" \\\">\"",
+        "\"<names:row(), row2()>\"",
+        "\"<(\\\"row\\\")(x)>\"",
+        "\"<call(a=x, ...)>\"",
+        "\"<lib(x)>\"",
+        "\"<n; null=\\\"missing\\\">\"",
+        "\"<[names, x]:{v | <v>}>\"",
+        "\"<{<x>!}> <row(({<x>!}))>\"",
+        "\"<names:{v | <v:row()>}>\"",
+        "\"<trim(names)> <nope>\"",
+        "<<\n  <names:{v | <v>\n}>\n\n<if(n)><n><endif>\n<x>\n>>",
+        "<<\n\n<x>\n\n>>"
+    })
+    void testSameOutputAsStackInterpreter(String template)
+    {
+        String templates = TEMPLATES + "t(names, x, user, n) ::= " + template + "\n";
+
+        assertEquals(render(templates, false), render(templates, true));
+    }
+
+    @Test
+    void testLocalsAreReadInPlace()
+    {
+        CompiledST impl = new STGroupString("t(x) ::= \"<x>\"\n").lookupTemplate("t");
+
+        // the superinstruction of LOAD_LOCAL and WRITE becomes a WRITE of the local
+        assertArrayEquals(new int[]{ RegisterCode.WRITE, 3, RegisterCode.local(0) },
+            impl.getRegisterCode().code);
+    }
+
+    private static String render(String templates, boolean registerInterpreter)
+    {
+        ErrorBuffer errors = new ErrorBuffer();
+        STGroup library = new STGroupString(LIBRARY);
+        STGroup group = new STGroupString(templates);
+        group.importTemplates(library);
+        group.setListener(errors);
+        group.registerInterpreter = registerInterpreter;
+
+        String result = group.getInstanceOf("t")
+            .add("names", List.of("Ter", "Tom", "Sumana"))
+            .add("x", " hi ")
+            .add("user", Map.of("name", "Parrt", "id", 7))
+            .render();
+        return result + "|" + errors;
+    }
+}
@@ -0,0 +1,83 @@
+package org.puretemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+class TestRenderBuffer extends BaseTest
+{
+    static Arguments[] values()
+    {
+        return new Arguments[]{
+            args(0),
+            args(7),
+            args(-10),
+            args(99),
+            args(100),
+            args(Integer.MIN_VALUE),
+            args(Integer.MAX_VALUE),
+            args(Long.MIN_VALUE),
+            args(Long.MAX_VALUE),
+            args(999_999_999_999_999_999L),
+            args(1_000_000_000_000_000_000L),
+            args((short) -32768),
+            args((byte) 127),
+            args(0.1),
+            args(-1.0E-10),
+            args(Double.NaN),
+            args(Double.NEGATIVE_INFINITY),
+            args(1.0E21),
+            args(3.4028235E38f),
+            args(-0.0f),
+            args(true),
+            args('x'),
+            args(LocalDate.of(2021, 3, 4)),
+            args(LocalDate.of(12, 12, 31)),
+            args(LocalDate.of(-12, 1, 1)),
+            args(LocalDate.of(-1234, 1, 1)),
+            args(LocalDate.of(12345, 1, 1)),
+            args(LocalTime.of(0, 0)),
+            args(LocalTime.of(23, 59, 1)),
+            args(LocalTime.of(1, 2, 0, 3_000_000)),
+            args(LocalTime.of(1, 2, 3, 4_000)),
+            args(LocalTime.of(1, 2, 3, 5)),
+            args(LocalDateTime.of(2005, 7, 5, 0, 0)),
+            args(LocalDateTime.of(2005, 7, 5, 13, 14, 15, 123_456_789))
+        };
+    }
+
+    @ParameterizedTest(name = "[{index}] {0}")
+    @MethodSource("values")
+    void testSameAsToString(Object value) throws IOException
+    {
+        RenderBuffer buffer = new RenderBuffer();
+        buffer.append("before ");
+        assertThat(buffer.appendValue(value)).isTrue();
+
+        StringWriter result = new StringWriter();
+        buffer.writeTo(new NoIndentWriter(result));
+
+        assertThat(result.toString()).isEqualTo("before " + value);
+    }
+
+    @ParameterizedTest(name = "[{index}] {0}")
+    @MethodSource("unsupportedValues")
+    void testUnsupportedTypes(Object value)
+    {
+        assertThat(new RenderBuffer().appendValue(value)).isFalse();
+    }
+
+    static Arguments[] unsupportedValues()
+    {
+        return new Arguments[]{ args(new BigDecimal("1.5")), args(new Object()) };
+    }
+}
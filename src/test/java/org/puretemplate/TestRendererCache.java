@@ -0,0 +1,93 @@
+package org.puretemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.puretemplate.model.AttributeRenderer;
+import org.puretemplate.model.StringRenderer;
+
+class TestRendererCache
+{
+    private static class CountingGroup extends LegacyBareStGroup
+    {
+        private int lookups;
+
+        @Override
+        <T> AttributeRenderer<? super T> getAttributeRenderer(Class<T> attributeType)
+        {
+            lookups++;
+            return super.getAttributeRenderer(attributeType);
+        }
+    }
+
+    @Test
+    void testLooksUpEachTypeOnce()
+    {
+        CountingGroup group = new CountingGroup();
+        StringRenderer renderer = new StringRenderer();
+        group.registerRenderer(String.class, renderer, false);
+        RendererCache cache = new RendererCache();
+
+        for (int i = 0; i < 3; i++)
+        {
+            assertThat(cache.get(group, String.class)).isSameAs(renderer);
+            assertThat(cache.get(group, Integer.class)).isNull();
+        }
+
+        assertThat(group.lookups).isEqualTo(2);
+    }
+
+    @Test
+    void testDistinguishesGroups()
+    {
+        STGroup withRenderer = new LegacyBareStGroup();
+        StringRenderer renderer = new StringRenderer();
+        withRenderer.registerRenderer(String.class, renderer, false);
+        STGroup withoutRenderer = new LegacyBareStGroup();
+        RendererCache cache = new RendererCache();
+
+        assertThat(cache.get(withRenderer, String.class)).isSameAs(renderer);
+        assertThat(cache.get(withoutRenderer, String.class)).isNull();
+        assertThat(cache.get(withRenderer, String.class)).isSameAs(renderer);
+    }
+
+    @Test
+    void testGrows()
+    {
+        CountingGroup group = new CountingGroup();
+        RendererCache cache = new RendererCache();
+        List<Class<?>> types = List.of(String.class,
+            Integer.class,
+            Long.class,
+            Short.class,
+            Byte.class,
+            Double.class,
+            Float.class,
+            Boolean.class,
+            Character.class,
+            Object.class,
+            List.class,
+            ArrayList.class,
+            StringBuilder.class,
+            Thread.class,
+            Runnable.class,
+            Class.class,
+            Number.class,
+            CharSequence.class,
+            Comparable.class,
+            Iterable.class);
+
+        for (int pass = 0; pass < 2; pass++)
+        {
+            for (Class<?> type : types)
+            {
+                assertThat(cache.get(group, type)).isNull();
+            }
+        }
+
+        assertThat(group.lookups).isEqualTo(types.size());
+    }
+}
@@ -5,6 +5,7 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import lombok.experimental.UtilityClass;
 
 import org.antlr.runtime.ANTLRStringStream;
+import org.antlr.runtime.CharStream;
 import org.antlr.runtime.CommonTokenStream;
 import org.antlr.runtime.Token;
 
@@ -16,13 +17,18 @@ public class Tokens
         checkTokens(template, expected, '<', '>');
     }
 
+    /**
+     * Checks the tokens both with per-character scanning and with the bulk text scanning of {@link TemplateCharStream}.
+     */
     public static void checkTokens(String template, String expected, char delimiterStartChar, char delimiterStopChar)
     {
-        STLexer lexer = new STLexer(STGroup.DEFAULT_ERR_MGR,
-            new ANTLRStringStream(template),
-            null,
-            delimiterStartChar,
-            delimiterStopChar);
+        assertEquals(expected, lex(new ANTLRStringStream(template), delimiterStartChar, delimiterStopChar));
+        assertEquals(expected, lex(new TemplateCharStream(template), delimiterStartChar, delimiterStopChar));
+    }
+
+    private static String lex(CharStream input, char delimiterStartChar, char delimiterStopChar)
+    {
+        STLexer lexer = new STLexer(STGroup.DEFAULT_ERR_MGR, input, null, delimiterStartChar, delimiterStopChar);
         CommonTokenStream tokens = new CommonTokenStream(lexer);
         StringBuilder buf = new StringBuilder();
         buf.append("[");
@@ -39,7 +45,6 @@ public class Tokens
             t = tokens.LT(i);
         }
         buf.append("]");
-        String result = buf.toString();
-        assertEquals(expected, result);
+        return buf.toString();
     }
 }
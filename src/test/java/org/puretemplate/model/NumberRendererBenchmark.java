@@ -0,0 +1,77 @@
+package org.puretemplate.model;
+
+import java.math.BigDecimal;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares {@link NumberRenderer} with formatting via {@link String#format(Locale, String, Object...)}. Not run by the
+ * build; start it via {@link #main(String[])} after compiling the test sources.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NumberRendererBenchmark
+{
+    @Param({ "en-US", "de-DE" })
+    public String languageTag;
+
+    private final NumberRenderer renderer = new NumberRenderer();
+    private final BigDecimal amount = new BigDecimal("-1234567.891");
+    private final long count = 9876543210L;
+    private Locale locale;
+
+    public static void main(String[] args) throws RunnerException
+    {
+        new Runner(new OptionsBuilder().include(NumberRendererBenchmark.class.getSimpleName())
+            .build()).run();
+    }
+
+    @Setup
+    public void setUp()
+    {
+        locale = Locale.forLanguageTag(languageTag);
+    }
+
+    @Benchmark
+    public String formatterDecimal()
+    {
+        return String.format(locale, "%,.2f", amount);
+    }
+
+    @Benchmark
+    public String rendererDecimal()
+    {
+        return renderer.render(amount, "%,.2f", locale);
+    }
+
+    @Benchmark
+    public String formatterInteger()
+    {
+        return String.format(locale, "%,15d", count);
+    }
+
+    @Benchmark
+    public String rendererInteger()
+    {
+        return renderer.render(count, "%,15d", locale);
+    }
+}
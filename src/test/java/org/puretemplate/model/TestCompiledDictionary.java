@@ -0,0 +1,76 @@
+package org.puretemplate.model;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.puretemplate.BaseTest;
+
+class TestCompiledDictionary extends BaseTest
+{
+    static Arguments[] dictionaries()
+    {
+        Map<String, Object> plain = new LinkedHashMap<>();
+        plain.put("int", "0");
+        plain.put("float", "0.0");
+        plain.put("echo", Maps.DICT_KEY);
+        // a string "key" in a group file is a regular value, unlike the key keyword
+        plain.put("string", new String("key"));
+
+        Map<String, Object> withDefault = new LinkedHashMap<>(plain);
+        withDefault.put(Maps.DEFAULT_KEY, "null");
+
+        Map<String, Object> withKeyDefault = new LinkedHashMap<>(plain);
+        withKeyDefault.put(Maps.DEFAULT_KEY, Maps.DICT_KEY);
+
+        Map<String, Object> shadowing = new LinkedHashMap<>();
+        shadowing.put("keys", "k");
+        shadowing.put("values", Boolean.TRUE);
+
+        return new Arguments[]{
+            args("plain", plain),
+            args("withDefault", withDefault),
+            args("withKeyDefault", withKeyDefault),
+            args("shadowing", shadowing)
+        };
+    }
+
+    @ParameterizedTest(name = "[{index}] {0}")
+    @MethodSource("dictionaries")
+    void testSameAsMapModelAdaptor(@SuppressWarnings("unused") String name, Map<String, Object> mapping)
+    {
+        CompiledDictionary dictionary = new CompiledDictionary(mapping);
+        MapModelAdaptor adaptor = new MapModelAdaptor();
+
+        assertThat(dictionary).isEqualTo(mapping);
+        assertThat(dictionary.keySet()).containsExactlyElementsOf(mapping.keySet());
+
+        Object[] properties = new Object[]{
+            null, "int", "float", "echo", "string", "default", "keys", "values", "missing", 42
+        };
+        for (Object property : properties)
+        {
+            String propertyName = property == null
+                ? null
+                : property.toString();
+            Object expected = adaptor.getProperty(mapping, property, propertyName);
+            Object actual = adaptor.getProperty(dictionary, property, propertyName);
+            if (expected instanceof Collection)
+            {
+                // the values() views of maps don't implement equals()
+                assertThat((Collection<?>) actual).describedAs(propertyName)
+                    .containsExactlyElementsOf((Collection<?>) expected);
+            }
+            else
+            {
+                assertThat(actual).describedAs(propertyName)
+                    .isEqualTo(expected);
+            }
+        }
+    }
+}
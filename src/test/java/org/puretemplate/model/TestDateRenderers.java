@@ -18,6 +18,7 @@ import java.util.function.Supplier;
 import lombok.Synchronized;
 
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
@@ -143,6 +144,29 @@ class TestDateRenderers extends BaseTest
         assertThat(actual).isEqualTo("Tuesday, July 5, 2005 at 12:00:00 AM Pacific Daylight Time");
     }
 
+    @Test
+    void testFormattersAreShared()
+    {
+        assertThat(Dates.getFormatter("yyyy.MM.dd", Locale.US)).isSameAs(Dates.getFormatter("yyyy.MM.dd", Locale.US))
+            .isNotSameAs(Dates.getFormatter("yyyy.MM.dd", Locale.GERMANY));
+    }
+
+    @Test
+    void testDatePatternsFollowSimpleDateFormat()
+    {
+        // SimpleDateFormat: 'u' is the day number of week, 'S' milliseconds; DateTimeFormatter: year, fraction
+        Date date = toDate(LOCAL_2005_07_05.plusNanos(7_000_000));
+        String formatString = "yyyy-MM-dd u SSS";
+
+        assertThat(dateRenderer.render(date, formatString, Locale.ROOT)).isEqualTo("2005-07-05 2 007");
+        assertThat(calendarRenderer.render(toCalendar(LOCAL_2005_07_05.plusNanos(7_000_000)),
+            formatString,
+            Locale.ROOT)).isEqualTo("2005-07-05 2 007");
+
+        // the second call uses the cached format
+        assertThat(dateRenderer.render(date, formatString, Locale.ROOT)).isEqualTo("2005-07-05 2 007");
+    }
+
     @Synchronized
     private String callWithChangedZone(TimeZone timeZone, Supplier<String> supplier)
     {
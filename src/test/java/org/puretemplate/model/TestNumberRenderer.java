@@ -1,7 +1,12 @@
 package org.puretemplate.model;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Locale;
 
 import org.junit.jupiter.api.BeforeEach;
@@ -40,4 +45,82 @@ class TestNumberRenderer extends BaseTest
     {
         assertThat(numberRenderer.render(value, formatString, locale)).isEqualTo(expected);
     }
+
+    static List<Arguments> formatterTestData()
+    {
+        String[] formatStrings = {
+            "%d",
+            "%,d",
+            "%+d",
+            "% d",
+            "%(d",
+            "%08d",
+            "%-8d|",
+            "%,(12d",
+            "%+,010d",
+            "[%5d%%]%n",
+            "%.2f",
+            "%,.2f",
+            "%(,.3f",
+            "%012.4f",
+            "%-12.1f|",
+            "%+,f",
+            "%.0f",
+            "%x",
+            "%,.2e",
+            "%s and %s",
+            "no conversion"
+        };
+        Number[] values = {
+            0,
+            7,
+            -2100,
+            (byte) -12,
+            (short) 4711,
+            Long.MIN_VALUE,
+            new BigInteger("-123456789012345678901234567890"),
+            new BigDecimal("0.005"),
+            new BigDecimal("-1234567.891"),
+            new BigDecimal("1E+3"),
+            -3.14159,
+            2.5f
+        };
+        Locale[] locales = {
+            Locale.US, Locale.ROOT, Locale.GERMANY, POLISH, new Locale("hi", "IN"), new Locale("ar", "EG")
+        };
+
+        List<Arguments> result = new ArrayList<>();
+        for (String formatString : formatStrings)
+        {
+            for (Number value : values)
+            {
+                for (Locale locale : locales)
+                {
+                    result.add(args(formatString, value, locale));
+                }
+            }
+        }
+        return result;
+    }
+
+    @ParameterizedTest(name = "[{index}] ''{0}'' {1} {2}")
+    @MethodSource("formatterTestData")
+    void testSameAsFormatter(String formatString, Number value, Locale locale)
+    {
+        String expected;
+        try
+        {
+            expected = String.format(locale, formatString, value);
+        }
+        catch (IllegalArgumentException e)
+        {
+            assertThatThrownBy(() -> numberRenderer.render(value, formatString, locale)).isInstanceOf(e.getClass());
+            return;
+        }
+
+        assertThat(numberRenderer.render(value, formatString, locale)).isEqualTo(expected);
+
+        // second call uses the cached format
+        assertThat(numberRenderer.render(value, formatString, locale)).isEqualTo(expected);
+    }
 }
@@ -1,5 +1,8 @@
 package org.puretemplate.model;
 
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
 import java.util.Locale;
 
 import org.assertj.core.api.Assertions;
@@ -34,7 +37,12 @@ class TestStringRenderer extends BaseTest
             args("url-encode", "a b", "a+b"),
             args("xml-encode", "a<b> &\t\b", "a&lt;b&gt; &amp;\t&#8;"),
             args("xml-encode", "\uD83E\uDE73", "&#129651;"),
-            args("%6s", "hi", "    hi")
+            args("%6s", "hi", "    hi"),
+            args("%-6s|", "hi", "hi    |"),
+            args("[%.2s]", "hello", "[he]"),
+            args("%%%5.1s%n", "hello", "%    h" + System.lineSeparator()),
+            args("%S", "hi", "HI"),
+            args("%1$s and %1$s", "x", "x and x")
         };
     }
 
@@ -47,6 +55,33 @@ class TestStringRenderer extends BaseTest
             .isEqualTo(expectedOutput);
     }
 
+    @ParameterizedTest(name = "[{index}] {0} ''{1}''")
+    @MethodSource("formatStrings")
+    void testStreamingFormatStrings(String formatString, String inputValue, String expectedOutput) throws IOException
+    {
+        StringBuilder actual = new StringBuilder();
+        stringRenderer.render(inputValue, formatString, Locale.ROOT, actual);
+        Assertions.assertThat(actual.toString())
+            .isEqualTo(expectedOutput);
+    }
+
+    @ParameterizedTest(name = "[{index}] ''{0}''")
+    @ValueSource(strings = {
+        "plain-text_1.2*3",
+        "a b&c=d/e?f",
+        "\u00e4\u00f6\u00fc \u20ac",
+        "\uD83E\uDE73 emoji",
+        "lone \uD83E surrogate \uDE73",
+        "~!@#$%^()+[]{}|;:'\",<>`"
+    })
+    void testStreamingUrlEncodeMatchesUrlEncoder(String inputValue) throws IOException
+    {
+        StringBuilder actual = new StringBuilder();
+        stringRenderer.render(inputValue, "url-encode", Locale.ROOT, actual);
+        Assertions.assertThat(actual.toString())
+            .isEqualTo(URLEncoder.encode(inputValue, StandardCharsets.UTF_8));
+    }
+
     @ParameterizedTest(name = "[{index}] {0}")
     @ValueSource(strings = { "cap", "url-encode", "xml-encode" })
     void testFormatStringWithEmptyInput(String formatString)